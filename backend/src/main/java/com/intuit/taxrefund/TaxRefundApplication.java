@@ -1,6 +1,8 @@
 package com.intuit.taxrefund;
 
 import com.intuit.taxrefund.assistant.infra.AssistantProps;
+import com.intuit.taxrefund.assistant.infra.AssistantQuotaProps;
+import com.intuit.taxrefund.assistant.nlp.IntentModelProps;
 import com.intuit.taxrefund.llm.AiProps;
 import com.intuit.taxrefund.shared.config.DemoProps;
 import com.intuit.taxrefund.ml.MlProps;
@@ -11,13 +13,14 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 import com.intuit.taxrefund.auth.CookieProps;
+import com.intuit.taxrefund.auth.RefreshTokenProps;
 import com.intuit.taxrefund.shared.ratelimit.RateLimitProps;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableConfigurationProperties({
-    CookieProps.class, RateLimitProps.class, MlProps.class, AiProps.class,
-    DemoProps.class, AssistantProps.class
+    CookieProps.class, RefreshTokenProps.class, RateLimitProps.class, MlProps.class, AiProps.class,
+    DemoProps.class, AssistantProps.class, AssistantQuotaProps.class, IntentModelProps.class
 })
 @EnableScheduling
 public class TaxRefundApplication {
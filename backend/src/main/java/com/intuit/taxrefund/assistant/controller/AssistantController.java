@@ -7,19 +7,34 @@ import com.intuit.taxrefund.auth.jwt.JwtService;
 import jakarta.validation.Valid;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/assistant")
 public class AssistantController {
 
     private static final Logger log = LogManager.getLogger(AssistantController.class);
+    private static final Duration STREAM_TIMEOUT = Duration.ofSeconds(60);
 
     private final AssistantService assistantService;
+    private final AsyncTaskExecutor executor;
 
-    public AssistantController(AssistantService assistantService) {
+    public AssistantController(
+        AssistantService assistantService,
+        @Qualifier("applicationTaskExecutor") AsyncTaskExecutor executor
+    ) {
         this.assistantService = assistantService;
+        this.executor = executor;
     }
 
     @PostMapping("/chat")
@@ -27,4 +42,46 @@ public class AssistantController {
         JwtService.JwtPrincipal principal = (JwtService.JwtPrincipal) auth.getPrincipal();
         return assistantService.answer(principal, req.question());
     }
-}
\ No newline at end of file
+
+    /**
+     * Server-Sent Events variant of {@link #chat}.
+     *
+     * Events:
+     *   token : {"text": "..."}             – next piece of answerMarkdown, in order
+     *   final : AssistantChatResponse JSON  – authoritative answer, citations, actions, confidence;
+     *                                          clients replace the streamed text with its answerMarkdown
+     *   error : {"error": "assistant_failed"}
+     */
+    @PostMapping(path = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(Authentication auth, @Valid @RequestBody AssistantChatRequest req) {
+        JwtService.JwtPrincipal principal = (JwtService.JwtPrincipal) auth.getPrincipal();
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT.toMillis());
+        Map<String, String> logContext = ThreadContext.getImmutableContext();
+
+        executor.execute(() -> {
+            ThreadContext.putAll(logContext);
+            try {
+                AssistantChatResponse response = assistantService.answerStreaming(
+                    principal, req.question(), text -> send(emitter, "token", Map.of("text", text)));
+                send(emitter, "final", response);
+                emitter.complete();
+            } catch (Exception e) {
+                log.error("assistant_stream_failed userId={} err={}", principal.userId(), e.toString());
+                send(emitter, "error", Map.of("error", "assistant_failed"));
+                emitter.complete();
+            } finally {
+                ThreadContext.clearMap();
+            }
+        });
+        return emitter;
+    }
+
+    // A client that went away must not fail the turn; it is still committed
+    private static void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("assistant_stream_send_skipped event={} err={}", event, e.toString());
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.intuit.taxrefund.assistant.infra;
+
+import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse;
+import com.intuit.taxrefund.assistant.model.AssistantIntent;
+import com.intuit.taxrefund.assistant.model.AssistantPlan;
+import com.intuit.taxrefund.assistant.policy.PolicySnippetRecord;
+import com.intuit.taxrefund.refund.controller.dto.RefundStatusResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Answer cache shared across users, so the same question in the same refund situation
+ * ("when will I get my refund" while PROCESSING) does not cost another LLM call.
+ *
+ * Key  : "assistant:answer:{sha256}" over
+ *          prompt template version | classified intent | planner flags
+ *          | PrivacyFilter shared inputs (status, tax year, amount bucket, ETA bucket)
+ *          | policy snippet fingerprints (id@version#quote-hash)
+ * Value: raw LLM JSON; default actions are merged per user on read
+ * TTL  : app.assistant.answerCacheTtlMinutes (default 6h)
+ *
+ * Invalidation is by key: editing, re-versioning, adding or removing a policy snippet, or
+ * bumping the prompt template version produces new keys, and old entries age out.
+ *
+ * The raw question and history are not part of the key, so an answer is only stored when
+ * it cannot carry one user's data to another:
+ *   - produced by the real provider (never the mock fallback) on the first turn of a session
+ *   - not self-rated LOW
+ *   - no digits other than the tax year (dates, amounts, account or SSN-like numbers)
+ *   - no e-mail addresses
+ *   - repeats no word of the user's question outside {@link #SHARED_WORDS} (function words
+ *     and refund vocabulary), and no word the user capitalized mid-sentence, so names and
+ *     other things the user typed about themselves ("My name is Jane Smith") cannot leak
+ *
+ * Lookups follow the same first-turn rule (the caller only asks on a session's first turn),
+ * so a follow-up question is never answered with a stored opening answer.
+ *
+ * Metrics: counter assistant.answer.cache{result=hit|miss|store|skip}
+ */
+@Component
+public class AssistantAnswerCache {
+
+    private static final Logger log = LogManager.getLogger(AssistantAnswerCache.class);
+    private static final String KEY_PREFIX = "assistant:answer:";
+    private static final Duration DEFAULT_TTL = Duration.ofHours(6);
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+    private static final Pattern WORD = Pattern.compile("[\\p{L}']+");
+    private static final Pattern EMAIL = Pattern.compile("[^\\s@]+@[^\\s@]+\\.[^\\s@]+");
+    private static final Pattern SENTENCE_END = Pattern.compile("[.!?]\\s*$");
+
+    /** Words an answer may repeat from the question: they say nothing about the user. */
+    static final Set<String> SHARED_WORDS = Set.of(
+        // function words
+        "a", "an", "the", "and", "or", "but", "if", "of", "to", "in", "on", "at", "by", "for", "from",
+        "with", "about", "as", "into", "than", "then", "so", "not", "no", "yes", "is", "are", "was",
+        "were", "be", "been", "being", "am", "do", "does", "did", "done", "have", "has", "had", "can",
+        "could", "will", "would", "should", "may", "might", "must", "shall", "i", "i'm", "me", "my",
+        "mine", "you", "your", "yours", "we", "our", "us", "it", "it's", "its", "this", "that",
+        "these", "those", "there", "here", "what", "when", "where", "why", "how", "which", "who",
+        "any", "some", "all", "more", "most", "much", "many", "still", "yet", "already", "just",
+        "now", "soon", "long", "again", "get", "got", "getting", "take", "takes", "taking", "know",
+        "please", "thanks", "thank", "hi", "hello",
+        // refund vocabulary
+        "refund", "refunds", "tax", "taxes", "return", "returns", "irs", "status", "processing",
+        "processed", "received", "approved", "sent", "rejected", "review", "delay", "delayed",
+        "late", "eta", "estimate", "estimated", "expected", "expect", "date", "time", "days",
+        "day", "weeks", "week", "deposit", "direct", "check", "mail", "bank", "money", "amount",
+        "filed", "file", "filing", "year", "federal", "state", "update", "updated", "wait",
+        "waiting", "arrive", "arrived", "arriving", "help", "question", "policy", "information"
+    );
+
+    private final StringRedisTemplate redis;
+    private final PrivacyFilter privacyFilter;
+    private final AssistantProps props;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter stores;
+    private final Counter skips;
+
+    public AssistantAnswerCache(
+        StringRedisTemplate redis, PrivacyFilter privacyFilter, AssistantProps props, MeterRegistry meters
+    ) {
+        this.redis = redis;
+        this.privacyFilter = privacyFilter;
+        this.props = props;
+        this.hits   = meters.counter("assistant.answer.cache", "result", "hit");
+        this.misses = meters.counter("assistant.answer.cache", "result", "miss");
+        this.stores = meters.counter("assistant.answer.cache", "result", "store");
+        this.skips  = meters.counter("assistant.answer.cache", "result", "skip");
+    }
+
+    public boolean enabled() {
+        return props.answerCacheEnabled();
+    }
+
+    public String keyFor(
+        int promptVersion,
+        AssistantIntent intent,
+        AssistantPlan plan,
+        RefundStatusResponse refund,
+        List<PolicySnippetRecord> snippets
+    ) {
+        StringBuilder sb = new StringBuilder(256)
+            .append("prompt=").append(promptVersion)
+            .append("|intent=").append(intent)
+            .append("|flags=")
+            .append(plan.includeRefundStatus() ? 'S' : '-')
+            .append(plan.includeEta() ? 'E' : '-')
+            .append(plan.includePolicySnippets() ? 'P' : '-')
+            .append(plan.escalate() ? 'X' : '-')
+            .append(plan.repeatHint() ? 'R' : '-')
+            .append('|').append(privacyFilter.buildSharedAnswerKeyInputs(refund, plan))
+            .append("|policies=");
+        for (PolicySnippetRecord p : snippets) {
+            sb.append(p.id()).append('@').append(p.version())
+              .append('#').append(Integer.toHexString(p.quote() == null ? 0 : p.quote().hashCode()))
+              .append(',');
+        }
+        return KEY_PREFIX + sha256Hex(sb.toString());
+    }
+
+    /** Cached raw LLM JSON, or null on miss or Redis failure. */
+    public String get(String key) {
+        try {
+            String json = redis.opsForValue().get(key);
+            (json == null ? misses : hits).increment();
+            return json;
+        } catch (Exception e) {
+            misses.increment();
+            log.warn("assistant_answer_cache_read_failed err={}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Store an answer if it passes the sharing rules above. Best effort.
+     */
+    public void putIfShareable(
+        String key,
+        String json,
+        AssistantChatResponse parsed,
+        RefundStatusResponse refund,
+        String question,
+        boolean firstTurn
+    ) {
+        String reason = rejectReason(parsed, refund, question, firstTurn);
+        if (reason != null) {
+            skips.increment();
+            log.debug("assistant_answer_cache_skip reason={}", reason);
+            return;
+        }
+        try {
+            redis.opsForValue().set(key, json, ttl());
+            stores.increment();
+        } catch (Exception e) {
+            log.warn("assistant_answer_cache_write_failed err={}", e.toString());
+        }
+    }
+
+    static String rejectReason(
+        AssistantChatResponse parsed, RefundStatusResponse refund, String question, boolean firstTurn
+    ) {
+        if (!firstTurn) return "history";
+        if (parsed == null || parsed.answerMarkdown() == null) return "unparsed";
+        if (parsed.confidence() == null || parsed.confidence() == AssistantChatResponse.Confidence.LOW) return "low_confidence";
+
+        String answer = parsed.answerMarkdown();
+        String taxYear = String.valueOf(refund.taxYear());
+        Matcher digits = DIGITS.matcher(answer);
+        while (digits.find()) {
+            if (!digits.group().equals(taxYear)) return "digits";
+        }
+
+        if (EMAIL.matcher(answer).find()) return "email";
+        if (echoesQuestion(answer, question)) return "echoes_question";
+        return null;
+    }
+
+    private static boolean echoesQuestion(String answer, String question) {
+        if (question == null || question.isBlank()) return false;
+
+        Set<String> answerWords = new HashSet<>(words(answer.toLowerCase(Locale.ROOT)));
+        Set<String> answerWordsAsTyped = new HashSet<>(words(answer));
+        Matcher m = WORD.matcher(question);
+        int prevEnd = 0;
+        while (m.find()) {
+            String word = m.group();
+            String lower = word.toLowerCase(Locale.ROOT);
+            if (!SHARED_WORDS.contains(lower) && answerWords.contains(lower)) return true;
+
+            // "Will", "May", "Rose" are shared words in lower case but names when capitalized mid-sentence
+            boolean sentenceStart = prevEnd == 0 || SENTENCE_END.matcher(question.substring(0, m.start())).find();
+            if (!sentenceStart && !lower.equals("i") && Character.isUpperCase(word.charAt(0))
+                && answerWordsAsTyped.contains(word)) {
+                return true;
+            }
+            prevEnd = m.end();
+        }
+        return false;
+    }
+
+    private static List<String> words(String s) {
+        if (s == null) return List.of();
+        return WORD.matcher(s).results().map(MatchResult::group).toList();
+    }
+
+    private Duration ttl() {
+        int minutes = props.answerCacheTtlMinutes();
+        return minutes > 0 ? Duration.ofMinutes(minutes) : DEFAULT_TTL;
+    }
+
+    private static String sha256Hex(String s) {
+        try {
+            return HexFormat.of().formatHex(
+                MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
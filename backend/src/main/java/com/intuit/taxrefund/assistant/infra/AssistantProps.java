@@ -5,5 +5,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "app.assistant")
 public record AssistantProps(
     int maxQuestionChars,
-    int dailyOpenAiCallsPerUser
+    boolean answerCacheEnabled,
+    int answerCacheTtlMinutes,
+    int turnPrepDeadlineMs,
+    boolean templateAnswersEnabled
 ) {}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.intuit.taxrefund.assistant.infra;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/**
+ * LLM quotas, see {@link AssistantQuotaService}.
+ *
+ * @param limits             all of them must have room for a billable call to go ahead
+ * @param exhaustedCacheSize "quota exhausted" decisions remembered locally
+ */
+@ConfigurationProperties(prefix = "app.assistant.quota")
+public record AssistantQuotaProps(List<Limit> limits, int exhaustedCacheSize) {
+
+    /** What a limit counts per. */
+    public enum Scope { USER, PROVIDER, GLOBAL }
+
+    /** What a limit counts: LLM calls, or their cost in millionths of a USD. */
+    public enum Unit { CALLS, MICRO_USD }
+
+    /**
+     * One sliding window.
+     *
+     * @param name          part of the Redis key; renaming a limit starts it from zero
+     * @param windowSeconds window length, e.g. 60, 3600, 86400
+     * @param max           calls, or micro-USD, allowed per window
+     */
+    public record Limit(String name, Scope scope, long windowSeconds, long max, Unit unit) {}
+}
@@ -1,33 +1,212 @@
 package com.intuit.taxrefund.assistant.infra;
 
+import com.intuit.taxrefund.shared.concurrent.BoundedMaps;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Component;
 
-import java.time.Duration;
-import java.time.LocalDate;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * LLM quotas over sliding windows, per user, per provider and globally (app.assistant.quota).
+ *
+ * Each limit is one Redis hash holding the counts of the current and the previous fixed
+ * window; usage is estimated as previous × (share of it still inside the sliding window) +
+ * current. {@link #tryAcquire} checks every limit and, only if all have room, counts the
+ * call against the CALLS limits, in one script run, so concurrent turns cannot overshoot.
+ * The cost of a call is only known afterwards and is added to the MICRO_USD limits by
+ * {@link #recordSpend}. The script takes the time from Redis, so windows roll over at the
+ * same instant for every node.
+ *
+ * A denial is remembered locally until the limit has room again, so a user (or, for a global
+ * spend cap, everyone) who is out of quota does not reach Redis on every turn. Redis errors
+ * deny the call: quota protects spend, so it fails closed.
+ *
+ *   assistant.quota.denied{limit,source=local|redis}   counter
+ */
 @Component
 public class AssistantQuotaService {
-    private static final ZoneId QUOTA_ZONE = ZoneId.of("America/Los_Angeles");
+
+    private static final Logger log = LogManager.getLogger(AssistantQuotaService.class);
+
+    private static final int DEFAULT_EXHAUSTED_CACHE_SIZE = 100_000;
+
+    // KEYS: one hash per limit {w: window index, c: current count, p: previous count}
+    // ARGV: check (1/0), then window ms, max, amount per key
+    // Reply: {1, 0, 0} when counted, {0, i, ms until KEYS[i] has room (-1: never)} when denied
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SLIDING_WINDOWS = new DefaultRedisScript<>("""
+        local t = redis.call('TIME')
+        local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+        local check = ARGV[1] == '1'
+        local ids, curr, prev = {}, {}, {}
+
+        for i = 1, #KEYS do
+          local w = tonumber(ARGV[i * 3 - 1])
+          local max = tonumber(ARGV[i * 3])
+          local amount = tonumber(ARGV[i * 3 + 1])
+          local id = math.floor(now / w)
+          local h = redis.call('HMGET', KEYS[i], 'w', 'c', 'p')
+          local stored = tonumber(h[1])
+          local c, p = 0, 0
+          if stored == id then
+            c = tonumber(h[2]) or 0
+            p = tonumber(h[3]) or 0
+          elseif stored == id - 1 then
+            p = tonumber(h[2]) or 0
+          end
+          ids[i], curr[i], prev[i] = id, c, p
+
+          if check then
+            local elapsed = now - id * w
+            local used = p * (w - elapsed) / w + c
+            -- a check needs room for at least one unit, also on spend limits (amount 0)
+            local room = max - math.max(amount, 1)
+            if used > room then
+              local wait
+              if room < 0 then
+                wait = -1
+              elseif c <= room then
+                wait = math.max(1, math.ceil(w * (1 - (room - c) / p)) - elapsed)
+              else
+                wait = (w - elapsed) + math.ceil(w * (1 - room / c))
+              end
+              return {0, i, wait}
+            end
+          end
+        end
+
+        for i = 1, #KEYS do
+          local amount = tonumber(ARGV[i * 3 + 1])
+          if amount > 0 then
+            redis.call('HSET', KEYS[i], 'w', ids[i], 'c', curr[i] + amount, 'p', prev[i])
+            redis.call('PEXPIRE', KEYS[i], 2 * tonumber(ARGV[i * 3 - 1]))
+          end
+        end
+        return {1, 0, 0}
+        """, List.class);
+
+    /** Outcome of {@link #tryAcquire}; {@code limit} names the exhausted limit, if any. */
+    public record Decision(boolean allowed, String limit, long retryAfterMillis) {
+        static final Decision ALLOWED = new Decision(true, null, 0);
+    }
 
     private final StringRedisTemplate redis;
+    private final MeterRegistry meters;
+    private final Clock clock;
+    private final List<AssistantQuotaProps.Limit> limits;
+    private final List<AssistantQuotaProps.Limit> spendLimits;
+    private final int exhaustedCacheSize;
+    /** Redis key of an exhausted limit → epoch millis when it has room again. */
+    private final ConcurrentHashMap<String, Long> exhaustedUntil = new ConcurrentHashMap<>();
 
-    public AssistantQuotaService(StringRedisTemplate redis) {
+    public AssistantQuotaService(StringRedisTemplate redis, AssistantQuotaProps props, MeterRegistry meters,
+                                 Clock clock) {
         this.redis = redis;
+        this.meters = meters;
+        this.clock = clock;
+        this.limits = props.limits() == null ? List.of() : List.copyOf(props.limits());
+        this.spendLimits = limits.stream().filter(l -> l.unit() == AssistantQuotaProps.Unit.MICRO_USD).toList();
+        this.exhaustedCacheSize = props.exhaustedCacheSize() > 0
+            ? props.exhaustedCacheSize() : DEFAULT_EXHAUSTED_CACHE_SIZE;
+        for (AssistantQuotaProps.Limit l : limits) {
+            if (l.name() == null || l.scope() == null || l.unit() == null || l.windowSeconds() <= 0) {
+                throw new IllegalArgumentException("assistant quota limit needs name, scope, unit and window: " + l);
+            }
+        }
     }
 
-    public boolean tryConsumeDaily(long userId, int dailyLimit) {
-        String day = LocalDate.now(QUOTA_ZONE).format(DateTimeFormatter.BASIC_ISO_DATE); // YYYYMMDD
-        String key = "llm:quota:" + day + ":u:" + userId;
+    /** Checks all limits and, if every one has room, counts one call against the CALLS limits. */
+    public Decision tryAcquire(long userId, String provider) {
+        if (limits.isEmpty()) return Decision.ALLOWED;
+
+        long now = clock.millis();
+        List<String> keys = new ArrayList<>(limits.size());
+        String[] args = new String[1 + limits.size() * 3];
+        args[0] = "1";
+        for (int i = 0; i < limits.size(); i++) {
+            AssistantQuotaProps.Limit l = limits.get(i);
+            String key = key(l, userId, provider);
+            Long until = exhaustedUntil.get(key);
+            if (until != null) {
+                if (now < until) {
+                    meters.counter("assistant.quota.denied", "limit", l.name(), "source", "local").increment();
+                    return new Decision(false, l.name(), until - now);
+                }
+                exhaustedUntil.remove(key, until);
+            }
+            keys.add(key);
+            args[1 + i * 3] = Long.toString(l.windowSeconds() * 1000);
+            args[2 + i * 3] = Long.toString(l.max());
+            args[3 + i * 3] = l.unit() == AssistantQuotaProps.Unit.CALLS ? "1" : "0";
+        }
+
+        try {
+            List<?> reply = redis.execute(SLIDING_WINDOWS, keys, (Object[]) args);
+            if (reply == null || reply.size() < 3) throw new IllegalStateException("bad reply " + reply);
+            if (asLong(reply.get(0)) == 1) return Decision.ALLOWED;
 
-        Long n = redis.opsForValue().increment(key);
-        if (n != null && n == 1L) {
-            // Keep a bit longer than a day to survive timezone/day rollover safely
-            redis.expire(key, Duration.ofHours(26));
+            int i = (int) asLong(reply.get(1)) - 1;
+            AssistantQuotaProps.Limit l = limits.get(i);
+            long wait = asLong(reply.get(2));
+            long retryAfter = wait < 0 ? l.windowSeconds() * 1000 : wait;
+            remember(keys.get(i), now + retryAfter);
+            meters.counter("assistant.quota.denied", "limit", l.name(), "source", "redis").increment();
+            log.info("assistant_quota_exhausted userId={} provider={} limit={} retryAfterMs={}",
+                userId, provider, l.name(), retryAfter);
+            return new Decision(false, l.name(), retryAfter);
+        } catch (Exception e) {
+            log.warn("assistant_quota_check_failed userId={} provider={} err={}", userId, provider, e.toString());
+            return new Decision(false, null, 0);
         }
+    }
+
+    /** Adds the cost of a call to the MICRO_USD limits. Best-effort. */
+    public void recordSpend(long userId, String provider, double usd) {
+        long micros = Math.round(usd * 1_000_000);
+        if (micros <= 0 || spendLimits.isEmpty()) return;
+
+        List<String> keys = new ArrayList<>(spendLimits.size());
+        String[] args = new String[1 + spendLimits.size() * 3];
+        args[0] = "0";
+        for (int i = 0; i < spendLimits.size(); i++) {
+            AssistantQuotaProps.Limit l = spendLimits.get(i);
+            keys.add(key(l, userId, provider));
+            args[1 + i * 3] = Long.toString(l.windowSeconds() * 1000);
+            args[2 + i * 3] = Long.toString(l.max());
+            args[3 + i * 3] = Long.toString(micros);
+        }
+        try {
+            redis.execute(SLIDING_WINDOWS, keys, (Object[]) args);
+        } catch (Exception e) {
+            log.warn("assistant_quota_record_failed userId={} provider={} micros={} err={}",
+                userId, provider, micros, e.toString());
+        }
+    }
+
+    static String key(AssistantQuotaProps.Limit limit, long userId, String provider) {
+        return switch (limit.scope()) {
+            case USER -> "llm:quota:" + limit.name() + ":u:" + userId;
+            case PROVIDER -> "llm:quota:" + limit.name() + ":p:" + provider;
+            case GLOBAL -> "llm:quota:" + limit.name() + ":g";
+        };
+    }
+
+    private void remember(String key, long untilMillis) {
+        if (exhaustedUntil.size() >= exhaustedCacheSize) {
+            long now = clock.millis();
+            BoundedMaps.makeRoom(exhaustedUntil, exhaustedCacheSize, u -> u <= now, Long::longValue);
+        }
+        exhaustedUntil.put(key, untilMillis);
+    }
 
-        return n != null && n <= dailyLimit;
+    private static long asLong(Object o) {
+        return o instanceof Number n ? n.longValue() : Long.parseLong(o.toString());
     }
-}
\ No newline at end of file
+}
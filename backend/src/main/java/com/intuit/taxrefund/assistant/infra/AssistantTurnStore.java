@@ -0,0 +1,83 @@
+package com.intuit.taxrefund.assistant.infra;
+
+import com.intuit.taxrefund.assistant.model.ConversationContext;
+import com.intuit.taxrefund.refund.service.RefundService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Batches the Redis I/O of one assistant turn into two pipelined round-trips.
+ *
+ * Before (per turn, excluding the rate-limit filter):
+ *   GET chat:ctx, GET refund:latest, SET chat:ctx
+ *   → 3 round-trips
+ *
+ * After:
+ *   readTurn   : HGETALL chat:fsm | LRANGE chat:hist | GET chat:ctx (legacy)
+ *                | GET refund:latest                                          → 1 round-trip
+ *   commitTurn : one script: HSET/HINCRBY chat:fsm | RPUSH+LTRIM chat:hist
+ *                | EXPIRE, or a full seed when the hash is gone                 → 1 round-trip
+ *
+ * The context layout itself is owned by {@link ConversationStateStore}. LLM quota is not part
+ * of the turn I/O: it is checked and counted atomically by {@link AssistantQuotaService}, only
+ * for turns that actually go to the LLM.
+ */
+@Component
+public class AssistantTurnStore {
+
+    private static final Logger log = LogManager.getLogger(AssistantTurnStore.class);
+
+    private final StringRedisTemplate redis;
+    private final ConversationStateStore stateStore;
+
+    public AssistantTurnStore(StringRedisTemplate redis, ConversationStateStore stateStore) {
+        this.redis = redis;
+        this.stateStore = stateStore;
+    }
+
+    /**
+     * Everything the turn needs from Redis up front.
+     *
+     * @param refundCacheJson raw refund:latest value, null on miss
+     */
+    public record TurnReads(ConversationContext ctx, String refundCacheJson) {}
+
+    public TurnReads readTurn(long userId) {
+        String refundKey = RefundService.latestRefundCacheKey(userId);
+
+        try {
+            // History entries are binary, so results are left as raw bytes (string commands still return String)
+            List<Object> results = redis.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection c = (StringRedisConnection) connection;
+                stateStore.queueReads(c, userId);
+                c.get(refundKey);
+                return null;
+            }, RedisSerializer.byteArray());
+
+            return new TurnReads(
+                stateStore.decode(userId, results.get(0), results.get(1), results.get(2)),
+                (String) results.get(3)
+            );
+        } catch (Exception e) {
+            // Fresh context and refund cache miss
+            log.warn("assistant_turn_read_failed userId={} err={}", userId, e.toString());
+            return new TurnReads(ConversationContext.start(), null);
+        }
+    }
+
+    /** Persist the changes from {@code reads.ctx()} to {@code updated}. */
+    public void commitTurn(long userId, TurnReads reads, ConversationContext updated) {
+        try {
+            stateStore.writeTurn(userId, reads.ctx(), updated);
+        } catch (Exception e) {
+            log.error("assistant_turn_commit_failed userId={} err={}", userId, e.toString());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.intuit.taxrefund.assistant.infra;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.intuit.taxrefund.assistant.model.ConversationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Versioned binary codec for conversation values in Redis: the legacy whole-context blob
+ * and the individual {@link ConversationContext.HistoryEntry} list elements.
+ *
+ * Layout (v1): [0x01][Smile payload]
+ *   - Smile keeps the Jackson data model, so record fields evolve the same way JSON did.
+ *   - Shared property names AND shared string values are back-referenced, which matters
+ *     for history entries that repeat the same markdown labels turn after turn.
+ *
+ * Reading is backward compatible: values written before this codec are plain JSON and
+ * always start with '{' (0x7B), which can never be a valid format byte.
+ */
+@Component
+public class ConversationContextCodec {
+
+    static final byte FORMAT_SMILE_V1 = 0x01;
+    private static final byte LEGACY_JSON_START = '{';
+
+    private final ObjectMapper json;
+    private final ObjectMapper smile;
+
+    public ConversationContextCodec(ObjectMapper om) {
+        this.json = om;
+        SmileFactory factory = SmileFactory.builder()
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build();
+        // Same modules and (de)serialization features as the application mapper
+        this.smile = om.copyWith(factory);
+    }
+
+    public byte[] encode(ConversationContext ctx) throws IOException {
+        return write(ctx);
+    }
+
+    /**
+     * Decode a stored value. Returns null for a missing/empty value so callers can
+     * decide how to start a fresh session.
+     */
+    public ConversationContext decode(byte[] raw) throws IOException {
+        return read(raw, ConversationContext.class);
+    }
+
+    public byte[] encodeEntry(ConversationContext.HistoryEntry entry) throws IOException {
+        return write(entry);
+    }
+
+    public ConversationContext.HistoryEntry decodeEntry(byte[] raw) throws IOException {
+        return read(raw, ConversationContext.HistoryEntry.class);
+    }
+
+    private byte[] write(Object value) throws IOException {
+        byte[] body = smile.writeValueAsBytes(value);
+        byte[] out = new byte[body.length + 1];
+        out[0] = FORMAT_SMILE_V1;
+        System.arraycopy(body, 0, out, 1, body.length);
+        return out;
+    }
+
+    private <T> T read(byte[] raw, Class<T> type) throws IOException {
+        if (raw == null || raw.length == 0) return null;
+
+        byte format = raw[0];
+        if (format == FORMAT_SMILE_V1) {
+            return smile.readValue(raw, 1, raw.length - 1, type);
+        }
+        if (format == LEGACY_JSON_START || Character.isWhitespace(format)) {
+            return json.readValue(raw, type);
+        }
+        throw new IOException("Unknown conversation value format byte=0x" + Integer.toHexString(format & 0xFF));
+    }
+}
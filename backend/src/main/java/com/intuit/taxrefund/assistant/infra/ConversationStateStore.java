@@ -1,21 +1,43 @@
 package com.intuit.taxrefund.assistant.infra;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.assistant.model.AssistantIntent;
 import com.intuit.taxrefund.assistant.model.ConversationContext;
 import com.intuit.taxrefund.assistant.model.ConversationState;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Persists a full {@link ConversationContext} in Redis per user.
+ * Persists a {@link ConversationContext} in Redis per user, split by how it changes:
  *
- * Key  : "chat:ctx:{userId}"
- * Value: JSON-serialised ConversationContext
- * TTL  : 1 hour (reset on every write)
+ * Key  : "chat:fsm:{userId}"  – hash of FSM fields and counters
+ *        (counters move with HINCRBY / reset with HSET, so a turn only touches what changed)
+ * Key  : "chat:hist:{userId}" – list of binary history entries via {@link ConversationContextCodec},
+ *        capped with RPUSH + LTRIM to {@link ConversationContext#MAX_HISTORY}
+ * TTL  : 1 hour on both keys (reset on every write)
+ *
+ * A turn is written by one script, which decides in Redis whether to apply the turn's delta
+ * (the hash exists) or seed the whole context (it does not: a new session, a legacy blob, or
+ * a key that expired since the read). Per-turn writes to an existing hash are O(1) in history
+ * size, and two tabs of the same user committing at once append both of their entries and add
+ * both of their counter increments instead of the last writer replacing the whole context;
+ * two first turns seed once and the second applies its delta on top.
+ *
+ * "chat:ctx:{userId}" is the previous whole-context blob. It is still read when the hash
+ * does not exist yet and removed on the first write; it can go once those keys have expired.
  *
  * Falls back to {@link ConversationContext#start()} on any read error so a
  * corrupt or expired Redis key never crashes the assistant flow.
@@ -26,12 +48,52 @@ public class ConversationStateStore {
     private static final Logger   log = LogManager.getLogger(ConversationStateStore.class);
     private static final Duration TTL = Duration.ofHours(1);
 
-    private final StringRedisTemplate redis;
-    private final ObjectMapper        om;
+    // Hash fields
+    static final String F_STATE            = "state";
+    static final String F_CONFIRMED_STATE  = "confirmedState";
+    static final String F_PENDING_INTENT   = "pendingIntent";
+    static final String F_REPEAT           = "repeatCount";
+    static final String F_TURNS            = "turnCount";
+    static final String F_TROUBLESHOOTING  = "troubleshootingTurns";
+    static final String F_LOW_CONFIDENCE   = "lowConfidenceTurns";
+    static final String F_LAST_CONFIDENCE  = "lastAnswerConfidence";
+
+    // KEYS: chat:fsm, chat:hist, chat:ctx (legacy).
+    // ARGV: TTL seconds, max history, then four counted lists: seed field/value pairs, delta
+    // field/value pairs, fields to increment, fields to delete; then the history entry this
+    // turn appended ('' for none), then the whole history to seed with.
+    private static final DefaultRedisScript<Long> WRITE_TURN = new DefaultRedisScript<>("""
+        local i = 3
+        local function list(width)
+          local n = tonumber(ARGV[i]) * width
+          local t = {unpack(ARGV, i + 1, i + n)}
+          i = i + n + 1
+          return t
+        end
+        local seed, sets, incrs, dels = list(2), list(2), list(1), list(1)
+        local appended = ARGV[i]
+        if redis.call('EXISTS', KEYS[1]) == 0 then
+          redis.call('DEL', KEYS[2], KEYS[3])
+          redis.call('HSET', KEYS[1], unpack(seed))
+          if #ARGV > i then redis.call('RPUSH', KEYS[2], unpack(ARGV, i + 1)) end
+        else
+          if #sets > 0 then redis.call('HSET', KEYS[1], unpack(sets)) end
+          for _, f in ipairs(incrs) do redis.call('HINCRBY', KEYS[1], f, 1) end
+          if #dels > 0 then redis.call('HDEL', KEYS[1], unpack(dels)) end
+          if appended ~= '' then redis.call('RPUSH', KEYS[2], appended) end
+        end
+        redis.call('LTRIM', KEYS[2], -tonumber(ARGV[2]), -1)
+        redis.call('EXPIRE', KEYS[1], ARGV[1])
+        redis.call('EXPIRE', KEYS[2], ARGV[1])
+        return 1
+        """, Long.class);
 
-    public ConversationStateStore(StringRedisTemplate redis, ObjectMapper om) {
+    private final StringRedisTemplate      redis;
+    private final ConversationContextCodec codec;
+
+    public ConversationStateStore(StringRedisTemplate redis, ConversationContextCodec codec) {
         this.redis = redis;
-        this.om    = om;
+        this.codec = codec;
     }
 
     // ── Public API ───────────────────────────────────────────────────────────
@@ -42,11 +104,11 @@ public class ConversationStateStore {
      */
     public ConversationContext get(long userId) {
         try {
-            String json = redis.opsForValue().get(contextKey(userId));
-            if (json == null || json.isBlank()) {
-                return ConversationContext.start();
-            }
-            return om.readValue(json, ConversationContext.class);
+            List<Object> results = redis.executePipelined((RedisCallback<Object>) connection -> {
+                queueReads((StringRedisConnection) connection, userId);
+                return null;
+            }, RedisSerializer.byteArray());
+            return decode(userId, results.get(0), results.get(1), results.get(2));
         } catch (Exception e) {
             log.warn("conversation_ctx_read_failed userId={} err={} – starting fresh", userId, e.toString());
             return ConversationContext.start();
@@ -54,12 +116,18 @@ public class ConversationStateStore {
     }
 
     /**
-     * Persist an updated context, resetting the TTL.
+     * Replace the stored context with {@code ctx}, resetting the TTL.
      */
     public void set(long userId, ConversationContext ctx) {
         try {
-            String json = om.writeValueAsString(ctx);
-            redis.opsForValue().set(contextKey(userId), json, TTL);
+            List<byte[]> entries = encodeHistory(ctx.history());
+            redis.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection c = (StringRedisConnection) connection;
+                c.del(fsmKey(userId), legacyContextKey(userId));
+                c.keyCommands().del(historyKeyBytes(userId));
+                queueSnapshot(c, userId, ctx, entries);
+                return null;
+            });
         } catch (Exception e) {
             log.error("conversation_ctx_write_failed userId={} err={}", userId, e.toString());
         }
@@ -69,7 +137,7 @@ public class ConversationStateStore {
      * Wipe the context entirely (e.g. on logout or explicit session reset).
      */
     public void clear(long userId) {
-        redis.delete(contextKey(userId));
+        redis.delete(List.of(fsmKey(userId), historyKey(userId), legacyContextKey(userId)));
     }
 
     /**
@@ -80,9 +148,219 @@ public class ConversationStateStore {
         return get(userId).state();
     }
 
-    // ── Internal ─────────────────────────────────────────────────────────────
+    // ── Pipeline building blocks (shared with AssistantTurnStore) ────────────
+
+    /**
+     * Queue the three reads that {@link #decode} expects, in order:
+     * HGETALL fsm, LRANGE hist, GET legacy ctx.
+     */
+    void queueReads(StringRedisConnection c, long userId) {
+        c.hGetAll(fsmKey(userId));
+        c.listCommands().lRange(historyKeyBytes(userId), 0, -1);
+        c.stringCommands().get(legacyContextKeyBytes(userId));
+    }
+
+    /**
+     * Decode the results of {@link #queueReads}. Returns a start context when nothing is
+     * stored or the stored value is unreadable.
+     */
+    @SuppressWarnings("unchecked")
+    ConversationContext decode(long userId, Object fsm, Object history, Object legacy) {
+        try {
+            Map<String, String> fields = fsm instanceof Map<?, ?> m ? (Map<String, String>) m : Map.of();
+            if (!fields.isEmpty()) {
+                List<byte[]> raw = history instanceof List<?> l ? (List<byte[]>) l : List.of();
+                return fromFields(fields, decodeHistory(userId, raw));
+            }
+
+            ConversationContext legacyCtx = codec.decode((byte[]) legacy);
+            return legacyCtx == null ? ConversationContext.start() : legacyCtx;
+        } catch (Exception e) {
+            log.warn("conversation_ctx_read_failed userId={} err={} – starting fresh", userId, e.toString());
+            return ConversationContext.start();
+        }
+    }
+
+    /** Encode the history entry appended by this turn, or null when the turn added none. */
+    private byte[] encodeAppended(ConversationContext before, ConversationContext after) throws Exception {
+        if (after.turnCount() <= before.turnCount() || after.history().isEmpty()) return null;
+        return codec.encodeEntry(after.history().get(after.history().size() - 1));
+    }
+
+    private List<byte[]> encodeHistory(List<ConversationContext.HistoryEntry> history) throws Exception {
+        List<byte[]> out = new ArrayList<>(history.size());
+        for (ConversationContext.HistoryEntry e : history) out.add(codec.encodeEntry(e));
+        return out;
+    }
+
+    /**
+     * Write the turn that took {@code before} to {@code after}, in one round trip.
+     *
+     * Both shapes are sent and the script picks one atomically: when the hash exists only the
+     * delta is applied (counters that went up by one are HINCRBY'd, everything else is HSET,
+     * the new history entry is appended); otherwise all of {@code after} is seeded and any
+     * legacy blob removed. Encoding happens before anything is sent, so an encoding failure
+     * never leaves a half-written turn.
+     */
+    void writeTurn(long userId, ConversationContext before, ConversationContext after) throws Exception {
+        Map<String, String> sets = new HashMap<>();
+        List<String> dels = new ArrayList<>(2);
+        List<String> incrs = new ArrayList<>(4);
+        putOrDelete(sets, dels, F_STATE, after.state());
+        putOrDelete(sets, dels, F_CONFIRMED_STATE, after.confirmedState());
+        putOrDelete(sets, dels, F_PENDING_INTENT, after.pendingIntent());
+        putOrDelete(sets, dels, F_LAST_CONFIDENCE, after.lastAnswerConfidence());
+        incrementOrSet(incrs, sets, F_REPEAT, before.repeatCount(), after.repeatCount());
+        incrementOrSet(incrs, sets, F_TURNS, before.turnCount(), after.turnCount());
+        incrementOrSet(incrs, sets, F_TROUBLESHOOTING, before.troubleshootingTurns(), after.troubleshootingTurns());
+        incrementOrSet(incrs, sets, F_LOW_CONFIDENCE, before.lowConfidenceTurns(), after.lowConfidenceTurns());
+
+        byte[] appended = encodeAppended(before, after);
+
+        List<byte[]> args = new ArrayList<>();
+        args.add(utf8(Long.toString(TTL.toSeconds())));
+        args.add(utf8(Integer.toString(ConversationContext.MAX_HISTORY)));
+        addPairs(args, snapshotFields(after));
+        addPairs(args, sets);
+        addFields(args, incrs);
+        addFields(args, dels);
+        args.add(appended == null ? new byte[0] : appended);
+        args.addAll(encodeHistory(after.history()));
+
+        redis.execute(WRITE_TURN, RedisSerializer.byteArray(), new GenericToStringSerializer<>(Long.class),
+            List.of(fsmKey(userId), historyKey(userId), legacyContextKey(userId)), args.toArray());
+    }
+
+    private static void addPairs(List<byte[]> args, Map<String, String> pairs) {
+        args.add(utf8(Integer.toString(pairs.size())));
+        pairs.forEach((k, v) -> {
+            args.add(utf8(k));
+            args.add(utf8(v));
+        });
+    }
+
+    private static void addFields(List<byte[]> args, List<String> fields) {
+        args.add(utf8(Integer.toString(fields.size())));
+        for (String f : fields) args.add(utf8(f));
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void queueSnapshot(StringRedisConnection c, long userId, ConversationContext ctx, List<byte[]> history) {
+        c.hMSet(fsmKey(userId), snapshotFields(ctx));
 
-    private static String contextKey(long userId) {
+        if (!history.isEmpty()) {
+            byte[] histKey = historyKeyBytes(userId);
+            c.listCommands().rPush(histKey, history.toArray(byte[][]::new));
+            c.listCommands().lTrim(histKey, -ConversationContext.MAX_HISTORY, -1);
+        }
+        queueExpire(c, userId);
+    }
+
+    private static Map<String, String> snapshotFields(ConversationContext ctx) {
+        Map<String, String> fields = new HashMap<>();
+        List<String> unused = new ArrayList<>(2);
+        putOrDelete(fields, unused, F_STATE, ctx.state());
+        putOrDelete(fields, unused, F_CONFIRMED_STATE, ctx.confirmedState());
+        putOrDelete(fields, unused, F_PENDING_INTENT, ctx.pendingIntent());
+        putOrDelete(fields, unused, F_LAST_CONFIDENCE, ctx.lastAnswerConfidence());
+        fields.put(F_REPEAT, Integer.toString(ctx.repeatCount()));
+        fields.put(F_TURNS, Integer.toString(ctx.turnCount()));
+        fields.put(F_TROUBLESHOOTING, Integer.toString(ctx.troubleshootingTurns()));
+        fields.put(F_LOW_CONFIDENCE, Integer.toString(ctx.lowConfidenceTurns()));
+        return fields;
+    }
+
+    private static void queueExpire(StringRedisConnection c, long userId) {
+        c.expire(fsmKey(userId), TTL.toSeconds());
+        c.keyCommands().expire(historyKeyBytes(userId), TTL.toSeconds());
+    }
+
+    private static void putOrDelete(Map<String, String> sets, List<String> dels, String field, Object value) {
+        if (value == null) dels.add(field);
+        else sets.put(field, value instanceof Enum<?> e ? e.name() : value.toString());
+    }
+
+    private static void incrementOrSet(
+        List<String> incrs, Map<String, String> sets, String field, int before, int after
+    ) {
+        if (after == before + 1) incrs.add(field);
+        else sets.put(field, Integer.toString(after));
+    }
+
+    // ── Decoding ─────────────────────────────────────────────────────────────
+
+    private ConversationContext fromFields(Map<String, String> f, List<ConversationContext.HistoryEntry> history) {
+        return new ConversationContext(
+            enumOr(ConversationState.class, f.get(F_STATE), ConversationState.START),
+            enumOr(ConversationState.class, f.get(F_CONFIRMED_STATE), ConversationState.START),
+            enumOr(AssistantIntent.class, f.get(F_PENDING_INTENT), null),
+            intOrZero(f.get(F_REPEAT)),
+            intOrZero(f.get(F_TURNS)),
+            intOrZero(f.get(F_TROUBLESHOOTING)),
+            intOrZero(f.get(F_LOW_CONFIDENCE)),
+            f.get(F_LAST_CONFIDENCE),
+            history
+        );
+    }
+
+    private List<ConversationContext.HistoryEntry> decodeHistory(long userId, List<byte[]> raw) {
+        List<ConversationContext.HistoryEntry> out = new ArrayList<>(raw.size());
+        for (byte[] item : raw) {
+            try {
+                ConversationContext.HistoryEntry e = codec.decodeEntry(item);
+                if (e != null) out.add(e);
+            } catch (Exception e) {
+                // One bad entry only costs that turn of history
+                log.warn("conversation_history_entry_unreadable userId={} err={}", userId, e.toString());
+            }
+        }
+        return List.copyOf(out);
+    }
+
+    private static <E extends Enum<E>> E enumOr(Class<E> type, String raw, E fallback) {
+        if (raw == null) return fallback;
+        try {
+            return Enum.valueOf(type, raw);
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
+    private static int intOrZero(String raw) {
+        if (raw == null) return 0;
+        try {
+            return Integer.parseInt(raw);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // ── Keys ─────────────────────────────────────────────────────────────────
+
+    public static String fsmKey(long userId) {
+        return "chat:fsm:" + userId;
+    }
+
+    public static String historyKey(long userId) {
+        return "chat:hist:" + userId;
+    }
+
+    static byte[] historyKeyBytes(long userId) {
+        return historyKey(userId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String legacyContextKey(long userId) {
         return "chat:ctx:" + userId;
     }
+
+    static byte[] legacyContextKeyBytes(long userId) {
+        return legacyContextKey(userId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static Duration ttl() {
+        return TTL;
+    }
 }
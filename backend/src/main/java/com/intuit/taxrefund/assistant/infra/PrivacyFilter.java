@@ -5,11 +5,21 @@ import com.intuit.taxrefund.refund.controller.dto.RefundStatusResponse;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Component
 public class PrivacyFilter {
+
+    private final Clock clock;
+
+    public PrivacyFilter(Clock clock) {
+        this.clock = clock;
+    }
+
     /**
      * Build authoritative data allowed to be sent to external LLM providers.
      *
@@ -45,6 +55,35 @@ public class PrivacyFilter {
         return root;
     }
 
+    /**
+     * The same reduction, coarsened so it is shared by many users: the cache-key inputs of
+     * {@link AssistantAnswerCache}. Exact timestamps are dropped and the ETA becomes a
+     * days-from-now bucket; nothing here identifies a user.
+     */
+    public String buildSharedAnswerKeyInputs(RefundStatusResponse refund, AssistantPlan plan) {
+        StringBuilder sb = new StringBuilder(64);
+        if (plan.includeRefundStatus()) {
+            sb.append("status=").append(refund.status())
+              .append("|year=").append(refund.taxYear())
+              .append("|amount=").append(bucketAmount(refund.expectedAmount()));
+        }
+        if (plan.includeEta()) {
+            sb.append("|eta=").append(bucketEta(refund.availableAtEstimated()));
+        }
+        return sb.toString();
+    }
+
+    private String bucketEta(Instant eta) {
+        if (eta == null) return "none";
+        long days = Duration.between(Instant.now(clock), eta).toDays();
+        if (days < 0) return "past";
+        if (days <= 3) return "0-3d";
+        if (days <= 7) return "4-7d";
+        if (days <= 14) return "8-14d";
+        if (days <= 21) return "15-21d";
+        return ">21d";
+    }
+
     private static String bucketAmount(BigDecimal amt) {
         if (amt == null) return "unknown";
         double a = amt.doubleValue();
@@ -11,6 +11,8 @@ package com.intuit.taxrefund.assistant.model;
  *   offTopic    – user's message has no recognisable refund-domain intent;
  *                 AssistantService must return a clarification response directly
  *                 without calling the LLM and without changing any state
+ *   templateAnswer – simple, high-confidence turn that the refund data answers on its
+ *                 own; AssistantService renders a template instead of calling the LLM
  */
 public record AssistantPlan(
     ConversationState nextState,
@@ -20,10 +22,24 @@ public record AssistantPlan(
     boolean escalate,
     boolean repeatHint,
     boolean stateGated,
-    boolean offTopic
+    boolean offTopic,
+    boolean templateAnswer
 ) {
     // ── Convenience constructors (most callers don't need every flag) ─────────
 
+    /** Every flag except templateAnswer, which only the planner's final step sets. */
+    public AssistantPlan(ConversationState nextState,
+                         boolean includeRefundStatus,
+                         boolean includeEta,
+                         boolean includePolicySnippets,
+                         boolean escalate,
+                         boolean repeatHint,
+                         boolean stateGated,
+                         boolean offTopic) {
+        this(nextState, includeRefundStatus, includeEta, includePolicySnippets,
+            escalate, repeatHint, stateGated, offTopic, false);
+    }
+
     /** Normal plan – no special flags. */
     public AssistantPlan(ConversationState nextState,
                          boolean includeRefundStatus,
@@ -43,6 +59,12 @@ public record AssistantPlan(
             escalate, false, false, false);
     }
 
+    /** Same plan, answered from a template. */
+    public AssistantPlan withTemplateAnswer() {
+        return new AssistantPlan(nextState, includeRefundStatus, includeEta, includePolicySnippets,
+            escalate, repeatHint, stateGated, offTopic, true);
+    }
+
     // ── Static factories for clarity at call sites ────────────────────────────
 
     /** Off-topic plan: stay in confirmedState, no LLM call. */
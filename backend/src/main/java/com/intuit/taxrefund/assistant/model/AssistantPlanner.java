@@ -1,5 +1,6 @@
 package com.intuit.taxrefund.assistant.model;
 
+import com.intuit.taxrefund.assistant.infra.AssistantProps;
 import org.springframework.stereotype.Component;
 
 /**
@@ -34,6 +35,12 @@ import org.springframework.stereotype.Component;
  * stable state: the only transitions *out* of it are explicit high-confidence
  * WHY_DELAYED/NEXT_STEPS (→ TROUBLESHOOTING) or REFUND_STATUS (→ PROVIDED_STATUS).
  * Anything else stays at PROVIDED_ETA with stateGated=true.
+ *
+ * ── Template fast path ───────────────────────────────────────────────────────
+ * A confident, ungated REFUND_STATUS (or REFUND_ETA once the ETA is known or the
+ * refund is AVAILABLE) is just a formatted view of the refund data.  Those plans are
+ * marked templateAnswer so the LLM is only used for troubleshooting and ambiguous turns.
+ * Toggle: app.assistant.templateAnswersEnabled.
  */
 @Component
 public class AssistantPlanner {
@@ -58,10 +65,30 @@ public class AssistantPlanner {
      */
     private static final double ESCALATING_CONFIDENCE = 0.75;
 
+    /**
+     * Minimum confidence for answering from a template.  Higher than MIN_CONFIDENCE:
+     * a template answers exactly the classified question and cannot adapt to a misread.
+     */
+    private static final double TEMPLATE_CONFIDENCE = 0.80;
+
+    private final AssistantProps props;
+
+    public AssistantPlanner(AssistantProps props) {
+        this.props = props;
+    }
+
     // ── Public API ────────────────────────────────────────────────────────────
 
     public AssistantPlan plan(ConversationContext ctx, AssistantIntent intent,
                               double confidence, String refundStatus) {
+        return plan(ctx, intent, confidence, refundStatus, false);
+    }
+
+    /**
+     * @param etaKnown whether the refund data carries an estimated availability date
+     */
+    public AssistantPlan plan(ConversationContext ctx, AssistantIntent intent,
+                              double confidence, String refundStatus, boolean etaKnown) {
 
         ConversationContext safeCtx = (ctx == null) ? ConversationContext.start() : ctx;
         ConversationState   cur     = safeCtx.state();
@@ -130,9 +157,25 @@ public class AssistantPlanner {
                 false);
         }
 
+        // ── 6. Template fast path for simple, confident, ungated turns ────────
+        if (templateAnswerable(base, eff, confidence, isAvailable, etaKnown)) {
+            return base.withTemplateAnswer();
+        }
+
         return base;
     }
 
+    private boolean templateAnswerable(AssistantPlan base, AssistantIntent eff, double confidence,
+                                       boolean isAvailable, boolean etaKnown) {
+        if (!props.templateAnswersEnabled()) return false;
+        if (confidence < TEMPLATE_CONFIDENCE || base.stateGated() || base.escalate()) return false;
+        return switch (eff) {
+            case REFUND_STATUS -> true;
+            case REFUND_ETA    -> etaKnown || isAvailable;
+            default            -> false;
+        };
+    }
+
     // ── Routing ───────────────────────────────────────────────────────────────
 
     /**
@@ -1,6 +1,9 @@
 package com.intuit.taxrefund.assistant.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -124,11 +127,12 @@ public record ConversationContext(
         int newLowConfTurns = isFrustrationSignal ? lowConfidenceTurns + 1 : 0;
 
         // ── History window ───────────────────────────────────────────────────
-        List<HistoryEntry> newHistory = new ArrayList<>(history);
+        // Sized once and filled with only the entries that survive the window.
+        // In Redis the window is a capped list, so only the new entry is written.
+        int keep = Math.min(history.size(), MAX_HISTORY - 1);
+        List<HistoryEntry> newHistory = new ArrayList<>(keep + 1);
+        newHistory.addAll(history.subList(history.size() - keep, history.size()));
         newHistory.add(new HistoryEntry(userQuestion, botAnswer));
-        if (newHistory.size() > MAX_HISTORY) {
-            newHistory = newHistory.subList(newHistory.size() - MAX_HISTORY, newHistory.size());
-        }
 
         return new ConversationContext(
             newState,
@@ -139,7 +143,7 @@ public record ConversationContext(
             newTroubleshootingTurns,
             newLowConfTurns,
             llmAnswerConfidence,
-            List.copyOf(newHistory)
+            Collections.unmodifiableList(newHistory)
         );
     }
 
@@ -152,6 +156,7 @@ public record ConversationContext(
     }
 
     /** True when the user has repeated the same question enough times. */
+    @JsonIgnore // derived; keep it out of the persisted context
     public boolean isRepeating() {
         return repeatCount >= REPEAT_THRESHOLD;
     }
@@ -1,22 +1,36 @@
 package com.intuit.taxrefund.assistant.model;
 
 import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse.Citation;
+import com.intuit.taxrefund.assistant.policy.PolicySnippetIndex;
 import com.intuit.taxrefund.assistant.policy.PolicySnippetRecord;
 import com.intuit.taxrefund.assistant.policy.PolicySnippetRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Component;
 
 import java.time.Clock;
 import java.time.Instant;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 
+/**
+ * Policy snippets for a refund status, served from a {@link PolicySnippetIndex}.
+ *
+ * The index is built from the repository's full snippet set and reused until the set's
+ * version changes or the clock reaches the next effectiveFrom/effectiveTo boundary, so a
+ * lookup is two map reads and allocates nothing. Concurrent rebuilds after a boundary are
+ * harmless: they produce equal indexes and the last write wins.
+ */
 @Component
 public class PolicySnippets {
 
+    private static final Logger log = LogManager.getLogger(PolicySnippets.class);
+
     private final PolicySnippetRepository repository;
     private final Clock clock;
 
+    private volatile PolicySnippetIndex index;
+
     public PolicySnippets(PolicySnippetRepository repository, Clock clock) {
         this.repository = repository;
         this.clock = clock;
@@ -37,19 +51,19 @@ public class PolicySnippets {
      * Can later be used to return sourceUrl/title/version to frontend.
      */
     public List<PolicySnippetRecord> forStatusDetailed(String refundStatus, String locale) {
-        String normalizedStatus = normalizeStatus(refundStatus);
-        String normalizedLocale = normalizeLocale(locale);
-        Instant now = Instant.now(clock);
+        return index().lookup(normalizeLocale(locale), normalizeStatus(refundStatus));
+    }
 
-        return repository.findCandidates(normalizedLocale).stream()
-            .filter(p -> p.isActiveAt(now))
-            .filter(p -> p.matchesLocale(normalizedLocale))
-            .filter(p -> p.matchesStatus(normalizedStatus))
-            .sorted(Comparator
-                .comparingInt(PolicySnippetRecord::priority)
-                .thenComparing(PolicySnippetRecord::id))
-            .limit(5) // keep prompt payload tight
-            .toList();
+    private PolicySnippetIndex index() {
+        long now = clock.millis();
+        String version = repository.version();
+        PolicySnippetIndex current = index;
+        if (current != null && current.covers(version, now)) return current;
+
+        PolicySnippetIndex next = PolicySnippetIndex.build(version, repository.findAll(), Instant.ofEpochMilli(now));
+        index = next;
+        log.info("policy_snippet_index_built version={} validUntil={}", version, next.validUntil());
+        return next;
     }
 
     private static String normalizeStatus(String s) {
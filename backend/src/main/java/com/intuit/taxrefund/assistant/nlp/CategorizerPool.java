@@ -0,0 +1,82 @@
+package com.intuit.taxrefund.assistant.nlp;
+
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Categorizers over one intent model.
+ *
+ * DocumentCategorizerME is not thread-safe, while the DoccatModel behind it is. Each
+ * prediction borrows an instance and returns it afterwards; when none is idle a new one is
+ * created from the shared model (cheap), and at most {@code maxIdle} are kept. A pool rather
+ * than a ThreadLocal because classification runs on short-lived virtual threads, where a
+ * per-thread instance would never be reused. borrow/release never block or take a lock.
+ */
+final class CategorizerPool {
+
+    /** Best category and its probability. */
+    record Prediction(String category, double confidence) {}
+
+    private final DoccatModel model;
+    private final int maxIdle;
+    private final ConcurrentLinkedQueue<DocumentCategorizerME> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    CategorizerPool(DoccatModel model, int maxIdle) {
+        this.model = model;
+        this.maxIdle = maxIdle;
+    }
+
+    Prediction predict(String[] tokens) {
+        DocumentCategorizerME c = borrow();
+        try {
+            return predict(c, tokens);
+        } finally {
+            release(c);
+        }
+    }
+
+    /** All predictions with one borrowed categorizer; results are in input order. */
+    List<Prediction> predictAll(List<String[]> batch) {
+        List<Prediction> out = new ArrayList<>(batch.size());
+        DocumentCategorizerME c = borrow();
+        try {
+            for (String[] tokens : batch) out.add(predict(c, tokens));
+        } finally {
+            release(c);
+        }
+        return out;
+    }
+
+    private static Prediction predict(DocumentCategorizerME c, String[] tokens) {
+        double[] outcomes = c.categorize(tokens);
+        if (outcomes.length == 0) return new Prediction(null, 0.0);
+
+        int best = 0;
+        for (int i = 1; i < outcomes.length; i++) {
+            if (outcomes[i] > outcomes[best]) best = i;
+        }
+        return new Prediction(c.getCategory(best), outcomes[best]);
+    }
+
+    private DocumentCategorizerME borrow() {
+        DocumentCategorizerME c = idle.poll();
+        if (c == null) return new DocumentCategorizerME(model);
+        idleCount.decrementAndGet();
+        return c;
+    }
+
+    private void release(DocumentCategorizerME c) {
+        // Over the cap the instance is simply dropped; the count is approximate under races
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(c);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+}
@@ -2,8 +2,18 @@ package com.intuit.taxrefund.assistant.nlp;
 
 import com.intuit.taxrefund.assistant.model.AssistantIntent;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface IntentClassifier {
     IntentResult classify(String text);
 
+    /** Classifies each text; results are in input order. */
+    default List<IntentResult> classifyBatch(List<String> texts) {
+        List<IntentResult> out = new ArrayList<>(texts.size());
+        for (String text : texts) out.add(classify(text));
+        return out;
+    }
+
     record IntentResult(AssistantIntent intent, double confidence, String model) {}
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.intuit.taxrefund.assistant.nlp;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.assistant.intent-model")
+public record IntentModelProps(
+    String dir,                 // directory of intent-model-{version}.bin files; blank → bundled model only
+    String activeVersion,       // blank → highest version in dir
+    String candidateVersion,    // blank → no shadow evaluation
+    double shadowSampleRate,    // fraction of classifications also run on the candidate, 0..1
+    int shadowMaxInFlight       // 0 → 16; shadow work beyond this is dropped, never queued
+) {}
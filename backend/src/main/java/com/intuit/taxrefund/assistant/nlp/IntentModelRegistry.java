@@ -0,0 +1,257 @@
+package com.intuit.taxrefund.assistant.nlp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import opennlp.tools.doccat.DoccatModel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Versioned intent models, loaded from app.assistant.intent-model.dir.
+ *
+ * Layout: {dir}/intent-model-{version}.bin. The active model is activeVersion, or the highest
+ * version present (numeric parts compared as numbers, so 10 > 9). Without a directory, or
+ * while it holds no loadable model, the model bundled in the jar is used as version "bundled".
+ *
+ * The directory is rescanned every app.assistant.intent-model.reload-interval-ms. A new or
+ * changed file is loaded off the request path and published with a single volatile write, so
+ * requests never wait for a load and always see one complete model. A file that fails to
+ * load is logged and the current model stays active.
+ *
+ * Shadow evaluation: with candidateVersion set, shadowSampleRate of classifications are also
+ * run on the candidate on a virtual thread, after the caller already has its answer. At most
+ * shadowMaxInFlight run at once; beyond that samples are dropped rather than queued.
+ *
+ * Metrics:
+ *   assistant.intent.classify{role=active|candidate,version}       timer
+ *   assistant.intent.shadow{active,candidate,result=agree|disagree|dropped}  counter
+ */
+@Component
+public class IntentModelRegistry {
+
+    private static final Logger log = LogManager.getLogger(IntentModelRegistry.class);
+
+    static final String BUNDLED = "bundled";
+    private static final Pattern FILE_NAME = Pattern.compile("intent-model-(.+)\\.bin");
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int DEFAULT_SHADOW_MAX_IN_FLIGHT = 16;
+
+    /** A loaded model; {@code source} and {@code modified} are null for the bundled one. */
+    record LoadedModel(String version, Path source, FileTime modified, CategorizerPool pool) {}
+
+    private final IntentModelProps props;
+    private final MeterRegistry meters;
+    private final Resource bundled;
+    private final ExecutorService shadowExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore shadowPermits;
+
+    private volatile LoadedModel active;
+    private volatile LoadedModel candidate;
+
+    public IntentModelRegistry(
+        IntentModelProps props,
+        MeterRegistry meters,
+        @Value("classpath:/nlp/intent-model.bin") Resource bundled
+    ) {
+        this.props = props;
+        this.meters = meters;
+        this.bundled = bundled;
+        this.shadowPermits = new Semaphore(
+            props.shadowMaxInFlight() > 0 ? props.shadowMaxInFlight() : DEFAULT_SHADOW_MAX_IN_FLIGHT);
+    }
+
+    @PostConstruct
+    void init() {
+        reload();
+        if (active == null) {
+            try (InputStream in = bundled.getInputStream()) {
+                active = new LoadedModel(BUNDLED, null, null, new CategorizerPool(new DoccatModel(in), POOL_SIZE));
+                log.info("intent_model_activated version={} source=classpath", BUNDLED);
+            } catch (Exception e) {
+                log.warn("intent_model_bundled_load_failed err={}", e.toString());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        shadowExecutor.shutdownNow();
+    }
+
+    /** Current model, or null when none could be loaded. */
+    LoadedModel active() {
+        return active;
+    }
+
+    LoadedModel candidate() {
+        return candidate;
+    }
+
+    /** Rescans the model directory and swaps in new or changed models. */
+    @Scheduled(fixedDelayString = "${app.assistant.intent-model.reload-interval-ms:60000}")
+    public void reload() {
+        if (props.dir() == null || props.dir().isBlank()) return;
+
+        List<Path> files;
+        try {
+            files = listModels(Path.of(props.dir()));
+        } catch (IOException e) {
+            log.warn("intent_model_dir_unreadable dir={} err={}", props.dir(), e.toString());
+            return;
+        }
+
+        Path activeFile = pick(files, props.activeVersion());
+        if (activeFile != null) {
+            LoadedModel next = loadIfChanged(activeFile, active);
+            if (next != active && next != null) {
+                String previous = active == null ? "none" : active.version();
+                active = next;
+                log.info("intent_model_activated version={} previous={}", next.version(), previous);
+            }
+        }
+
+        String wanted = props.candidateVersion();
+        if (wanted == null || wanted.isBlank()) {
+            candidate = null;
+            return;
+        }
+        Path candidateFile = pick(files, wanted);
+        if (candidateFile == null) {
+            log.warn("intent_model_candidate_missing version={}", wanted);
+            candidate = null;
+            return;
+        }
+        LoadedModel next = loadIfChanged(candidateFile, candidate);
+        if (next != candidate && next != null) {
+            candidate = next;
+            log.info("intent_model_candidate_loaded version={} sampleRate={}", next.version(), props.shadowSampleRate());
+        }
+    }
+
+    void recordLatency(LoadedModel model, String role, long nanos) {
+        Timer.builder("assistant.intent.classify")
+            .tags("role", role, "version", model.version())
+            .register(meters)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Samples this classification for the candidate. Returns immediately; the comparison
+     * with {@code activeCategory} runs in the background.
+     */
+    void shadow(LoadedModel activeModel, String[] tokens, String activeCategory) {
+        LoadedModel c = candidate;
+        if (c == null || props.shadowSampleRate() <= 0
+            || ThreadLocalRandom.current().nextDouble() >= props.shadowSampleRate()) {
+            return;
+        }
+        if (!shadowPermits.tryAcquire()) {
+            shadowCounter(activeModel, c, "dropped").increment();
+            return;
+        }
+        try {
+            shadowExecutor.execute(() -> {
+                try {
+                    long start = System.nanoTime();
+                    CategorizerPool.Prediction p = c.pool().predict(tokens);
+                    recordLatency(c, "candidate", System.nanoTime() - start);
+                    boolean agree = Objects.equals(p.category(), activeCategory);
+                    shadowCounter(activeModel, c, agree ? "agree" : "disagree").increment();
+                } catch (Exception e) {
+                    log.warn("intent_shadow_failed candidate={} err={}", c.version(), e.toString());
+                } finally {
+                    shadowPermits.release();
+                }
+            });
+        } catch (Exception e) {
+            shadowPermits.release(); // executor shut down
+        }
+    }
+
+    private Counter shadowCounter(LoadedModel a, LoadedModel c, String result) {
+        return meters.counter("assistant.intent.shadow",
+            "active", a.version(), "candidate", c.version(), "result", result);
+    }
+
+    private LoadedModel loadIfChanged(Path file, LoadedModel current) {
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+            if (current != null && file.equals(current.source()) && modified.equals(current.modified())) {
+                return current;
+            }
+            try (InputStream in = Files.newInputStream(file)) {
+                DoccatModel model = new DoccatModel(in);
+                return new LoadedModel(versionOf(file), file, modified, new CategorizerPool(model, POOL_SIZE));
+            }
+        } catch (Exception e) {
+            log.warn("intent_model_load_failed file={} err={}", file, e.toString());
+            return null;
+        }
+    }
+
+    private static List<Path> listModels(Path dir) throws IOException {
+        List<Path> out = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return out;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "intent-model-*.bin")) {
+            for (Path p : ds) out.add(p);
+        }
+        return out;
+    }
+
+    private static Path pick(List<Path> files, String version) {
+        if (version != null && !version.isBlank()) {
+            return files.stream().filter(f -> version.equals(versionOf(f))).findFirst().orElse(null);
+        }
+        return files.stream().max(Comparator.comparing(IntentModelRegistry::versionOf, IntentModelRegistry::compareVersions))
+            .orElse(null);
+    }
+
+    static String versionOf(Path file) {
+        Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+        return m.matches() ? m.group(1) : file.getFileName().toString();
+    }
+
+    /** Compares numeric runs as numbers ("v10" > "v9", "2026.3" < "2026.12"), the rest as text. */
+    static int compareVersions(String a, String b) {
+        Matcher ma = NUMBER.matcher(a);
+        Matcher mb = NUMBER.matcher(b);
+        int ia = 0;
+        int ib = 0;
+        while (ma.find(ia) && mb.find(ib)) {
+            int prefix = a.substring(ia, ma.start()).compareTo(b.substring(ib, mb.start()));
+            if (prefix != 0) return prefix;
+            int num = new BigInteger(ma.group()).compareTo(new BigInteger(mb.group()));
+            if (num != 0) return num;
+            ia = ma.end();
+            ib = mb.end();
+        }
+        return a.substring(ia).compareTo(b.substring(ib));
+    }
+}
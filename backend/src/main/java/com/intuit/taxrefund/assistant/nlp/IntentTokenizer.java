@@ -0,0 +1,43 @@
+package com.intuit.taxrefund.assistant.nlp;
+
+import java.util.Arrays;
+
+/**
+ * Normalization and tokenization for the intent model in one pass over the input.
+ *
+ * Equivalent to lower-casing, replacing every character outside [a-z0-9] with a space,
+ * collapsing whitespace and splitting on it, but without the two regex passes, the
+ * intermediate strings and the split's Pattern. Blank input yields a single empty token,
+ * as {@code "".split(...)} did.
+ */
+final class IntentTokenizer {
+
+    private static final String[] EMPTY = { "" };
+
+    private IntentTokenizer() {}
+
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) return EMPTY;
+
+        int len = text.length();
+        // Typical questions have fewer than 16 words; longer input grows the array
+        String[] tokens = new String[Math.min(16, len / 2 + 1)];
+        int count = 0;
+        char[] buf = new char[len];
+        int tokenLen = 0;
+
+        for (int i = 0; i <= len; i++) {
+            char c = i < len ? Character.toLowerCase(text.charAt(i)) : ' ';
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                buf[tokenLen++] = c;
+            } else if (tokenLen > 0) {
+                if (count == tokens.length) tokens = Arrays.copyOf(tokens, count * 2);
+                tokens[count++] = new String(buf, 0, tokenLen);
+                tokenLen = 0;
+            }
+        }
+
+        if (count == 0) return EMPTY;
+        return count == tokens.length ? tokens : Arrays.copyOf(tokens, count);
+    }
+}
@@ -0,0 +1,182 @@
+package com.intuit.taxrefund.assistant.nlp;
+
+import com.intuit.taxrefund.assistant.model.AssistantIntent;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Aho-Corasick automaton over a keyword → intent table. {@link #scan} reads the input once,
+ * whatever the number of keywords, and returns the summed weight of the matched keywords
+ * per intent.
+ *
+ * A keyword only matches at the start of a word ("eta" matches "eta?" but not "details"),
+ * and counts once per text however often it occurs. Keywords are lower-case ASCII and match
+ * either case of the input; any other input character simply matches nothing.
+ *
+ * Table format, one keyword per line, '#' starts a comment. The order intents first
+ * appear in is their priority when scores tie:
+ * <pre>
+ *   INTENT &lt;tab&gt; keyword [&lt;tab&gt; weight]      weight defaults to 1.0
+ * </pre>
+ * Immutable after construction; safe to share between threads.
+ */
+final class KeywordAutomaton {
+
+    record Keyword(AssistantIntent intent, String text, double weight) {}
+
+    private static final int ASCII = 128;
+
+    private final Keyword[] keywords;
+    private final AssistantIntent[] intents;    // distinct, in order of first appearance
+    private final int[] charIndex;      // ASCII char (either case) -> alphabet index, -1 when unused
+    private final int alphabet;
+    private final int[] delta;          // state * alphabet + index -> next state (goto + failure folded in)
+    private final int[][] outputs;      // keywords ending in each state, including via suffix links
+
+    KeywordAutomaton(List<Keyword> table) {
+        if (table.isEmpty()) throw new IllegalArgumentException("keyword table is empty");
+        for (Keyword k : table) {
+            if (!k.text().equals(k.text().toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("keyword must be lower case: " + k.text());
+            }
+        }
+        this.keywords = table.toArray(Keyword[]::new);
+        this.intents = table.stream().map(Keyword::intent).distinct().toArray(AssistantIntent[]::new);
+
+        charIndex = new int[ASCII];
+        Arrays.fill(charIndex, -1);
+        int a = 0;
+        for (Keyword k : keywords) {
+            for (int i = 0; i < k.text().length(); i++) {
+                char c = k.text().charAt(i);
+                if (c >= ASCII) throw new IllegalArgumentException("non-ASCII keyword: " + k.text());
+                if (charIndex[c] < 0) charIndex[c] = a++;
+            }
+        }
+        alphabet = a;
+        for (char c = 'a'; c <= 'z'; c++) charIndex[Character.toUpperCase(c)] = charIndex[c];
+
+        // trie
+        int maxStates = 1;
+        for (Keyword k : keywords) maxStates += k.text().length();
+        int[] trie = new int[maxStates * alphabet];
+        Arrays.fill(trie, -1);
+        List<List<Integer>> out = new ArrayList<>();
+        out.add(new ArrayList<>());
+        int states = 1;
+        for (int id = 0; id < keywords.length; id++) {
+            int s = 0;
+            String text = keywords[id].text();
+            for (int i = 0; i < text.length(); i++) {
+                int slot = s * alphabet + charIndex[text.charAt(i)];
+                if (trie[slot] < 0) {
+                    trie[slot] = states++;
+                    out.add(new ArrayList<>());
+                }
+                s = trie[slot];
+            }
+            out.get(s).add(id);
+        }
+
+        // breadth-first: failure links, folded into a full transition table
+        delta = Arrays.copyOf(trie, states * alphabet);
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < alphabet; c++) {
+            int next = delta[c];
+            if (next < 0) {
+                delta[c] = 0;
+            } else {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            out.get(s).addAll(out.get(fail[s]));
+            for (int c = 0; c < alphabet; c++) {
+                int slot = s * alphabet + c;
+                int next = delta[slot];
+                if (next < 0) {
+                    delta[slot] = delta[fail[s] * alphabet + c];
+                } else {
+                    fail[next] = delta[fail[s] * alphabet + c];
+                    queue.add(next);
+                }
+            }
+        }
+
+        outputs = new int[states][];
+        for (int s = 0; s < states; s++) {
+            outputs[s] = out.get(s).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /** Parses the table format described on the class. */
+    static KeywordAutomaton parse(BufferedReader reader) throws IOException {
+        List<Keyword> table = new ArrayList<>();
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            if (line.isBlank()) continue;
+
+            String[] cols = line.split("\t");
+            if (cols.length < 2 || cols.length > 3 || cols[1].isBlank()) {
+                throw new IllegalArgumentException("line " + lineNo + ": expected INTENT<tab>keyword[<tab>weight]");
+            }
+            AssistantIntent intent = AssistantIntent.valueOf(cols[0].trim());
+            double weight = cols.length == 3 ? Double.parseDouble(cols[2].trim()) : 1.0;
+            if (!(weight > 0)) throw new IllegalArgumentException("line " + lineNo + ": weight must be > 0");
+            table.add(new Keyword(intent, cols[1].trim().toLowerCase(Locale.ROOT), weight));
+        }
+        return new KeywordAutomaton(table);
+    }
+
+    /** Summed keyword weight per intent, indexed by {@link AssistantIntent#ordinal()}. */
+    double[] scan(String text) {
+        double[] scores = new double[AssistantIntent.values().length];
+        if (text == null || text.isEmpty()) return scores;
+
+        // tables are small; a bitmask covers them without allocating
+        long seenMask = 0;
+        boolean[] seen = keywords.length > Long.SIZE ? new boolean[keywords.length] : null;
+        int s = 0;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            char c = text.charAt(i);
+            int idx = c < ASCII ? charIndex[c] : -1;
+            if (idx < 0) {
+                s = 0;
+                continue;
+            }
+            s = delta[s * alphabet + idx];
+            for (int id : outputs[s]) {
+                if (seen == null ? (seenMask & (1L << id)) != 0 : seen[id]) continue;
+                Keyword k = keywords[id];
+                int start = i - k.text().length() + 1;
+                if (start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))) continue;
+                if (seen == null) seenMask |= 1L << id;
+                else seen[id] = true;
+                scores[k.intent().ordinal()] += k.weight();
+            }
+        }
+        return scores;
+    }
+
+    /** Intents in the table, in order of first appearance; ties between scores go to the earlier one. */
+    AssistantIntent[] intents() {
+        return intents.clone();
+    }
+
+    int size() {
+        return keywords.length;
+    }
+}
@@ -3,24 +3,105 @@ package com.intuit.taxrefund.assistant.nlp;
 import com.intuit.taxrefund.assistant.model.AssistantIntent;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Keyword intent classifier, used on its own in keyword mode and as the fallback for
+ * low-confidence OpenNLP results.
+ *
+ * Keywords come from app.assistant.intentKeywords (default nlp/intent-keywords.tsv) and are
+ * compiled into a {@link KeywordAutomaton}, so a question is scanned once instead of once per
+ * keyword. The best-scoring intent wins; confidence grows with its score and with its share
+ * of all matched weight:
+ *
+ *   confidence = 0.40 + 0.30 × min(1, best) × best / total
+ *
+ * A single distinctive keyword gives 0.70 and a single weak one 0.55. When the best intent
+ * holds no more than half the matched weight (a tie, or a question spread over several
+ * intents) confidence is capped at 0.50, the value every keyword result had before, so the
+ * planner treats it as a weak signal (below its MIN_CONFIDENCE of 0.55) and does not advance
+ * state on it. The ceiling stays below the planner's escalating threshold, so keywords alone
+ * never move a conversation forward into escalation. With no match the result is UNKNOWN at
+ * 0.50 as before: missing keywords say little about whether a question is on topic.
+ */
 @Component
 public class KeywordIntentClassifier implements IntentClassifier {
     private static final Logger log = LogManager.getLogger(KeywordIntentClassifier.class);
 
+    static final String DEFAULT_TABLE = "nlp/intent-keywords.tsv";
+    private static final double NO_MATCH_CONFIDENCE = 0.50;
+    private static final double AMBIGUOUS_CONFIDENCE = 0.50;
+
+    private final KeywordAutomaton automaton;
+    private final AssistantIntent[] priority;
+
+    public KeywordIntentClassifier() {
+        this(new ClassPathResource(DEFAULT_TABLE));
+    }
+
+    @Autowired
+    public KeywordIntentClassifier(
+        @Value("${app.assistant.intentKeywords:classpath:/" + DEFAULT_TABLE + "}") Resource table
+    ) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(table.getInputStream(), StandardCharsets.UTF_8))) {
+            this.automaton = KeywordAutomaton.parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read intent keyword table " + table, e);
+        }
+        this.priority = automaton.intents();
+        log.info("intent_keywords_loaded keywords={} source={}", automaton.size(), table.getDescription());
+    }
+
     @Override
     public IntentResult classify(String text) {
-        String t = text == null ? "" : text.toLowerCase();
+        double[] scores = automaton.scan(text);
+
+        AssistantIntent best = AssistantIntent.UNKNOWN;
+        double bestScore = 0;
+        double total = 0;
+        for (AssistantIntent intent : priority) {
+            double s = scores[intent.ordinal()];
+            total += s;
+            if (s > bestScore) {
+                best = intent;
+                bestScore = s;
+            }
+        }
 
-        AssistantIntent out;
-        if (t.contains("status") || t.contains("where is my refund") || t.contains("latest")) out = AssistantIntent.REFUND_STATUS;
-        else if (t.contains("eta") || t.contains("when") || t.contains("how long") || t.contains("available")) out = AssistantIntent.REFUND_ETA;
-        else if (t.contains("why") || t.contains("delayed") || t.contains("stuck") || t.contains("processing")) out = AssistantIntent.WHY_DELAYED;
-        else if (t.contains("next step") || t.contains("what should i do") || t.contains("action")) out = AssistantIntent.NEXT_STEPS;
-        else out = AssistantIntent.UNKNOWN;
+        double confidence;
+        if (bestScore == 0) {
+            confidence = NO_MATCH_CONFIDENCE;
+        } else {
+            confidence = 0.40 + 0.30 * Math.min(1.0, bestScore) * (bestScore / total);
+            // no majority: table order picked the intent, which is not enough to act on
+            if (bestScore * 2 <= total) confidence = Math.min(confidence, AMBIGUOUS_CONFIDENCE);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("intent_classified(keyword) intent={} confidence={}", best, confidence);
+        }
+        return new IntentResult(best, confidence, "keyword");
+    }
 
-        log.debug("intent_classified(keyword) intent={}", out);
-        return new IntentResult(out, 0.50, "keyword");
+    /** Matched keyword weight per intent; intents without a match are absent. */
+    public Map<AssistantIntent, Double> scores(String text) {
+        double[] scores = automaton.scan(text);
+        Map<AssistantIntent, Double> out = new EnumMap<>(AssistantIntent.class);
+        for (AssistantIntent intent : priority) {
+            if (scores[intent.ordinal()] > 0) out.put(intent, scores[intent.ordinal()]);
+        }
+        return out;
     }
-}
\ No newline at end of file
+}
@@ -1,25 +1,29 @@
 package com.intuit.taxrefund.assistant.nlp;
 
 import com.intuit.taxrefund.assistant.model.AssistantIntent;
-import opennlp.tools.doccat.DoccatModel;
-import opennlp.tools.doccat.DocumentCategorizerME;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
-import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
-import java.io.InputStream;
-import java.util.Locale;
-
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * OpenNLP document-categorizer intent classifier with keyword fallback.
+ *
+ * The model comes from {@link IntentModelRegistry}, which may swap it at any time; each call
+ * reads the current model once and uses it throughout.
+ */
 @Component
 @Primary
 public class OpenNlpIntentClassifier implements IntentClassifier {
     private static final Logger log = LogManager.getLogger(OpenNlpIntentClassifier.class);
 
     private final KeywordIntentClassifier fallback;
+    private final IntentModelRegistry models;
 
     @Value("${app.assistant.intentClassifier:opennlp}")
     private String mode;
@@ -27,71 +31,67 @@ public class OpenNlpIntentClassifier implements IntentClassifier {
     @Value("${app.assistant.intentMinConfidence:0.55}")
     private double minConfidence;
 
-    @Value("classpath:/nlp/intent-model.bin")
-    private Resource modelResource;
-
-    private volatile DocumentCategorizerME categorizer;
-
-    public OpenNlpIntentClassifier(KeywordIntentClassifier fallback) {
+    public OpenNlpIntentClassifier(KeywordIntentClassifier fallback, IntentModelRegistry models) {
         this.fallback = fallback;
+        this.models = models;
     }
 
     @PostConstruct
     void init() {
         if (!"opennlp".equalsIgnoreCase(mode)) {
             log.info("OpenNLP classifier disabled (mode={}), using keyword only", mode);
-            return;
-        }
-
-        try (InputStream in = modelResource.getInputStream()) {
-            DoccatModel model = new DoccatModel(in);
-            this.categorizer = new DocumentCategorizerME(model);
-            log.info("OpenNLP intent model loaded");
-        } catch (Exception e) {
-            log.warn("Failed to load OpenNLP model, falling back to keyword. err={}", e.toString());
-            this.categorizer = null;
+        } else if (models.active() == null) {
+            log.warn("No OpenNLP intent model available, falling back to keyword");
         }
     }
 
     @Override
     public IntentResult classify(String text) {
-        if (!"opennlp".equalsIgnoreCase(mode) || categorizer == null) {
+        IntentModelRegistry.LoadedModel model = models.active();
+        if (!"opennlp".equalsIgnoreCase(mode) || model == null) {
             return fallback.classify(text);
         }
 
-        String normalized = normalize(text);
-        String[] tokens = normalized.split("\\s+");
-
-        double[] outcomes = categorizer.categorize(tokens);
-        String bestCategory = categorizer.getBestCategory(outcomes);
-        double confidence = max(outcomes);
+        String[] tokens = IntentTokenizer.tokenize(text);
+        long start = System.nanoTime();
+        CategorizerPool.Prediction p = model.pool().predict(tokens);
+        models.recordLatency(model, "active", System.nanoTime() - start);
+        models.shadow(model, tokens, p.category());
 
-        AssistantIntent intent = map(bestCategory);
+        return toResult(text, p, model);
+    }
 
-        // Fallback when model is uncertain
-        if (confidence < minConfidence) {
-            IntentResult fb = fallback.classify(text);
-            return new IntentResult(fb.intent(), Math.max(fb.confidence(), confidence), "opennlp->keyword");
+    /** Classifies all texts with one borrowed categorizer; results are in input order. */
+    @Override
+    public List<IntentResult> classifyBatch(List<String> texts) {
+        IntentModelRegistry.LoadedModel model = models.active();
+        if (!"opennlp".equalsIgnoreCase(mode) || model == null) {
+            return fallback.classifyBatch(texts);
         }
 
-        return new IntentResult(intent, confidence, "opennlp");
-    }
+        List<String[]> tokenized = new ArrayList<>(texts.size());
+        for (String text : texts) tokenized.add(IntentTokenizer.tokenize(text));
+        List<CategorizerPool.Prediction> predictions = model.pool().predictAll(tokenized);
 
-    private static String normalize(String s) {
-        if (s == null) return "";
-        return s.toLowerCase(Locale.ROOT)
-            .replaceAll("[^a-z0-9\\s]", " ")
-            .replaceAll("\\s+", " ")
-            .trim();
+        List<IntentResult> out = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            out.add(toResult(texts.get(i), predictions.get(i), model));
+        }
+        return out;
     }
 
-    private static double max(double[] a) {
-        double m = 0.0;
-        for (double v : a) m = Math.max(m, v);
-        return m;
+    private IntentResult toResult(String text, CategorizerPool.Prediction p, IntentModelRegistry.LoadedModel model) {
+        // Fallback when model is uncertain
+        if (p.confidence() < minConfidence) {
+            IntentResult fb = fallback.classify(text);
+            return new IntentResult(fb.intent(), Math.max(fb.confidence(), p.confidence()), "opennlp->keyword");
+        }
+
+        return new IntentResult(map(p.category()), p.confidence(), "opennlp@" + model.version());
     }
 
     private static AssistantIntent map(String category) {
+        if (category == null) return AssistantIntent.UNKNOWN;
         return switch (category) {
             case "REFUND_STATUS" -> AssistantIntent.REFUND_STATUS;
             case "REFUND_ETA" -> AssistantIntent.REFUND_ETA;
@@ -100,4 +100,4 @@ public class OpenNlpIntentClassifier implements IntentClassifier {
             default -> AssistantIntent.UNKNOWN;
         };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,81 @@
+package com.intuit.taxrefund.assistant.policy;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Policy snippets from the policy_snippet table, served from an in-memory snapshot.
+ *
+ * Lookups never touch the database. Every app.assistant.policy-snippets.refresh-interval-ms
+ * (default 5 s) each node reads the single-row change counter in policy_snippet_set, which a
+ * trigger bumps on every write to policy_snippet, and reloads the table only when the counter
+ * moved. An edit therefore reaches every node within one interval, at the cost of one
+ * primary-key read per node per interval while nothing changes.
+ *
+ * A failed refresh is logged and the previous snapshot stays in use. This is the source
+ * unless app.assistant.policy-snippets.source is set to memory.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "app.assistant.policy-snippets", name = "source", havingValue = "db", matchIfMissing = true)
+public class DbPolicySnippetRepository implements PolicySnippetRepository {
+
+    private static final Logger log = LogManager.getLogger(DbPolicySnippetRepository.class);
+
+    private record Snapshot(String version, List<PolicySnippetRecord> snippets) {}
+
+    private final PolicySnippetJpaRepository jpa;
+
+    private volatile Snapshot snapshot = new Snapshot("unloaded", List.of());
+
+    public DbPolicySnippetRepository(PolicySnippetJpaRepository jpa) {
+        this.jpa = jpa;
+    }
+
+    @PostConstruct
+    void init() {
+        refresh();
+    }
+
+    @Override
+    public List<PolicySnippetRecord> findCandidates(String locale) {
+        return snapshot.snippets().stream()
+            .filter(p -> p.matchesLocale(locale))
+            .toList();
+    }
+
+    @Override
+    public List<PolicySnippetRecord> findAll() {
+        return snapshot.snippets();
+    }
+
+    @Override
+    public String version() {
+        return snapshot.version();
+    }
+
+    /** Reloads the snapshot if the snippet set changed since the last load. */
+    @Scheduled(fixedDelayString = "${app.assistant.policy-snippets.refresh-interval-ms:5000}")
+    public void refresh() {
+        try {
+            Long counter = jpa.currentSetVersion();
+            String version = "db-" + counter;
+            Snapshot current = snapshot;
+            if (version.equals(current.version())) return;
+
+            // Read after the counter: a write landing in between is picked up by the next poll
+            List<PolicySnippetRecord> snippets = jpa.findAll().stream()
+                .map(PolicySnippetEntity::toRecord)
+                .toList();
+            snapshot = new Snapshot(version, snippets);
+            log.info("policy_snippets_loaded version={} previous={} count={}", version, current.version(), snippets.size());
+        } catch (Exception e) {
+            log.warn("policy_snippets_refresh_failed version={} err={}", snapshot.version(), e.toString());
+        }
+    }
+}
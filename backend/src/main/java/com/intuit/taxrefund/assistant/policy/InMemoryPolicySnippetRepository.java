@@ -1,77 +1,97 @@
 package com.intuit.taxrefund.assistant.policy;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Fixed snippet set for local runs and tests without a database
+ * (app.assistant.policy-snippets.source=memory). The policy_snippet table was seeded with
+ * the same snippets.
+ */
 @Repository
+@ConditionalOnProperty(prefix = "app.assistant.policy-snippets", name = "source", havingValue = "memory")
 public class InMemoryPolicySnippetRepository implements PolicySnippetRepository {
 
+    // Fixed for the life of the process, so built once and shared
+    private static final List<PolicySnippetRecord> SNIPPETS = List.of(
+        new PolicySnippetRecord(
+            "IRS_REFUND_GENERAL_001",
+            "Peak processing delays",
+            "Refund status updates can be delayed during peak processing periods.",
+            "IRS",
+            "https://www.irs.gov/refunds",
+            "IRS Refunds",
+            "2026.01",
+            Instant.parse("2025-01-01T00:00:00Z"),
+            null,
+            Set.of("*"),
+            "en-US",
+            true,
+            10
+        ),
+        new PolicySnippetRecord(
+            "IRS_REFUND_BANK_POSTING_001",
+            "Bank posting delays",
+            "If a refund is marked SENT, banks may require additional time to post deposits.",
+            "IRS",
+            "https://www.irs.gov/refunds",
+            "IRS Refunds",
+            "2026.01",
+            Instant.parse("2025-01-01T00:00:00Z"),
+            null,
+            Set.of("SENT", "AVAILABLE"),
+            "en-US",
+            true,
+            20
+        ),
+        new PolicySnippetRecord(
+            "IRS_REFUND_PROCESSING_001",
+            "Processing review delays",
+            "Long processing times can occur due to verification or return review.",
+            "IRS",
+            "https://www.irs.gov/refunds",
+            "IRS Refunds",
+            "2026.01",
+            Instant.parse("2025-01-01T00:00:00Z"),
+            null,
+            Set.of("PROCESSING"),
+            "en-US",
+            true,
+            5
+        ),
+        new PolicySnippetRecord(
+            "IRS_REFUND_REJECTED_001",
+            "Rejected refund next steps",
+            "Rejected refunds often require correcting filing details or addressing notices.",
+            "IRS",
+            "https://www.irs.gov/refunds",
+            "IRS Refunds",
+            "2026.01",
+            Instant.parse("2025-01-01T00:00:00Z"),
+            null,
+            Set.of("REJECTED"),
+            "en-US",
+            true,
+            5
+        )
+    );
+
     @Override
     public List<PolicySnippetRecord> findCandidates(String locale) {
-        return List.of(
-            new PolicySnippetRecord(
-                "IRS_REFUND_GENERAL_001",
-                "Peak processing delays",
-                "Refund status updates can be delayed during peak processing periods.",
-                "IRS",
-                "https://www.irs.gov/refunds",
-                "IRS Refunds",
-                "2026.01",
-                Instant.parse("2025-01-01T00:00:00Z"),
-                null,
-                Set.of("*"),
-                "en-US",
-                true,
-                10
-            ),
-            new PolicySnippetRecord(
-                "IRS_REFUND_BANK_POSTING_001",
-                "Bank posting delays",
-                "If a refund is marked SENT, banks may require additional time to post deposits.",
-                "IRS",
-                "https://www.irs.gov/refunds",
-                "IRS Refunds",
-                "2026.01",
-                Instant.parse("2025-01-01T00:00:00Z"),
-                null,
-                Set.of("SENT", "AVAILABLE"),
-                "en-US",
-                true,
-                20
-            ),
-            new PolicySnippetRecord(
-                "IRS_REFUND_PROCESSING_001",
-                "Processing review delays",
-                "Long processing times can occur due to verification or return review.",
-                "IRS",
-                "https://www.irs.gov/refunds",
-                "IRS Refunds",
-                "2026.01",
-                Instant.parse("2025-01-01T00:00:00Z"),
-                null,
-                Set.of("PROCESSING"),
-                "en-US",
-                true,
-                5
-            ),
-            new PolicySnippetRecord(
-                "IRS_REFUND_REJECTED_001",
-                "Rejected refund next steps",
-                "Rejected refunds often require correcting filing details or addressing notices.",
-                "IRS",
-                "https://www.irs.gov/refunds",
-                "IRS Refunds",
-                "2026.01",
-                Instant.parse("2025-01-01T00:00:00Z"),
-                null,
-                Set.of("REJECTED"),
-                "en-US",
-                true,
-                5
-            )
-        );
+        return SNIPPETS;
+    }
+
+    @Override
+    public List<PolicySnippetRecord> findAll() {
+        return SNIPPETS;
+    }
+
+    @Override
+    public String version() {
+        return "in-memory";
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.intuit.taxrefund.assistant.policy;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Row of policy_snippet. Read only by {@link DbPolicySnippetRepository}, which turns rows into
+ * {@link PolicySnippetRecord}s; snippets are maintained directly in the table.
+ */
+@Entity
+@Table(name = "policy_snippet")
+public class PolicySnippetEntity {
+
+    @Id
+    @Column(length = 80)
+    private String id;
+
+    @Column(nullable = false, length = 200)
+    private String title;
+
+    @Column(nullable = false, length = 1000)
+    private String quote;
+
+    @Column(nullable = false, name = "source_type", length = 40)
+    private String sourceType;
+
+    @Column(name = "source_url", length = 500)
+    private String sourceUrl;
+
+    @Column(name = "source_title", length = 200)
+    private String sourceTitle;
+
+    @Column(nullable = false, length = 40)
+    private String version;
+
+    @Column(name = "effective_from")
+    private Instant effectiveFrom;
+
+    @Column(name = "effective_to")
+    private Instant effectiveTo;
+
+    /** Comma-separated refund statuses, or "*". */
+    @Column(nullable = false, name = "status_triggers", length = 400)
+    private String statusTriggers;
+
+    @Column(length = 20)
+    private String locale;
+
+    @Column(nullable = false)
+    private boolean enabled;
+
+    @Column(nullable = false)
+    private int priority;
+
+    @Column(nullable = false, name = "updated_at")
+    private Instant updatedAt;
+
+    protected PolicySnippetEntity() {}
+
+    public PolicySnippetRecord toRecord() {
+        Set<String> triggers = Arrays.stream(statusTriggers.split(","))
+            .map(String::trim)
+            .filter(s -> !s.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+        return new PolicySnippetRecord(id, title, quote, sourceType, sourceUrl, sourceTitle, version,
+            effectiveFrom, effectiveTo, triggers, locale, enabled, priority);
+    }
+
+    public String getId() { return id; }
+    public Instant getUpdatedAt() { return updatedAt; }
+}
@@ -0,0 +1,132 @@
+package com.intuit.taxrefund.assistant.policy;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable lookup table of the snippets in effect during one time bucket of one snippet set.
+ *
+ * Built from {@link PolicySnippetRepository#findAll()}: for every locale and every status
+ * named in a trigger, the matching enabled snippets (with "*" triggers and locale-less
+ * snippets merged in) are sorted by priority, then id, and cut to {@link #LIMIT}. Any other
+ * status gets the "*"-only list, any other locale the locale-less snippets.
+ *
+ * Effective windows only change at the effectiveFrom/effectiveTo instants of the set, so the
+ * index holds for [validFromMillis, validUntilMillis) and is rebuilt when a lookup falls
+ * outside it. Boundaries are compared at millisecond resolution.
+ */
+public final class PolicySnippetIndex {
+
+    /** Snippets per lookup; keeps the prompt payload tight. */
+    public static final int LIMIT = 5;
+
+    private static final Comparator<PolicySnippetRecord> ORDER = Comparator
+        .comparingInt(PolicySnippetRecord::priority)
+        .thenComparing(PolicySnippetRecord::id);
+
+    private record LocaleEntry(Map<String, List<PolicySnippetRecord>> byStatus, List<PolicySnippetRecord> anyStatus) {
+        List<PolicySnippetRecord> get(String status) {
+            return byStatus.getOrDefault(status, anyStatus);
+        }
+    }
+
+    private final String version;
+    private final long validFromMillis;
+    private final long validUntilMillis;
+    private final Map<String, LocaleEntry> byLocale;   // keyed by the locale as written and lower-cased
+    private final LocaleEntry anyLocale;
+
+    private PolicySnippetIndex(String version, long validFromMillis, long validUntilMillis,
+                               Map<String, LocaleEntry> byLocale, LocaleEntry anyLocale) {
+        this.version = version;
+        this.validFromMillis = validFromMillis;
+        this.validUntilMillis = validUntilMillis;
+        this.byLocale = byLocale;
+        this.anyLocale = anyLocale;
+    }
+
+    /** Index of {@code snippets} as of {@code at}, tagged with the snippet-set {@code version}. */
+    public static PolicySnippetIndex build(String version, List<PolicySnippetRecord> snippets, Instant at) {
+        long now = at.toEpochMilli();
+        long from = Long.MIN_VALUE;
+        long until = Long.MAX_VALUE;
+        List<PolicySnippetRecord> active = new ArrayList<>();
+        TreeSet<String> statuses = new TreeSet<>();
+        TreeSet<String> locales = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+        for (PolicySnippetRecord p : snippets) {
+            if (!p.enabled()) continue;
+            for (Instant boundary : new Instant[] { p.effectiveFrom(), p.effectiveTo() }) {
+                if (boundary == null) continue;
+                long b = boundary.toEpochMilli();
+                if (b <= now) from = Math.max(from, b);
+                else until = Math.min(until, b);
+            }
+            if (!p.isActiveAt(Instant.ofEpochMilli(now))) continue;
+            active.add(p);
+            if (p.statusTriggers() != null) {
+                for (String s : p.statusTriggers()) {
+                    if (!"*".equals(s)) statuses.add(s);
+                }
+            }
+            if (p.locale() != null && !p.locale().isBlank()) locales.add(p.locale().trim());
+        }
+        active.sort(ORDER);
+
+        Map<String, LocaleEntry> byLocale = new HashMap<>();
+        for (String locale : locales) {
+            LocaleEntry entry = entry(active, locale, statuses);
+            byLocale.put(locale, entry);
+            byLocale.put(locale.toLowerCase(Locale.ROOT), entry);
+        }
+        return new PolicySnippetIndex(version, from, until, Map.copyOf(byLocale), entry(active, null, statuses));
+    }
+
+    private static LocaleEntry entry(List<PolicySnippetRecord> sorted, String locale, Iterable<String> statuses) {
+        Map<String, List<PolicySnippetRecord>> byStatus = new HashMap<>();
+        for (String status : statuses) {
+            byStatus.put(status, top(sorted, locale, status));
+        }
+        return new LocaleEntry(Map.copyOf(byStatus), top(sorted, locale, "*"));
+    }
+
+    private static List<PolicySnippetRecord> top(List<PolicySnippetRecord> sorted, String locale, String status) {
+        List<PolicySnippetRecord> out = new ArrayList<>(LIMIT);
+        for (PolicySnippetRecord p : sorted) {
+            if (out.size() == LIMIT) break;
+            boolean localeOk = locale == null ? (p.locale() == null || p.locale().isBlank()) : p.matchesLocale(locale);
+            if (localeOk && p.matchesStatus(status)) out.add(p);
+        }
+        return List.copyOf(out);
+    }
+
+    /**
+     * Pre-sorted snippets for a normalized status and locale. Returns a shared immutable list;
+     * nothing is allocated when the locale is given as indexed or in lower case.
+     */
+    public List<PolicySnippetRecord> lookup(String locale, String status) {
+        LocaleEntry entry = byLocale.get(locale);
+        if (entry == null) entry = byLocale.get(locale.toLowerCase(Locale.ROOT));
+        return (entry == null ? anyLocale : entry).get(status);
+    }
+
+    /** True while this index is valid for snippet set {@code version} at {@code nowMillis}. */
+    public boolean covers(String version, long nowMillis) {
+        return nowMillis >= validFromMillis && nowMillis < validUntilMillis && this.version.equals(version);
+    }
+
+    public String version() {
+        return version;
+    }
+
+    /** Next instant at which some snippet takes or loses effect, or null when none is scheduled. */
+    public Instant validUntil() {
+        return validUntilMillis == Long.MAX_VALUE ? null : Instant.ofEpochMilli(validUntilMillis);
+    }
+}
@@ -0,0 +1,11 @@
+package com.intuit.taxrefund.assistant.policy;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface PolicySnippetJpaRepository extends JpaRepository<PolicySnippetEntity, String> {
+
+    /** Change counter bumped by a trigger on every write to policy_snippet. */
+    @Query(value = "select version from policy_snippet_set where id = 1", nativeQuery = true)
+    Long currentSetVersion();
+}
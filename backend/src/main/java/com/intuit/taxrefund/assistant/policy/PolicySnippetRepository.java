@@ -3,9 +3,19 @@ package com.intuit.taxrefund.assistant.policy;
 import java.util.List;
 
 /**
- * On production, this can be document DB like MongoDB or Cosmos DB.
- * For demo purpose, we can just hardcode some snippets in memory.
+ * Source of the policy snippets the assistant may quote.
+ * {@link DbPolicySnippetRepository} reads them from the policy_snippet table;
+ * {@link InMemoryPolicySnippetRepository} hardcodes a demo set.
  */
 public interface PolicySnippetRepository {
     List<PolicySnippetRecord> findCandidates(String locale);
+
+    /** Every snippet, whatever its locale, status or effective window; used to build the index. */
+    List<PolicySnippetRecord> findAll();
+
+    /**
+     * Identifies the snippet set findAll() currently returns; must change whenever the set
+     * changes. Read on every lookup, so it has to be cheap.
+     */
+    String version();
 }
\ No newline at end of file
@@ -0,0 +1,179 @@
+package com.intuit.taxrefund.assistant.prompt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.assistant.model.ConversationContext;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prompt templates for the assistant LLM call.
+ *
+ * Everything that does not depend on the turn is built once: the four developer prompt
+ * variants (escalate × repeatHint) and the response schema, which is an immutable constant
+ * so {@link com.intuit.taxrefund.llm.OpenAiLlmClient} can reuse its serialized form.
+ * Per turn only the user prompt is assembled: one presized buffer, history, question and
+ * authoritativeData written as compact JSON straight into that buffer.
+ *
+ * Metrics: distribution summary assistant.prompt.tokens (estimated, ~4 chars per token)
+ */
+@Component
+public class AssistantPromptTemplates {
+
+    /** Bump whenever a prompt or the response schema changes (answer cache key). */
+    public static final int VERSION = 3;
+
+    private static final String BASE =
+        "You are a TurboTax-like assistant helping users understand their tax refund.\n"
+            + "STRICT RULES:\n"
+            + "- Only use facts present in authoritativeData. Never invent numbers or dates.\n"
+            + "- Do NOT request or reveal PII (SSN, bank account, address, full name).\n"
+            + "- Do NOT mention internal tracking IDs.\n"
+            + "- Return ONLY valid JSON matching the provided schema.\n"
+            + "CONFIDENCE RATING (self-assess honestly):\n"
+            + "- HIGH   : authoritativeData fully answers the question with specific facts.\n"
+            + "- MEDIUM : authoritativeData partially answers; some info is general.\n"
+            + "- LOW    : you cannot give a complete, specific answer from the data provided.\n";
+
+    private static final String REPEAT =
+        "\nREPEAT NOTICE: The user has asked a very similar question before and your "
+            + "previous answer did not satisfy them. Do NOT repeat the same explanation. "
+            + "Try a noticeably different approach: simplify the language, break into smaller "
+            + "steps, or acknowledge what you do not know and suggest concrete next actions.\n";
+
+    private static final String ESCALATE =
+        "\nESCALATION: The user has been stuck for several turns. Empathetically "
+            + "acknowledge their frustration, summarise the refund facts you have, and clearly "
+            + "recommend they contact a human support agent. Include CONTACT_SUPPORT in actions.\n";
+
+    // Indexed by (escalate ? 2 : 0) + (repeatHint ? 1 : 0)
+    private static final String[] DEVELOPER = {
+        BASE, BASE + REPEAT, BASE + ESCALATE, BASE + REPEAT + ESCALATE
+    };
+
+    // Ordered maps throughout: structured output is generated in schema order, and the answer
+    // must come first so a streamed reply starts with it (Map.of iterates in a random order)
+    public static final Map<String, Object> RESPONSE_SCHEMA = ordered(
+        "name", "assistant_response",
+        "strict", true,
+        "schema", ordered(
+            "type", "object", "additionalProperties", false,
+            "properties", ordered(
+                "answerMarkdown", Map.of("type", "string"),
+                "citations", ordered("type", "array", "items", ordered(
+                    "type", "object", "additionalProperties", false,
+                    "properties", ordered(
+                        "docId",  Map.of("type", "string"),
+                        "quote",  Map.of("type", "string")),
+                    "required", List.of("docId", "quote"))),
+                "actions", ordered("type", "array", "items", ordered(
+                    "type", "object", "additionalProperties", false,
+                    "properties", ordered(
+                        "type",  ordered("type", "string",
+                                         "enum", List.of("REFRESH", "CONTACT_SUPPORT", "SHOW_TRACKING")),
+                        "label", Map.of("type", "string")),
+                    "required", List.of("type", "label"))),
+                "confidence", ordered("type", "string", "enum", List.of("LOW", "MEDIUM", "HIGH"))),
+            "required", List.of("answerMarkdown", "citations", "actions", "confidence")));
+
+    /** An unmodifiable map that iterates in the order given, from alternating keys and values. */
+    private static Map<String, Object> ordered(Object... keysAndValues) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) m.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        return Collections.unmodifiableMap(m);
+    }
+
+    // Covers the fixed labels plus a typical authoritativeData object
+    private static final int USER_PROMPT_OVERHEAD = 512;
+
+    private final ObjectMapper om;
+    private final DistributionSummary promptTokens;
+
+    public AssistantPromptTemplates(ObjectMapper om, MeterRegistry meters) {
+        this.om = om;
+        this.promptTokens = DistributionSummary.builder("assistant.prompt.tokens")
+            .description("Estimated input tokens per assistant LLM call")
+            .baseUnit("tokens")
+            .register(meters);
+    }
+
+    /** One turn's prompt pair plus the shared schema. */
+    public record Prompt(String developer, String user, Map<String, Object> schema, int estimatedTokens) {}
+
+    public Prompt compose(String question, ConversationContext ctx, Map<String, Object> authData,
+                          boolean escalate, boolean repeatHint) {
+        String developer = developerPrompt(escalate, repeatHint);
+        String user = userPrompt(question, ctx, authData);
+        int tokens = estimateTokens(developer) + estimateTokens(user);
+        promptTokens.record(tokens);
+        return new Prompt(developer, user, RESPONSE_SCHEMA, tokens);
+    }
+
+    public static String developerPrompt(boolean escalate, boolean repeatHint) {
+        return DEVELOPER[(escalate ? 2 : 0) + (repeatHint ? 1 : 0)];
+    }
+
+    String userPrompt(String question, ConversationContext ctx, Map<String, Object> authData) {
+        List<ConversationContext.HistoryEntry> history = ctx.history();
+        int size = USER_PROMPT_OVERHEAD + (question == null ? 0 : question.length());
+        for (ConversationContext.HistoryEntry e : history) {
+            size += 20 + length(e.question()) + length(e.answer());
+        }
+
+        StringBuilder sb = new StringBuilder(size);
+        if (!history.isEmpty()) {
+            sb.append("Conversation history (oldest first):\n");
+            for (ConversationContext.HistoryEntry e : history) {
+                sb.append("User: ").append(e.question()).append('\n');
+                sb.append("Assistant: ").append(e.answer()).append('\n');
+            }
+            sb.append('\n');
+        }
+        sb.append("Question: ").append(question).append("\n\n");
+        sb.append("authoritativeData:\n");
+        appendJson(sb, authData);
+        return sb.toString();
+    }
+
+    /**
+     * Rough input-token estimate (about four characters per token for English text).
+     * Good enough for dashboards and budgeting; not a tokenizer.
+     */
+    public static int estimateTokens(CharSequence text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    private void appendJson(StringBuilder sb, Object value) {
+        int mark = sb.length();
+        try {
+            om.writeValue(new StringBuilderWriter(sb), value);
+        } catch (IOException e) {
+            sb.setLength(mark);
+            sb.append("{}");
+        }
+    }
+
+    private static int length(String s) {
+        return s == null ? 4 : s.length();
+    }
+
+    // Lets Jackson write compact JSON directly into the prompt buffer
+    private static final class StringBuilderWriter extends Writer {
+        private final StringBuilder sb;
+
+        StringBuilderWriter(StringBuilder sb) { this.sb = sb; }
+
+        @Override public void write(char[] buf, int off, int len) { sb.append(buf, off, len); }
+        @Override public void write(String str, int off, int len) { sb.append(str, off, off + len); }
+        @Override public void write(int c) { sb.append((char) c); }
+        @Override public void flush() { }
+        @Override public void close() { }
+    }
+}
@@ -5,21 +5,32 @@ import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse;
 import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse.Action;
 import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse.ActionType;
 import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse.Confidence;
+import com.intuit.taxrefund.assistant.infra.AssistantAnswerCache;
 import com.intuit.taxrefund.assistant.infra.AssistantProps;
 import com.intuit.taxrefund.assistant.infra.AssistantQuotaService;
-import com.intuit.taxrefund.assistant.infra.ConversationStateStore;
+import com.intuit.taxrefund.assistant.infra.AssistantTurnStore;
 import com.intuit.taxrefund.assistant.infra.PrivacyFilter;
 import com.intuit.taxrefund.assistant.model.*;
 import com.intuit.taxrefund.assistant.nlp.IntentClassifier;
+import com.intuit.taxrefund.assistant.policy.PolicySnippetRecord;
+import com.intuit.taxrefund.assistant.prompt.AssistantPromptTemplates;
 import com.intuit.taxrefund.auth.jwt.JwtService;
+import com.intuit.taxrefund.llm.JsonFieldStreamExtractor;
 import com.intuit.taxrefund.llm.LlmClientRouter;
+import com.intuit.taxrefund.llm.LlmOutput;
+import com.intuit.taxrefund.llm.LlmMetrics;
 import com.intuit.taxrefund.refund.controller.dto.RefundStatusResponse;
 import com.intuit.taxrefund.refund.service.RefundService;
+import com.intuit.taxrefund.shared.concurrent.DeadlineScope;
+import com.intuit.taxrefund.shared.ratelimit.RateLimitPolicies;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 @Service
 public class AssistantService {
@@ -39,48 +50,92 @@ public class AssistantService {
     private final PrivacyFilter          privacyFilter;
     private final IntentClassifier       classifier;
     private final AssistantProps         props;
-    private final AssistantQuotaService  quota;
     private final AssistantPlanner       planner;
-    private final ConversationStateStore stateStore;
+    private final AssistantTurnStore     turnStore;
     private final PolicySnippets         policySnippets;
     private final LlmClientRouter        llmRouter;
+    private final AssistantAnswerCache   answerCache;
+    private final TemplateAnswerEngine   templates;
+    private final AssistantPromptTemplates prompts;
+    private final LlmMetrics             llmMetrics;
+    private final RateLimitPolicies      rateLimits;
+    /** Extra rate-limit tokens for a turn that reached a billable LLM (the chat route's "llm" charge). */
+    private final RateLimitPolicies.Charge llmCharge;
+    private final AssistantQuotaService  quota;
     private final ObjectMapper           om;
 
     public AssistantService(
         RefundService refundService, PrivacyFilter privacyFilter,
         IntentClassifier classifier, AssistantProps props,
-        AssistantQuotaService quota, AssistantPlanner planner,
-        ConversationStateStore stateStore, PolicySnippets policySnippets,
-        LlmClientRouter llmRouter, ObjectMapper om
+        AssistantPlanner planner, AssistantTurnStore turnStore,
+        PolicySnippets policySnippets, LlmClientRouter llmRouter,
+        AssistantAnswerCache answerCache, TemplateAnswerEngine templates,
+        AssistantPromptTemplates prompts, LlmMetrics llmMetrics,
+        RateLimitPolicies rateLimits, AssistantQuotaService quota, ObjectMapper om
     ) {
         this.refundService  = refundService; this.privacyFilter  = privacyFilter;
         this.classifier     = classifier;    this.props          = props;
-        this.quota          = quota;         this.planner        = planner;
-        this.stateStore     = stateStore;    this.policySnippets = policySnippets;
-        this.llmRouter      = llmRouter;     this.om             = om;
+        this.planner        = planner;       this.turnStore      = turnStore;
+        this.policySnippets = policySnippets; this.llmRouter     = llmRouter;
+        this.answerCache    = answerCache;    this.templates     = templates;
+        this.prompts        = prompts;        this.llmMetrics    = llmMetrics;
+        this.rateLimits     = rateLimits;     this.quota         = quota;
+        this.om             = om;
+        this.llmCharge      = rateLimits.chargeFor("POST", "/api/assistant/chat", "llm");
     }
 
     public AssistantChatResponse answer(JwtService.JwtPrincipal principal, String question) {
+        return answer(principal, question, null);
+    }
+
+    /**
+     * Same turn as {@link #answer(JwtService.JwtPrincipal, String)}, with {@code answerMarkdown}
+     * passed to {@code onToken} while the LLM is still generating. The returned response is
+     * authoritative: it may differ from the streamed text when the output had to be repaired
+     * or replaced by the deterministic fallback.
+     */
+    public AssistantChatResponse answerStreaming(
+        JwtService.JwtPrincipal principal, String question, Consumer<String> onToken
+    ) {
+        return answer(principal, question, Objects.requireNonNull(onToken));
+    }
+
+    private AssistantChatResponse answer(
+        JwtService.JwtPrincipal principal, String question, Consumer<String> onToken
+    ) {
         long userId = principal.userId();
 
-        // 1. Load context
-        ConversationContext ctx = stateStore.get(userId);
+        // 1–3. Independent I/O in parallel on virtual threads, bounded by one deadline:
+        //      intent classification ‖ (Redis turn read → refund status, which reuses the
+        //      refund cache entry fetched by that read)
+        AssistantTurnStore.TurnReads reads;
+        IntentClassifier.IntentResult r;
+        RefundStatusResponse refund;
+        try (DeadlineScope scope = DeadlineScope.within(turnPrepDeadline())) {
+            Future<IntentClassifier.IntentResult> classified = scope.fork(() -> classifier.classify(question));
+            Future<AssistantTurnStore.TurnReads> turnReads = scope.fork(() -> turnStore.readTurn(userId));
+
+            reads  = scope.join(turnReads, "turn_read");
+            Future<RefundStatusResponse> latest = scope.fork(() ->
+                refundService.getLatestRefundStatus(principal, null, reads.refundCacheJson()));
+
+            r      = scope.join(classified, "intent_classification");
+            refund = scope.join(latest, "refund_status");
+        }
+        ConversationContext ctx = reads.ctx();
 
-        // 2. Classify intent
-        IntentClassifier.IntentResult r = classifier.classify(question);
         AssistantIntent intent   = r.intent();
         boolean isLowNlpConf     = intent == AssistantIntent.UNKNOWN || r.confidence() < 0.55;
 
         log.info("assistant_intent userId={} intent={} confidence={} model={} lowConf={}",
             userId, intent, r.confidence(), r.model(), isLowNlpConf);
 
-        // 3. Fetch refund data & plan
-        RefundStatusResponse refund = refundService.getLatestRefundStatus(principal, null);
-        AssistantPlan plan = planner.plan(ctx, intent, r.confidence(), refund.status());
+        AssistantPlan plan = planner.plan(ctx, intent, r.confidence(), refund.status(),
+            refund.availableAtEstimated() != null);
 
-        log.info("assistant_plan userId={} nextState={} escalate={} offTopic={} repeat={} gated={}",
+        log.info("assistant_plan userId={} nextState={} escalate={} offTopic={} repeat={} gated={} template={}",
             userId, plan.nextState(), plan.escalate(), plan.offTopic(),
-            plan.repeatHint(), plan.stateGated());
+            plan.repeatHint(), plan.stateGated(), plan.templateAnswer());
 
         // ── 4. Off-topic short-circuit ────────────────────────────────────────
         // No LLM call, no state change, no quota consumed.
@@ -88,7 +143,8 @@ public class AssistantService {
         if (plan.offTopic()) {
             log.info("assistant_off_topic userId={} confirmedState={}", userId, ctx.confirmedState());
             String reply = OFF_TOPIC_REPLIES.get(ctx.turnCount() % OFF_TOPIC_REPLIES.size());
-            stateStore.set(userId, ctx.advance(
+            if (onToken != null) onToken.accept(reply);
+            turnStore.commitTurn(userId, reads, ctx.advance(
                 ctx.confirmedState(), AssistantIntent.OFF_TOPIC,
                 true, "LOW", question, reply));
             return new AssistantChatResponse(reply, List.of(),
@@ -96,13 +152,31 @@ public class AssistantService {
         }
 
         // 5. Citations and actions
-        List<AssistantChatResponse.Citation> citations = plan.includePolicySnippets()
-            ? policySnippets.forStatus(refund.status()) : List.of();
+        List<PolicySnippetRecord> snippets = plan.includePolicySnippets()
+            ? policySnippets.forStatusDetailed(refund.status(), "en-US") : List.of();
+        List<AssistantChatResponse.Citation> citations = snippets.stream()
+            .map(p -> new AssistantChatResponse.Citation(p.id(), p.quote()))
+            .toList();
         List<Action> actions = buildActions(refund, plan.escalate());
 
-        // 6. LLM call
-        AssistantChatResponse response = callLlm(
-            userId, question, ctx, refund, citations, actions, plan);
+        // 6. Template fast path, shared answer cache, then LLM call (quota checked and counted
+        //    just before it). Only billable turns use the cache: mock answers are free and echo
+        //    the question. Only first turns, too, as only they are stored: a follow-up must not
+        //    get the canned opening answer for the same intent back.
+        var primary = llmRouter.primary();
+        boolean billable = primary.isAvailable() && !"mock".equalsIgnoreCase(primary.provider());
+
+        AssistantChatResponse response = plan.templateAnswer()
+            ? templateAnswer(intent, refund, citations, actions, userId, onToken) : null;
+        String answerKey = response == null && billable && answerCache.enabled() && ctx.history().isEmpty()
+            ? answerCache.keyFor(AssistantPromptTemplates.VERSION, intent, plan, refund, snippets) : null;
+        if (answerKey != null) response = cachedAnswer(answerKey, actions, userId, onToken);
+        boolean llmCalled = response == null;
+
+        if (llmCalled) {
+            response = callLlm(userId, intent, question, ctx, refund, citations, actions, plan,
+                billable, primary.provider(), answerKey, onToken);
+        }
 
         // 7. Gate state advancement on LLM's own confidence
         String llmConf = (response != null && response.confidence() != null)
@@ -116,7 +190,7 @@ public class AssistantService {
             toCommit, intent, isLowNlpConf, llmConf, question,
             response != null && response.answerMarkdown() != null
                 ? response.answerMarkdown() : "");
-        stateStore.set(userId, updated);
+        turnStore.commitTurn(userId, reads, updated);
 
         log.info("assistant_ctx_committed userId={} confirmedState={} stateGated={} llmConf={}",
             userId, updated.confirmedState(), plan.stateGated(), llmConf);
@@ -125,80 +199,113 @@ public class AssistantService {
             ? response : buildDeterministicFallback(question, refund, citations, actions);
     }
 
+    private Duration turnPrepDeadline() {
+        return Duration.ofMillis(props.turnPrepDeadlineMs() > 0 ? props.turnPrepDeadlineMs() : 5_000);
+    }
+
     // ── LLM orchestration ────────────────────────────────────────────────────
 
     private AssistantChatResponse callLlm(
-        long userId, String question, ConversationContext ctx,
+        long userId, AssistantIntent intent, String question, ConversationContext ctx,
         RefundStatusResponse refund, List<AssistantChatResponse.Citation> citations,
-        List<Action> actions, AssistantPlan plan
+        List<Action> actions, AssistantPlan plan, boolean billable, String provider,
+        String answerKey, Consumer<String> onToken
     ) {
         Map<String, Object> authData = privacyFilter.buildAuthoritativeDataForLlm(refund, plan);
         authData.put("policies", citations);
-        String devPrompt  = buildDeveloperPrompt(plan.escalate(), plan.repeatHint());
-        String userPrompt = buildUserPrompt(question, ctx, authData);
-        Map<String, Object> schema = responseSchema();
+        AssistantPromptTemplates.Prompt prompt =
+            prompts.compose(question, ctx, authData, plan.escalate(), plan.repeatHint());
 
-        var primary = llmRouter.primary();
-        if (!primary.isAvailable() || "mock".equalsIgnoreCase(primary.provider())) {
-            return parseOrFallback(llmRouter.callWithFallback(devPrompt, userPrompt, schema),
-                actions, userId, primary.provider());
+        if (!billable) {
+            LlmClientRouter.Completion c = invokeLlm(userId, intent, prompt, onToken);
+            return parseOrFallback(c.json(), actions, userId, c.provider());
         }
-        if (!quota.tryConsumeDaily(userId, props.dailyOpenAiCallsPerUser())) {
-            log.warn("assistant_quota_exceeded userId={}", userId);
-            return parseOrFallback(llmRouter.callWithFallback(devPrompt, userPrompt, schema),
-                actions, userId, "quota-fallback");
+        AssistantQuotaService.Decision allowed = quota.tryAcquire(userId, provider);
+        if (!allowed.allowed()) {
+            log.warn("assistant_quota_exceeded userId={} limit={} retryAfterMs={}",
+                userId, allowed.limit(), allowed.retryAfterMillis());
+            return buildDeterministicFallback(question, refund, citations, actions);
         }
         try {
-            String json = llmRouter.callWithFallback(devPrompt, userPrompt, schema);
-            log.info("assistant_llm_call_ok userId={} chars={}", userId, json == null ? 0 : json.length());
-            return parseOrFallback(json, actions, userId, primary.provider());
+            LlmClientRouter.Completion c = invokeLlm(userId, intent, prompt, onToken);
+            String json = c.json();
+            AssistantChatResponse parsed = parseOrFallback(json, actions, userId, c.provider());
+            if (answerKey != null && !c.fallback()) {
+                answerCache.putIfShareable(answerKey, json, parsed, refund, question, ctx.history().isEmpty());
+            }
+            return parsed;
         } catch (Exception e) {
             log.error("assistant_llm_call_failed userId={} err={}", userId, e.toString());
             return buildDeterministicFallback(question, refund, citations, actions);
         }
     }
 
-    // ── Prompt builders ──────────────────────────────────────────────────────
-
-    private String buildDeveloperPrompt(boolean escalate, boolean repeatHint) {
-        String base = "You are a TurboTax-like assistant helping users understand their tax refund.\n"
-            + "STRICT RULES:\n"
-            + "- Only use facts present in authoritativeData. Never invent numbers or dates.\n"
-            + "- Do NOT request or reveal PII (SSN, bank account, address, full name).\n"
-            + "- Do NOT mention internal tracking IDs.\n"
-            + "- Return ONLY valid JSON matching the provided schema.\n"
-            + "CONFIDENCE RATING (self-assess honestly):\n"
-            + "- HIGH   : authoritativeData fully answers the question with specific facts.\n"
-            + "- MEDIUM : authoritativeData partially answers; some info is general.\n"
-            + "- LOW    : you cannot give a complete, specific answer from the data provided.\n";
-        if (repeatHint) {
-            base += "\nREPEAT NOTICE: The user has asked a very similar question before and your "
-                + "previous answer did not satisfy them. Do NOT repeat the same explanation. "
-                + "Try a noticeably different approach: simplify the language, break into smaller "
-                + "steps, or acknowledge what you do not know and suggest concrete next actions.\n";
+    private AssistantChatResponse templateAnswer(AssistantIntent intent, RefundStatusResponse refund,
+                                                 List<AssistantChatResponse.Citation> citations,
+                                                 List<Action> actions, long userId, Consumer<String> onToken) {
+        AssistantChatResponse rendered = templates.render(intent, refund, citations, actions);
+        if (rendered != null) {
+            log.info("assistant_template_answer userId={} intent={} status={}", userId, intent, refund.status());
+            if (onToken != null) onToken.accept(rendered.answerMarkdown());
         }
-        if (escalate) {
-            base += "\nESCALATION: The user has been stuck for several turns. Empathetically "
-                + "acknowledge their frustration, summarise the refund facts you have, and clearly "
-                + "recommend they contact a human support agent. Include CONTACT_SUPPORT in actions.\n";
+        return rendered;
+    }
+
+    private AssistantChatResponse cachedAnswer(String answerKey, List<Action> actions, long userId,
+                                               Consumer<String> onToken) {
+        String json = answerCache.get(answerKey);
+        if (json == null) return null;
+
+        AssistantChatResponse cached = parseOrFallback(json, actions, userId, "answer-cache");
+        if (cached != null) {
+            log.info("assistant_answer_cache_hit userId={}", userId);
+            if (onToken != null) onToken.accept(cached.answerMarkdown());
         }
-        return base;
+        return cached;
     }
 
-    private String buildUserPrompt(String question, ConversationContext ctx,
-                                   Map<String, Object> authData) {
-        StringBuilder sb = new StringBuilder();
-        if (!ctx.history().isEmpty()) {
-            sb.append("Conversation history (oldest first):\n");
-            for (ConversationContext.HistoryEntry e : ctx.history()) {
-                sb.append("User: ").append(e.question()).append("\n");
-                sb.append("Assistant: ").append(e.answer()).append("\n");
-            }
-            sb.append("\n");
+    private LlmClientRouter.Completion invokeLlm(long userId, AssistantIntent intent,
+                                                 AssistantPromptTemplates.Prompt prompt, Consumer<String> onToken) {
+        LlmClientRouter.Completion c;
+        if (onToken == null) {
+            c = llmRouter.callWithFallback(prompt.developer(), prompt.user(), prompt.schema(),
+                (provider, model, late) -> chargeAbandoned(userId, intent, prompt, provider, model, late));
+        } else {
+            JsonFieldStreamExtractor answer = new JsonFieldStreamExtractor("answerMarkdown", onToken);
+            c = llmRouter.streamWithFallback(prompt.developer(), prompt.user(), prompt.schema(), answer::feed);
+        }
+
+        if (!"mock".equalsIgnoreCase(c.provider())) rateLimits.charge(llmCharge, userId);
+
+        double costUsd = llmMetrics.costUsd(c.provider(), c.output());
+        llmMetrics.recordCost(intent.name(), c.model(), costUsd);
+        quota.recordSpend(userId, c.provider(), costUsd);
+        log.info("assistant_llm_call_ok userId={} intent={} provider={} model={} fallback={} latencyMs={}"
+                + " inputTokens={} outputTokens={} promptTokensEst={} costUsd={}",
+            userId, intent, c.provider(), c.model(), c.fallback(), c.latency().toMillis(),
+            c.output().inputTokens(), c.output().outputTokens(), prompt.estimatedTokens(),
+            String.format(Locale.ROOT, "%.6f", costUsd));
+        return c;
+    }
+
+    /**
+     * Counts a provider call the hedge answered for. The provider bills it even though the user
+     * got the mock's answer; when it was cancelled before reporting usage, the estimated prompt
+     * tokens stand in for what it read.
+     */
+    private void chargeAbandoned(long userId, AssistantIntent intent, AssistantPromptTemplates.Prompt prompt,
+                                 String provider, String model, LlmOutput late) {
+        try {
+            LlmOutput billed = late != null ? late : new LlmOutput(null, prompt.estimatedTokens(), 0);
+            rateLimits.charge(llmCharge, userId);
+            double costUsd = llmMetrics.costUsd(provider, billed);
+            llmMetrics.recordCost(intent.name(), model, costUsd);
+            quota.recordSpend(userId, provider, costUsd);
+            log.info("assistant_llm_abandoned_charged userId={} intent={} provider={} estimated={} costUsd={}",
+                userId, intent, provider, late == null, String.format(Locale.ROOT, "%.6f", costUsd));
+        } catch (Exception e) {
+            log.warn("assistant_llm_abandoned_charge_failed userId={} provider={} err={}", userId, provider, e.toString());
         }
-        sb.append("Question: ").append(question).append("\n\n");
-        sb.append("authoritativeData:\n").append(safeJson(authData));
-        return sb.toString();
     }
 
     // ── Parsing ──────────────────────────────────────────────────────────────
@@ -209,6 +316,7 @@ public class AssistantService {
         try { parsed = parseStrict(json); }
         catch (Exception e) {
             log.warn("assistant_llm_bad_output userId={} provider={} err={}", userId, provider, e.toString());
+            llmMetrics.recordParseFailure(provider);
             return null;
         }
         if (parsed == null) return null;
@@ -220,9 +328,13 @@ public class AssistantService {
                         parsed.citations()  == null ? List.of() : parsed.citations(),
                         parsed.actions()    == null ? defaultActions : parsed.actions(),
                         parsed.confidence() == null ? Confidence.MEDIUM : parsed.confidence());
-                } else return null;
+                } else {
+                    llmMetrics.recordParseFailure(provider);
+                    return null;
+                }
             } catch (Exception e) {
                 log.warn("assistant_llm_answer_recovery_failed userId={} err={}", userId, e.toString());
+                llmMetrics.recordParseFailure(provider);
                 return null;
             }
         }
@@ -286,35 +398,4 @@ public class AssistantService {
         }
         return out;
     }
-
-    private String safeJson(Object o) {
-        try { return om.writerWithDefaultPrettyPrinter().writeValueAsString(o); }
-        catch (Exception e) { return "{}"; }
-    }
-
-    private Map<String, Object> responseSchema() {
-        Map<String, Object> schema = new LinkedHashMap<>();
-        schema.put("name", "assistant_response");
-        schema.put("strict", true);
-        schema.put("schema", Map.of(
-            "type", "object", "additionalProperties", false,
-            "properties", Map.of(
-                "answerMarkdown", Map.of("type", "string"),
-                "citations", Map.of("type", "array", "items", Map.of(
-                    "type", "object", "additionalProperties", false,
-                    "properties", Map.of(
-                        "docId",  Map.of("type", "string"),
-                        "quote",  Map.of("type", "string")),
-                    "required", List.of("docId", "quote"))),
-                "actions", Map.of("type", "array", "items", Map.of(
-                    "type", "object", "additionalProperties", false,
-                    "properties", Map.of(
-                        "type",  Map.of("type", "string",
-                                        "enum", List.of("REFRESH","CONTACT_SUPPORT","SHOW_TRACKING")),
-                        "label", Map.of("type", "string")),
-                    "required", List.of("type", "label"))),
-                "confidence", Map.of("type","string","enum", List.of("LOW","MEDIUM","HIGH"))),
-            "required", List.of("answerMarkdown","citations","actions","confidence")));
-        return schema;
-    }
 }
@@ -0,0 +1,111 @@
+package com.intuit.taxrefund.assistant.service;
+
+import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse;
+import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse.Action;
+import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse.Citation;
+import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse.Confidence;
+import com.intuit.taxrefund.assistant.model.AssistantIntent;
+import com.intuit.taxrefund.refund.controller.dto.RefundStatusResponse;
+import com.intuit.taxrefund.refund.model.RefundStatus;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Deterministic answers for the turns the planner marks {@code templateAnswer}: a plain
+ * status or ETA question whose answer is a formatted view of the refund record.
+ *
+ * Templates are keyed by intent, with one explanation line per refund status.  Returns
+ * null when no template fits (unknown status, REJECTED, an ETA question without a date);
+ * the caller then falls back to the LLM.
+ */
+@Component
+public class TemplateAnswerEngine {
+
+    private static final DateTimeFormatter ETA_DATE =
+        DateTimeFormatter.ofPattern("MMMM d, yyyy", Locale.US).withZone(ZoneOffset.UTC);
+
+    // REJECTED has no line on purpose: the user needs the reason, which is an LLM turn
+    private static final Map<RefundStatus, String> STATUS_LINES = new EnumMap<>(Map.of(
+        RefundStatus.NOT_FOUND,  "We couldn't find a filed return for you yet. If you filed recently, "
+            + "it can take a few days to show up.",
+        RefundStatus.RECEIVED,   "Your return has been received and is waiting to be processed.",
+        RefundStatus.PROCESSING, "Your return is being processed. Most refunds are issued within 21 days "
+            + "of the return being received.",
+        RefundStatus.APPROVED,   "Your refund has been approved and is scheduled to be sent.",
+        RefundStatus.SENT,       "Your refund has been sent. Banks usually post direct deposits within a "
+            + "few business days.",
+        RefundStatus.AVAILABLE,  "Your refund is available. There is nothing else you need to do."
+    ));
+
+    public AssistantChatResponse render(
+        AssistantIntent intent, RefundStatusResponse refund, List<Citation> citations, List<Action> actions
+    ) {
+        RefundStatus status = parseStatus(refund.status());
+        String line = status == null ? null : STATUS_LINES.get(status);
+        if (line == null) return null;
+
+        String markdown = switch (intent) {
+            case REFUND_STATUS -> statusAnswer(refund, status, line);
+            case REFUND_ETA    -> etaAnswer(refund, status, line);
+            default            -> null;
+        };
+        return markdown == null ? null : new AssistantChatResponse(markdown, citations, actions, Confidence.HIGH);
+    }
+
+    private static String statusAnswer(RefundStatusResponse refund, RefundStatus status, String line) {
+        StringBuilder sb = new StringBuilder(192)
+            .append("**Status:** ").append(label(status));
+        if (status != RefundStatus.NOT_FOUND) {
+            sb.append(" (tax year ").append(refund.taxYear()).append(')');
+        }
+        sb.append("\n\n").append(line);
+        String amount = formatAmount(refund.expectedAmount());
+        if (amount != null && status != RefundStatus.NOT_FOUND) {
+            sb.append("\n\n**Expected amount:** ").append(amount);
+        }
+        return sb.toString();
+    }
+
+    private static String etaAnswer(RefundStatusResponse refund, RefundStatus status, String line) {
+        if (status == RefundStatus.AVAILABLE) {
+            return "**Your refund is available now.**\n\n" + line;
+        }
+        if (refund.availableAtEstimated() == null) return null;
+        return "**Estimated availability:** " + ETA_DATE.format(refund.availableAtEstimated())
+            + "\n\n**Status:** " + label(status) + "\n\n" + line;
+    }
+
+    private static RefundStatus parseStatus(String status) {
+        if (status == null) return null;
+        try {
+            return RefundStatus.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String label(RefundStatus status) {
+        return switch (status) {
+            case NOT_FOUND  -> "Not found";
+            case RECEIVED   -> "Received";
+            case PROCESSING -> "Processing";
+            case APPROVED   -> "Approved";
+            case SENT       -> "Sent";
+            case AVAILABLE  -> "Available";
+            case REJECTED   -> "Rejected";
+        };
+    }
+
+    private static String formatAmount(BigDecimal amount) {
+        if (amount == null) return null;
+        return NumberFormat.getCurrencyInstance(Locale.US).format(amount);
+    }
+}
@@ -0,0 +1,23 @@
+package com.intuit.taxrefund.auth;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Refresh token storage, see {@link com.intuit.taxrefund.auth.service.RefreshTokenStore}.
+ *
+ * @param writeQueueCapacity Postgres writes waiting for the flusher; when full, writes go through synchronously
+ * @param flushIntervalMs    how often queued writes are flushed
+ * @param flushBatchSize     writes per flush transaction
+ * @param purgeIntervalMs    how often expired and revoked rows are deleted
+ * @param purgeBatchSize     rows per delete statement
+ * @param purgeMaxBatches    delete statements per purge run, so one run cannot hold a connection for long
+ */
+@ConfigurationProperties(prefix = "app.security.refresh-tokens")
+public record RefreshTokenProps(
+    int writeQueueCapacity,
+    long flushIntervalMs,
+    int flushBatchSize,
+    long purgeIntervalMs,
+    int purgeBatchSize,
+    int purgeMaxBatches
+) {}
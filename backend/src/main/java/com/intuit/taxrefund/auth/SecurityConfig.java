@@ -6,6 +6,7 @@ import com.intuit.taxrefund.auth.jwt.JwtAuthenticationFilter;
 import com.intuit.taxrefund.shared.web.RequestCorrelationFilter;
 import com.intuit.taxrefund.shared.ratelimit.RateLimitFilter;
 import com.intuit.taxrefund.shared.web.SecurityHeadersFilter;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -50,6 +51,8 @@ public class SecurityConfig {
             }))
 
             .authorizeHttpRequests(auth -> auth
+                // Completion dispatch of a streamed (SSE) response; the request was authorized on entry
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers(HttpMethod.POST, "/api/auth/register").permitAll()
                 .requestMatchers(HttpMethod.POST, "/api/auth/login").permitAll()
                 .requestMatchers(HttpMethod.POST, "/api/auth/refresh").permitAll()
@@ -1,6 +1,8 @@
 package com.intuit.taxrefund.auth.jwt;
 
+import com.intuit.taxrefund.shared.concurrent.BoundedMaps;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.apache.logging.log4j.LogManager;
@@ -9,10 +11,26 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Issues and validates access tokens.
+ *
+ * Validation uses one prebuilt parser (JwtParser is immutable and thread-safe) and remembers
+ * the principal of every token it verified, keyed by the token's SHA-256 so raw tokens are not
+ * kept on the heap, until the token's own expiry. A client repeating the same bearer token
+ * then costs a hash and a map lookup instead of an HMAC check plus claims parsing. The cache
+ * holds at most app.security.jwt.cacheMaxEntries tokens (0 disables it); when full, expired
+ * entries are dropped, and if that is not enough, the tenth closest to expiry.
+ */
 @Service
 public class JwtService {
     private static final Logger log = LogManager.getLogger(JwtService.class);
@@ -20,13 +38,21 @@ public class JwtService {
     private final SecretKey key;
     private final String issuer;
     private final long accessTokenMinutes;
+    private final Clock clock;
+    private final JwtParser parser;
+    private final int cacheMaxEntries;
+    private final ConcurrentHashMap<String, Verified> verified = new ConcurrentHashMap<>();
 
     public record JwtPrincipal(Long userId, String email, String role) {}
 
+    private record Verified(JwtPrincipal principal, long expiresAtMillis) {}
+
     public JwtService(
         @Value("${app.security.jwt.secret}") String secret,
         @Value("${app.security.jwt.issuer}") String issuer,
-        @Value("${app.security.jwt.accessTokenMinutes}") long accessTokenMinutes
+        @Value("${app.security.jwt.accessTokenMinutes}") long accessTokenMinutes,
+        @Value("${app.security.jwt.cacheMaxEntries:10000}") int cacheMaxEntries,
+        Clock clock
     ) {
         if (secret == null || secret.length() < 32) {
             throw new IllegalArgumentException("Jwt secret missing or less than 32 characters");
@@ -35,12 +61,20 @@ public class JwtService {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
         this.issuer = issuer;
         this.accessTokenMinutes = accessTokenMinutes;
+        this.clock = clock;
+        this.cacheMaxEntries = cacheMaxEntries;
+        this.parser = Jwts.parser()
+            .verifyWith(this.key)
+            .requireIssuer(issuer)
+            .clock(() -> Date.from(clock.instant()))
+            .build();
 
-        log.info("jwt_service_initialized issuer={} accessTokenMinutes={}", issuer, accessTokenMinutes);
+        log.info("jwt_service_initialized issuer={} accessTokenMinutes={} cacheMaxEntries={}",
+            issuer, accessTokenMinutes, cacheMaxEntries);
     }
 
     public String createAccessToken(Long userId, String email, String role) {
-        Instant now = Instant.now();
+        Instant now = clock.instant();
         Instant exp = now.plus(this.accessTokenMinutes, ChronoUnit.MINUTES);
 
         String jwt = Jwts.builder()
@@ -58,22 +92,50 @@ public class JwtService {
     }
 
     public JwtPrincipal parseAndValidate(String jwt) {
+        if (cacheMaxEntries <= 0) return verify(jwt).principal();
+
+        String cacheKey = sha256(jwt);
+        Verified hit = verified.get(cacheKey);
+        if (hit != null) {
+            if (clock.millis() < hit.expiresAtMillis()) return hit.principal();
+            verified.remove(cacheKey, hit);
+        }
+
+        Verified v = verify(jwt);
+        if (v.expiresAtMillis() > clock.millis()) remember(cacheKey, v);
+        return v.principal();
+    }
+
+    private Verified verify(String jwt) {
         try {
-            Claims claims = Jwts.parser()
-                .verifyWith(this.key)
-                .requireIssuer(issuer)
-                .build()
-                .parseSignedClaims(jwt)
-                .getPayload();
+            Claims claims = parser.parseSignedClaims(jwt).getPayload();
 
             Long userId = Long.valueOf(claims.getSubject());
             String email = claims.get("email", String.class);
             String role = claims.get("role", String.class);
+            Date exp = claims.getExpiration();
 
-            return new JwtPrincipal(userId, email, role);
+            return new Verified(new JwtPrincipal(userId, email, role), exp == null ? 0 : exp.getTime());
         } catch (Exception e) {
             log.warn("jwt_parse_failed err={}", e.toString());
             throw e;
         }
     }
+
+    private void remember(String cacheKey, Verified v) {
+        if (verified.size() >= cacheMaxEntries) {
+            long now = clock.millis();
+            BoundedMaps.makeRoom(verified, cacheMaxEntries, x -> now >= x.expiresAtMillis(), Verified::expiresAtMillis);
+        }
+        verified.put(cacheKey, v);
+    }
+
+    private static String sha256(String jwt) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(jwt.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JRE has SHA-256
+        }
+    }
 }
\ No newline at end of file
@@ -2,9 +2,46 @@ package com.intuit.taxrefund.auth.repository;
 
 import com.intuit.taxrefund.auth.model.RefreshToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
     Optional<RefreshToken> findByJti(String jti);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+        insert into refresh_token (user_id, token_hash, jti, expires_at, revoked, created_at)
+        values (:userId, :tokenHash, :jti, :expiresAt, false, now())
+        on conflict (jti) do nothing
+        """, nativeQuery = true)
+    int insertIfAbsent(long userId, String tokenHash, String jti, Instant expiresAt);
+
+    /** Revokes the tokens that are not revoked yet; returns how many were. */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        update refresh_token
+        set revoked = true
+        where jti in (:jtis) and revoked = false
+        """, nativeQuery = true)
+    int revokeAll(List<String> jtis);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+        delete from refresh_token
+        where id in (
+          select id from refresh_token
+          where expires_at < :now or revoked = true
+          limit :limit
+          for update skip locked
+        )
+        """, nativeQuery = true)
+    int deleteExpiredOrRevoked(Instant now, int limit);
 }
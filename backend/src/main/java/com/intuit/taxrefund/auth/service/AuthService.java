@@ -4,11 +4,8 @@ import com.intuit.taxrefund.auth.controller.dto.LoginRequest;
 import com.intuit.taxrefund.auth.controller.dto.RegisterRequest;
 import com.intuit.taxrefund.auth.jwt.JwtService;
 import com.intuit.taxrefund.auth.model.AppUser;
-import com.intuit.taxrefund.auth.model.RefreshToken;
 import com.intuit.taxrefund.auth.model.Role;
-import com.intuit.taxrefund.auth.repository.RefreshTokenRepository;
 import com.intuit.taxrefund.auth.repository.UserRepository;
-import jakarta.transaction.Transactional;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,6 +15,7 @@ import org.springframework.stereotype.Service;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.time.Duration;
+import java.time.Clock;
 import java.time.Instant;
 import java.util.Base64;
 import java.util.UUID;
@@ -27,26 +25,29 @@ public class AuthService {
     private static final Logger log = LogManager.getLogger(AuthService.class);
 
     private final UserRepository userRepo;
-    private final RefreshTokenRepository refreshRepo;
+    private final RefreshTokenStore refreshTokens;
     private final PasswordPolicy passwordPolicy;
     private final JwtService jwtService;
     private final long refreshTokenDays;
     private final PasswordEncoder passwordEncoder;
+    private final Clock clock;
 
     public AuthService(
         UserRepository userRepo,
-        RefreshTokenRepository refreshRepo,
+        RefreshTokenStore refreshTokens,
         JwtService jwtService,
         PasswordPolicy passwordPolicy,
         PasswordEncoder passwordEncoder,
-        @Value("${app.security.jwt.refreshTokenDays}") long refreshTokenDays
+        @Value("${app.security.jwt.refreshTokenDays}") long refreshTokenDays,
+        Clock clock
     ) {
         this.userRepo = userRepo;
-        this.refreshRepo = refreshRepo;
+        this.refreshTokens = refreshTokens;
         this.passwordPolicy = passwordPolicy;
         this.jwtService = jwtService;
         this.passwordEncoder = passwordEncoder;
         this.refreshTokenDays = refreshTokenDays;
+        this.clock = clock;
 
         log.info("auth_service_initialized refreshTokenDays={}", refreshTokenDays);
     }
@@ -105,43 +106,43 @@ public class AuthService {
 
         try {
             ParseRefreshToken parsed = ParseRefreshToken.parse(refreshCookie);
-            this.refreshRepo.findByJti(parsed.jti()).ifPresent(rt -> {
-                rt.revoke();
-                this.refreshRepo.save(rt);
-                log.info("logout_revoked_refresh jti={}", parsed.jti());
-            });
+            this.refreshTokens.consume(parsed.jti()).ifPresent(rt ->
+                log.info("logout_revoked_refresh jti={}", parsed.jti()));
         } catch (Exception e) {
             log.warn("logout_parse_failed err={}", e.toString());
         }
     }
 
-    @Transactional
     public AuthTokens refresh(String refreshCookie) {
         ParseRefreshToken parsed = ParseRefreshToken.parse(refreshCookie);
 
-        RefreshToken stored = refreshRepo.findByJti(parsed.jti())
+        // revokes the token as it reads it: a concurrent refresh with the same token sees it revoked
+        RefreshTokenStore.Entry stored = refreshTokens.consume(parsed.jti())
             .orElseThrow(() -> {
                 log.warn("refresh_invalid_jti jti={}", parsed.jti());
                 return new IllegalArgumentException("Invalid refresh token");
             });
 
-        if (stored.isRevoked() || stored.getExpiresAt().isBefore(Instant.now())) {
+        if (stored.wasRevoked() || stored.expiresAt().isBefore(clock.instant())) {
             log.warn("refresh_revoked_or_expired jti={} revoked={} expiresAt={}",
-                parsed.jti(), stored.isRevoked(), stored.getExpiresAt());
+                parsed.jti(), stored.wasRevoked(), stored.expiresAt());
             throw new IllegalArgumentException("Refresh token revoked or expired");
         }
 
-        stored.revoke();
-        refreshRepo.save(stored);
-
         String refreshInputHash = sha256Base64(refreshCookie);
-        if (!refreshInputHash.equals(stored.getTokenHash())) {
+        if (!refreshInputHash.equals(stored.tokenHash())) {
             log.warn("refresh_hash_mismatch jti={}", parsed.jti());
             throw new IllegalArgumentException("Invalid refresh token");
         }
 
-        AuthTokens tokens = issueTokens(stored.getUser(), true);
-        log.info("refresh_success userId={} rotated=true", stored.getUser().getId());
+        AppUser user = userRepo.findById(stored.userId())
+            .orElseThrow(() -> {
+                log.warn("refresh_unknown_user jti={} userId={}", parsed.jti(), stored.userId());
+                return new IllegalArgumentException("Invalid refresh token");
+            });
+
+        AuthTokens tokens = issueTokens(user, true);
+        log.info("refresh_success userId={} rotated=true", user.getId());
         return tokens;
     }
 
@@ -161,9 +162,9 @@ public class AuthService {
         String refreshHash = sha256Base64(rawRefresh);
 
         Duration refreshDuration = Duration.ofDays(refreshTokenDays);
-        Instant exp = Instant.now().plus(refreshDuration);
+        Instant exp = clock.instant().plus(refreshDuration);
 
-        refreshRepo.save(new RefreshToken(user, refreshHash, jti, exp));
+        refreshTokens.save(user.getId(), jti, refreshHash, exp);
 
         log.debug("refresh_token_issued userId={} jti={} exp={}", user.getId(), jti, exp);
         return new AuthTokens(accessToken, rawRefresh, refreshDuration);
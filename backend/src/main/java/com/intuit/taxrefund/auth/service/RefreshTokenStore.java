@@ -0,0 +1,263 @@
+package com.intuit.taxrefund.auth.service;
+
+import com.intuit.taxrefund.auth.RefreshTokenProps;
+import com.intuit.taxrefund.auth.model.RefreshToken;
+import com.intuit.taxrefund.auth.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Refresh tokens, with Redis as the hot path and Postgres as the durable copy.
+ *
+ * Each token is a Redis hash rt:{jti} {u: user id, h: token hash, e: expiry millis,
+ * r: revoked} that expires with the token. Issuing writes the hash; {@link #consume} reads
+ * and revokes it in one script run, so two concurrent refreshes with the same token cannot
+ * both see it unrevoked. The same changes are queued and written to refresh_token in
+ * batches, one transaction per flush, instead of a transaction per refresh.
+ *
+ * Tokens Redis does not know (issued before it held them, or lost with it) are looked up in
+ * Postgres and revoked there with a conditional update, which is just as atomic. While Redis
+ * is unreachable, or when the queue is full, the caller writes its own change to Postgres
+ * synchronously, together with anything still queued for the same token; draining the rest
+ * of the queue is left to the scheduled flush, so no request waits on a backlog. Queued
+ * writes not yet flushed when a node dies are lost from Postgres, but not from Redis, which
+ * still has the tokens until they expire.
+ *
+ * Expired and revoked rows are purged in batches on a schedule; Redis copies expire on their own.
+ *
+ *   auth.refresh_tokens.lookups{source=redis|db}   counter
+ *   auth.refresh_tokens.write_queue                gauge
+ *   auth.refresh_tokens.write_failures             counter
+ *   auth.refresh_tokens.purged                     counter
+ */
+@Component
+public class RefreshTokenStore {
+
+    private static final Logger log = LogManager.getLogger(RefreshTokenStore.class);
+
+    private static final RefreshTokenProps DEFAULTS = new RefreshTokenProps(10_000, 200, 500, 3_600_000, 1_000, 100);
+
+    // KEYS[1]: rt:{jti}. ARGV: user id, token hash, expiry millis
+    private static final DefaultRedisScript<Long> SAVE = new DefaultRedisScript<>("""
+        redis.call('HSET', KEYS[1], 'u', ARGV[1], 'h', ARGV[2], 'e', ARGV[3], 'r', '0')
+        redis.call('PEXPIREAT', KEYS[1], ARGV[3])
+        return 1
+        """, Long.class);
+
+    // KEYS[1]: rt:{jti}. Reply: nil when unknown, else {u, h, e, r} as stored before revoking it
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CONSUME = new DefaultRedisScript<>("""
+        local v = redis.call('HMGET', KEYS[1], 'u', 'h', 'e', 'r')
+        if not v[1] then return nil end
+        if v[4] ~= '1' then redis.call('HSET', KEYS[1], 'r', '1') end
+        return v
+        """, List.class);
+
+    /**
+     * A stored token. {@code wasRevoked} is its state before {@link #consume}; if false,
+     * this caller is the one that revoked it.
+     */
+    public record Entry(long userId, String tokenHash, Instant expiresAt, boolean wasRevoked) {}
+
+    /** A change waiting to be written to Postgres; {@code tokenHash} is null for a revoke. */
+    private record Write(String jti, long userId, String tokenHash, Instant expiresAt) {}
+
+    private final StringRedisTemplate redis;
+    private final RefreshTokenRepository repo;
+    private final TransactionTemplate tx;
+    private final MeterRegistry meters;
+    private final Clock clock;
+    private final RefreshTokenProps props;
+    private final LinkedBlockingQueue<Write> writes;
+    /** Held while writing a batch to Postgres, so queued and direct writes land in order. */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public RefreshTokenStore(StringRedisTemplate redis, RefreshTokenRepository repo, TransactionTemplate tx,
+                             RefreshTokenProps props, MeterRegistry meters, Clock clock) {
+        this.redis = redis;
+        this.repo = repo;
+        this.tx = tx;
+        this.meters = meters;
+        this.clock = clock;
+        this.props = props == null ? DEFAULTS : props;
+        this.writes = new LinkedBlockingQueue<>(Math.max(1, this.props.writeQueueCapacity()));
+
+        meters.gaugeCollectionSize("auth.refresh_tokens.write_queue", List.of(), writes);
+        log.info("refresh_token_store_initialized writeQueueCapacity={} flushBatchSize={}",
+            this.props.writeQueueCapacity(), this.props.flushBatchSize());
+    }
+
+    public void save(long userId, String jti, String tokenHash, Instant expiresAt) {
+        Write w = new Write(jti, userId, tokenHash, expiresAt);
+        try {
+            redis.execute(SAVE, List.of(key(jti)), Long.toString(userId), tokenHash,
+                Long.toString(expiresAt.toEpochMilli()));
+        } catch (Exception e) {
+            // the token must be in Postgres before the client can use it
+            log.warn("refresh_token_redis_save_failed jti={} err={}", jti, e.toString());
+            writeThrough(w);
+            return;
+        }
+        enqueue(w);
+    }
+
+    /** Revokes the token and returns it as it was, or empty if it is unknown. */
+    public Optional<Entry> consume(String jti) {
+        List<?> v;
+        try {
+            v = redis.execute(CONSUME, List.of(key(jti)));
+        } catch (Exception e) {
+            log.warn("refresh_token_redis_consume_failed jti={} err={}", jti, e.toString());
+            return consumeFromDb(jti);
+        }
+        if (v == null || v.isEmpty() || v.get(0) == null) {
+            return consumeFromDb(jti);
+        }
+
+        meters.counter("auth.refresh_tokens.lookups", "source", "redis").increment();
+        Entry entry = new Entry(
+            Long.parseLong(v.get(0).toString()),
+            v.get(1).toString(),
+            Instant.ofEpochMilli(Long.parseLong(v.get(2).toString())),
+            "1".equals(String.valueOf(v.get(3)))
+        );
+        if (!entry.wasRevoked()) enqueue(new Write(jti, entry.userId(), null, null));
+        return Optional.of(entry);
+    }
+
+    private Optional<Entry> consumeFromDb(String jti) {
+        meters.counter("auth.refresh_tokens.lookups", "source", "db").increment();
+        Optional<RefreshToken> row = repo.findByJti(jti);
+        // issued moments ago and still queued: write just that one and look again
+        if (row.isEmpty() && writeThroughQueued(jti, null)) row = repo.findByJti(jti);
+        if (row.isEmpty()) return Optional.empty();
+
+        RefreshToken rt = row.get();
+        boolean revokedNow = !rt.isRevoked() && repo.revokeAll(List.of(jti)) == 1;
+        return Optional.of(new Entry(rt.getUser().getId(), rt.getTokenHash(), rt.getExpiresAt(), !revokedNow));
+    }
+
+    private void enqueue(Write w) {
+        // full: write this one ourselves rather than drop it; the flush catches up with the rest
+        if (!writes.offer(w)) writeThrough(w);
+    }
+
+    private void writeThrough(Write w) {
+        writeThroughQueued(w.jti(), w);
+    }
+
+    /**
+     * Writes the changes still queued for {@code jti}, then {@code w} if given, so a revoke
+     * never reaches the table before the insert it revokes. Returns whether anything was written.
+     */
+    private boolean writeThroughQueued(String jti, Write w) {
+        flushLock.lock();
+        try {
+            List<Write> mine = new ArrayList<>(2);
+            writes.removeIf(q -> {
+                if (!q.jti().equals(jti)) return false;
+                mine.add(q);
+                return true;
+            });
+            if (w != null) mine.add(w);
+            if (mine.isEmpty()) return false;
+            tx.executeWithoutResult(s -> apply(mine));
+            return true;
+        } catch (Exception e) {
+            meters.counter("auth.refresh_tokens.write_failures").increment();
+            throw e;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes queued changes to Postgres, one transaction per batch. The lock is taken per
+     * batch, so a direct write waits for at most one batch, not the whole queue.
+     */
+    @Scheduled(fixedDelayString = "${app.security.refresh-tokens.flush-interval-ms:200}")
+    public void flush() {
+        int batchSize = Math.max(1, props.flushBatchSize());
+        List<Write> batch = new ArrayList<>(Math.min(batchSize, writes.size()));
+        while (true) {
+            flushLock.lock();
+            try {
+                if (writes.drainTo(batch, batchSize) == 0) return;
+                try {
+                    tx.executeWithoutResult(s -> apply(batch));
+                } catch (Exception e) {
+                    log.warn("refresh_token_flush_failed size={} err={}", batch.size(), e.toString());
+                    // one bad row (e.g. its user was deleted) must not lose the rest
+                    for (Write w : batch) {
+                        try {
+                            apply(List.of(w));
+                        } catch (Exception one) {
+                            meters.counter("auth.refresh_tokens.write_failures").increment();
+                            log.warn("refresh_token_write_failed jti={} err={}", w.jti(), one.toString());
+                        }
+                    }
+                }
+            } finally {
+                flushLock.unlock();
+            }
+            batch.clear();
+        }
+    }
+
+    /** Inserts first: a revoke in the same batch may be for a token issued in it. */
+    private void apply(List<Write> batch) {
+        List<String> revokes = new ArrayList<>();
+        for (Write w : batch) {
+            if (w.tokenHash() == null) {
+                revokes.add(w.jti());
+            } else {
+                repo.insertIfAbsent(w.userId(), w.tokenHash(), w.jti(), w.expiresAt());
+            }
+        }
+        if (!revokes.isEmpty()) repo.revokeAll(revokes);
+    }
+
+    /** Deletes expired and revoked rows, a batch per statement. */
+    @Scheduled(fixedDelayString = "${app.security.refresh-tokens.purge-interval-ms:3600000}")
+    public void purge() {
+        int batchSize = Math.max(1, props.purgeBatchSize());
+        int total = 0;
+        try {
+            for (int i = 0; i < Math.max(1, props.purgeMaxBatches()); i++) {
+                int deleted = repo.deleteExpiredOrRevoked(clock.instant(), batchSize);
+                total += deleted;
+                if (deleted < batchSize) break;
+            }
+        } catch (Exception e) {
+            log.warn("refresh_token_purge_failed deleted={} err={}", total, e.toString());
+        }
+        if (total > 0) {
+            meters.counter("auth.refresh_tokens.purged").increment(total);
+            log.info("refresh_token_purged deleted={}", total);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    static String key(String jti) {
+        return "rt:" + jti;
+    }
+}
@@ -5,10 +5,22 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "ai")
 public record AiProps(
     String llmProvider,          // mock | openai | gemini (future)
-    OpenAi openai
+    OpenAi openai,
+    Resilience resilience
 ) {
     public record OpenAi(
         String apiKey,
-        String model
+        String model,
+        String baseUrl,          // default https://api.openai.com/v1
+        int connectTimeoutMs,    // 0 → 3s
+        int requestTimeoutMs,    // 0 → 30s, until the response (or first stream bytes) arrives
+        double inputUsdPerMillionTokens,   // price list, for the cost metric
+        double outputUsdPerMillionTokens
     ) {}
-}
\ No newline at end of file
+
+    public record Resilience(
+        int hedgeAfterMs,            // 0 → off; answer with the mock if the primary is slower than this
+        int breakerFailureThreshold, // 0 → 5 consecutive failures open the provider's circuit
+        int breakerOpenSeconds       // 0 → 30s before a trial call is let through
+    ) {}
+}
@@ -0,0 +1,162 @@
+package com.intuit.taxrefund.llm;
+
+import java.util.function.Consumer;
+
+/**
+ * Pulls the value of one top-level string field out of a JSON object while it is still
+ * being generated, so the text can be forwarded before the closing brace arrives.
+ *
+ * Feed raw JSON text in whatever chunks the provider delivers; decoded characters of the
+ * target field are passed to {@code sink} once per {@link #feed} call. Everything outside
+ * that value (other fields, nested objects, a repeated key) is skipped. The complete JSON
+ * is still parsed normally once generation finishes; this only drives the live preview.
+ *
+ * Not thread-safe: one instance per stream.
+ */
+public class JsonFieldStreamExtractor {
+
+    private enum Mode { SCAN, AFTER_KEY, IN_VALUE, DONE }
+
+    private final String field;
+    private final Consumer<String> sink;
+
+    private Mode mode = Mode.SCAN;
+
+    // SCAN bookkeeping
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private boolean expectKey;
+    private boolean collectingKey;
+    private final StringBuilder key = new StringBuilder();
+
+    // IN_VALUE bookkeeping: pending escape sequence (\, \\uXXXX) and a held high surrogate
+    private final StringBuilder escape = new StringBuilder(6);
+    private char heldHighSurrogate;
+
+    public JsonFieldStreamExtractor(String field, Consumer<String> sink) {
+        this.field = field;
+        this.sink = sink;
+    }
+
+    public void feed(CharSequence chunk) {
+        if (mode == Mode.DONE || chunk == null || chunk.isEmpty()) return;
+
+        StringBuilder out = new StringBuilder(chunk.length());
+        for (int i = 0; i < chunk.length() && mode != Mode.DONE; i++) {
+            char ch = chunk.charAt(i);
+            switch (mode) {
+                case SCAN -> scan(ch);
+                case AFTER_KEY -> afterKey(ch);
+                case IN_VALUE -> value(ch, out);
+                default -> { }
+            }
+        }
+        if (!out.isEmpty()) sink.accept(out.toString());
+    }
+
+    /** True once the closing quote of the field value has been seen. */
+    public boolean isComplete() {
+        return mode == Mode.DONE;
+    }
+
+    private void scan(char ch) {
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+                if (collectingKey) key.append(ch);
+            } else if (ch == '\\') {
+                escaped = true;
+            } else if (ch == '"') {
+                inString = false;
+                if (collectingKey) {
+                    collectingKey = false;
+                    if (field.contentEquals(key)) mode = Mode.AFTER_KEY;
+                }
+            } else if (collectingKey && key.length() <= field.length()) {
+                key.append(ch);
+            }
+            return;
+        }
+
+        switch (ch) {
+            case '"' -> {
+                inString = true;
+                collectingKey = depth == 1 && expectKey;
+                key.setLength(0);
+            }
+            case '{', '[' -> {
+                depth++;
+                expectKey = ch == '{' && depth == 1;
+            }
+            case '}', ']' -> depth--;
+            case ',' -> expectKey = depth == 1;
+            case ':' -> expectKey = false;
+            default -> { }
+        }
+    }
+
+    private void afterKey(char ch) {
+        if (ch == '"') {
+            mode = Mode.IN_VALUE;
+        } else if (ch != ':' && !Character.isWhitespace(ch)) {
+            // Key matched but the value is not a string (e.g. null): nothing to stream
+            mode = Mode.DONE;
+        }
+    }
+
+    private void value(char ch, StringBuilder out) {
+        if (!escape.isEmpty()) {
+            escape.append(ch);
+            if (escape.length() == 2 && ch != 'u') {
+                emit(unescape(ch), out);
+                escape.setLength(0);
+            } else if (escape.length() == 6) {
+                emit(parseHex(escape), out);
+                escape.setLength(0);
+            }
+            return;
+        }
+
+        if (ch == '\\') {
+            escape.append(ch);
+        } else if (ch == '"') {
+            if (heldHighSurrogate != 0) out.append(heldHighSurrogate);
+            mode = Mode.DONE;
+        } else {
+            emit(ch, out);
+        }
+    }
+
+    // A high surrogate is held until its pair arrives so a chunk never ends mid code point
+    private void emit(char ch, StringBuilder out) {
+        if (heldHighSurrogate != 0) {
+            out.append(heldHighSurrogate);
+            heldHighSurrogate = 0;
+        }
+        if (Character.isHighSurrogate(ch)) {
+            heldHighSurrogate = ch;
+        } else {
+            out.append(ch);
+        }
+    }
+
+    private static char unescape(char ch) {
+        return switch (ch) {
+            case 'n' -> '\n';
+            case 't' -> '\t';
+            case 'r' -> '\r';
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            default -> ch; // \" \\ \/
+        };
+    }
+
+    private static char parseHex(CharSequence esc) {
+        try {
+            return (char) Integer.parseInt(esc.subSequence(2, 6).toString(), 16);
+        } catch (NumberFormatException e) {
+            return '�';
+        }
+    }
+}
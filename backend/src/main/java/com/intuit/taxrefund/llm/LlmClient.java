@@ -1,6 +1,8 @@
 package com.intuit.taxrefund.llm;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface LlmClient {
 
@@ -23,5 +25,33 @@ public interface LlmClient {
      * Generate JSON text that must conform to the provided JSON schema.
      * Implementations should throw on failures (router handles fallback).
      */
-    String generateStructuredJson(String developerPrompt, String userPrompt, Map<String, Object> jsonSchema);
-}
\ No newline at end of file
+    LlmOutput generateStructuredJson(String developerPrompt, String userPrompt, Map<String, Object> jsonSchema);
+
+    /**
+     * Asynchronous variant of {@link #generateStructuredJson}: failures complete the future
+     * exceptionally instead of throwing. The default runs the blocking call on the caller's
+     * thread, which suits in-process clients such as the mock.
+     */
+    default CompletableFuture<LlmOutput> generateStructuredJsonAsync(
+        String developerPrompt, String userPrompt, Map<String, Object> jsonSchema
+    ) {
+        try {
+            return CompletableFuture.completedFuture(generateStructuredJson(developerPrompt, userPrompt, jsonSchema));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Streaming variant of {@link #generateStructuredJson}: raw JSON text is passed to
+     * {@code onDelta} as it is generated, and the complete output is returned at the end.
+     * The default has no streaming support and delivers the whole result as one delta.
+     */
+    default LlmOutput streamStructuredJson(
+        String developerPrompt, String userPrompt, Map<String, Object> jsonSchema, Consumer<String> onDelta
+    ) {
+        LlmOutput output = generateStructuredJson(developerPrompt, userPrompt, jsonSchema);
+        onDelta.accept(output.json());
+        return output;
+    }
+}
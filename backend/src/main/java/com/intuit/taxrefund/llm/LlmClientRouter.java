@@ -1,20 +1,53 @@
 package com.intuit.taxrefund.llm;
 
+import com.intuit.taxrefund.shared.concurrent.CircuitBreaker;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Component;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
+/**
+ * Picks the configured provider and falls back to the mock when it cannot answer.
+ *
+ * Each provider has a {@link CircuitBreaker}: after ai.resilience.breakerFailureThreshold
+ * consecutive failures the provider is skipped for ai.resilience.breakerOpenSeconds and
+ * calls go straight to the mock, instead of each waiting out a timeout. With
+ * ai.resilience.hedgeAfterMs set, a call still running after that budget is answered by
+ * the mock and the provider's request is cancelled. The provider is paid for it all the same,
+ * so its outcome (the late answer, or null if the cancel won) goes to the caller's
+ * {@link Abandoned} callback to be counted; for the breaker an abandoned call is a failure.
+ *
+ * Every call is timed and every fallback counted in {@link LlmMetrics}.
+ */
 @Component
 public class LlmClientRouter {
 
+    private static final Logger log = LogManager.getLogger(LlmClientRouter.class);
+
+    private static final int DEFAULT_BREAKER_THRESHOLD = 5;
+    private static final Duration DEFAULT_BREAKER_OPEN = Duration.ofSeconds(30);
+
     private final AiProps props;
     private final MockLlmClient mock;
     private final OpenAiLlmClient openai;
+    private final Clock clock;
+    private final LlmMetrics metrics;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
 
-    public LlmClientRouter(AiProps props, MockLlmClient mock, OpenAiLlmClient openai) {
+    public LlmClientRouter(AiProps props, MockLlmClient mock, OpenAiLlmClient openai, Clock clock, LlmMetrics metrics) {
         this.props = props;
         this.mock = mock;
         this.openai = openai;
+        this.clock = clock;
+        this.metrics = metrics;
     }
 
     public LlmClient primary() {
@@ -26,17 +59,211 @@ public class LlmClientRouter {
         };
     }
 
-    public String callWithFallback(String developerPrompt, String userPrompt, Map<String, Object> schema) {
+    /**
+     * Model output plus which client produced it and how long the call took.
+     *
+     * @param fallback true when the primary was unavailable, failed, was circuit-broken or
+     *                 too slow, and the mock answered
+     * @param latency  from the start of the call until this answer was available
+     */
+    public record Completion(LlmOutput output, String provider, String model, boolean fallback, Duration latency) {
+        public String json() {
+            return output.json();
+        }
+    }
+
+    /**
+     * Told about a primary call the hedge answered for. {@code lateOutput} is its answer if it
+     * still arrived, or null when it was cancelled first (usage unknown).
+     */
+    @FunctionalInterface
+    public interface Abandoned {
+        Abandoned IGNORE = (provider, model, lateOutput) -> { };
+
+        void primaryDone(String provider, String model, LlmOutput lateOutput);
+    }
+
+    public Completion callWithFallback(String developerPrompt, String userPrompt, Map<String, Object> schema) {
+        return callWithFallback(developerPrompt, userPrompt, schema, Abandoned.IGNORE);
+    }
+
+    public Completion callWithFallback(String developerPrompt, String userPrompt, Map<String, Object> schema,
+                                       Abandoned abandoned) {
+        return callAsync(developerPrompt, userPrompt, schema, abandoned).join();
+    }
+
+    /**
+     * Non-blocking {@link #callWithFallback}. The future completes with the primary's answer,
+     * or with the mock's when the primary is unavailable, its circuit is open, it fails, or the
+     * hedge budget runs out first. It only fails if the mock itself fails.
+     */
+    public CompletableFuture<Completion> callAsync(
+        String developerPrompt, String userPrompt, Map<String, Object> schema
+    ) {
+        return callAsync(developerPrompt, userPrompt, schema, Abandoned.IGNORE);
+    }
+
+    public CompletableFuture<Completion> callAsync(
+        String developerPrompt, String userPrompt, Map<String, Object> schema, Abandoned abandoned
+    ) {
+        long start = System.nanoTime();
+        LlmClient primary = primary();
+        if (primary == mock) {
+            return CompletableFuture.completedFuture(mockCompletion(start, developerPrompt, userPrompt, schema));
+        }
+        if (!primary.isAvailable()) {
+            metrics.recordFallback(primary.provider(), "unavailable");
+            return CompletableFuture.completedFuture(mockCompletion(start, developerPrompt, userPrompt, schema));
+        }
+
+        CircuitBreaker breaker = breakerFor(primary);
+        if (!breaker.tryAcquire()) {
+            log.warn("llm_circuit_open provider={}", primary.provider());
+            metrics.recordFallback(primary.provider(), "circuit_open");
+            return CompletableFuture.completedFuture(mockCompletion(start, developerPrompt, userPrompt, schema));
+        }
+
+        CompletableFuture<Completion> result = new CompletableFuture<>();
+        CompletableFuture<LlmOutput> call;
+        try {
+            call = primary.generateStructuredJsonAsync(developerPrompt, userPrompt, schema);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+
+        // set by whichever finishes first, the primary call or the hedge
+        AtomicBoolean claimed = new AtomicBoolean(false);
+        call.whenComplete((output, err) -> {
+            Duration latency = Duration.ofNanos(System.nanoTime() - start);
+            metrics.recordCall(primary.provider(), primary.model(), "async", latency, err == null);
+            if (!claimed.compareAndSet(false, true)) {
+                // the caller already has the mock's answer; only the bill is left to count
+                if (err == null) {
+                    metrics.recordUsage(primary.provider(), primary.model(), output);
+                } else {
+                    log.warn("llm_primary_abandoned provider={} err={}", primary.provider(), err.toString());
+                }
+                breaker.onFailure();
+                abandoned.primaryDone(primary.provider(), primary.model(), err == null ? output : null);
+            } else if (err == null) {
+                breaker.onSuccess();
+                metrics.recordUsage(primary.provider(), primary.model(), output);
+                result.complete(answeredBy(primary, output, latency));
+            } else {
+                breaker.onFailure();
+                log.warn("llm_primary_failed provider={} breaker={} err={}",
+                    primary.provider(), breaker.state(), err.toString());
+                metrics.recordFallback(primary.provider(), "error");
+                completeWithMock(result, start, developerPrompt, userPrompt, schema);
+            }
+        });
+
+        int hedgeAfterMs = props.resilience() == null ? 0 : props.resilience().hedgeAfterMs();
+        if (hedgeAfterMs > 0) {
+            CompletableFuture<LlmOutput> primaryCall = call;
+            CompletableFuture.delayedExecutor(hedgeAfterMs, TimeUnit.MILLISECONDS).execute(() -> {
+                if (!claimed.compareAndSet(false, true)) return;
+                log.warn("llm_hedge_fired provider={} afterMs={}", primary.provider(), hedgeAfterMs);
+                metrics.recordFallback(primary.provider(), "hedge");
+                primaryCall.cancel(true);
+                completeWithMock(result, start, developerPrompt, userPrompt, schema);
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Streaming counterpart of {@link #callWithFallback}. Like it, this never fails because
+     * the primary did: while nothing has been streamed yet the mock's answer is streamed
+     * instead. Once the primary has emitted deltas, streaming a second answer after half of
+     * the first would garble the text, so the mock's answer is returned without deltas;
+     * callers treat the returned completion as authoritative over what was streamed.
+     */
+    public Completion streamWithFallback(
+        String developerPrompt, String userPrompt, Map<String, Object> schema, Consumer<String> onDelta
+    ) {
+        long start = System.nanoTime();
         LlmClient primary = primary();
 
-        if (primary.isAvailable()) {
-            try {
-                return primary.generateStructuredJson(developerPrompt, userPrompt, schema);
-            } catch (Exception ignored) {
-                // fall through to mock
+        if (primary != mock && !primary.isAvailable()) {
+            metrics.recordFallback(primary.provider(), "unavailable");
+        } else if (primary != mock) {
+            CircuitBreaker breaker = breakerFor(primary);
+            if (breaker.tryAcquire()) {
+                AtomicBoolean emitted = new AtomicBoolean(false);
+                try {
+                    LlmOutput output = primary.streamStructuredJson(developerPrompt, userPrompt, schema, delta -> {
+                        emitted.set(true);
+                        onDelta.accept(delta);
+                    });
+                    Duration latency = Duration.ofNanos(System.nanoTime() - start);
+                    breaker.onSuccess();
+                    metrics.recordCall(primary.provider(), primary.model(), "stream", latency, true);
+                    metrics.recordUsage(primary.provider(), primary.model(), output);
+                    return answeredBy(primary, output, latency);
+                } catch (RuntimeException e) {
+                    breaker.onFailure();
+                    metrics.recordCall(primary.provider(), primary.model(), "stream",
+                        Duration.ofNanos(System.nanoTime() - start), false);
+                    if (emitted.get()) {
+                        log.warn("llm_stream_interrupted provider={} breaker={} err={}",
+                            primary.provider(), breaker.state(), e.toString());
+                        metrics.recordFallback(primary.provider(), "stream_interrupted");
+                        return mockCompletion(start, developerPrompt, userPrompt, schema);
+                    }
+                    // nothing sent yet: fall through to mock
+                    log.warn("llm_primary_failed provider={} breaker={} stream=true err={}",
+                        primary.provider(), breaker.state(), e.toString());
+                    metrics.recordFallback(primary.provider(), "error");
+                }
+            } else {
+                log.warn("llm_circuit_open provider={} stream=true", primary.provider());
+                metrics.recordFallback(primary.provider(), "circuit_open");
             }
         }
 
-        return mock.generateStructuredJson(developerPrompt, userPrompt, schema);
+        LlmOutput output = mock.streamStructuredJson(developerPrompt, userPrompt, schema, onDelta);
+        Duration latency = Duration.ofNanos(System.nanoTime() - start);
+        metrics.recordCall(mock.provider(), mock.model(), "stream", latency, true);
+        return answeredBy(mock, output, latency);
+    }
+
+    /** Breaker state for a provider, for health and diagnostics. */
+    public CircuitBreaker.State breakerState(String provider) {
+        CircuitBreaker b = breakers.get(provider);
+        return b == null ? CircuitBreaker.State.CLOSED : b.state();
+    }
+
+    private CircuitBreaker breakerFor(LlmClient client) {
+        return breakers.computeIfAbsent(client.provider(), name -> {
+            AiProps.Resilience r = props.resilience();
+            int threshold = (r == null || r.breakerFailureThreshold() <= 0)
+                ? DEFAULT_BREAKER_THRESHOLD : r.breakerFailureThreshold();
+            Duration openFor = (r == null || r.breakerOpenSeconds() <= 0)
+                ? DEFAULT_BREAKER_OPEN : Duration.ofSeconds(r.breakerOpenSeconds());
+            return new CircuitBreaker("llm-" + name, threshold, openFor, clock);
+        });
+    }
+
+    private void completeWithMock(CompletableFuture<Completion> result, long start,
+                                  String developerPrompt, String userPrompt, Map<String, Object> schema) {
+        if (result.isDone()) return;
+        try {
+            result.complete(mockCompletion(start, developerPrompt, userPrompt, schema));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private Completion mockCompletion(long start,
+                                      String developerPrompt, String userPrompt, Map<String, Object> schema) {
+        long mockStart = System.nanoTime();
+        LlmOutput output = mock.generateStructuredJson(developerPrompt, userPrompt, schema);
+        metrics.recordCall(mock.provider(), mock.model(), "blocking", Duration.ofNanos(System.nanoTime() - mockStart), true);
+        return answeredBy(mock, output, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private Completion answeredBy(LlmClient client, LlmOutput output, Duration latency) {
+        return new Completion(output, client.provider(), client.model(), client != primary(), latency);
     }
-}
\ No newline at end of file
+}
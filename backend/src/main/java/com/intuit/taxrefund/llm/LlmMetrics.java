@@ -0,0 +1,75 @@
+package com.intuit.taxrefund.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Micrometer instrumentation for LLM calls.
+ *
+ *   llm.call.latency{provider,model,mode=blocking|async|stream,outcome=ok|error}  timer, histogram
+ *   llm.tokens{provider,model,type=input|output}                                  counter
+ *   llm.fallbacks{provider,reason=unavailable|circuit_open|error|hedge}            counter
+ *   assistant.llm.parse.failures{provider}                                         counter
+ *   assistant.llm.cost{intent,model}                                               counter, USD
+ *
+ * Cost uses the per-million-token prices in ai.openai.*UsdPerMillionTokens; the mock is free.
+ */
+@Component
+public class LlmMetrics {
+
+    private final MeterRegistry meters;
+    private final AiProps props;
+
+    public LlmMetrics(MeterRegistry meters, AiProps props) {
+        this.meters = meters;
+        this.props = props;
+    }
+
+    public void recordCall(String provider, String model, String mode, Duration latency, boolean ok) {
+        Timer.builder("llm.call.latency")
+            .tags("provider", provider, "model", model, "mode", mode, "outcome", ok ? "ok" : "error")
+            .publishPercentileHistogram()
+            .register(meters)
+            .record(latency);
+    }
+
+    public void recordUsage(String provider, String model, LlmOutput output) {
+        if (output.inputTokens() > 0) {
+            meters.counter("llm.tokens", "provider", provider, "model", model, "type", "input")
+                .increment(output.inputTokens());
+        }
+        if (output.outputTokens() > 0) {
+            meters.counter("llm.tokens", "provider", provider, "model", model, "type", "output")
+                .increment(output.outputTokens());
+        }
+    }
+
+    public void recordFallback(String provider, String reason) {
+        meters.counter("llm.fallbacks", "provider", provider, "reason", reason).increment();
+    }
+
+    public void recordParseFailure(String provider) {
+        meters.counter("assistant.llm.parse.failures", "provider", provider).increment();
+    }
+
+    /** USD cost of a call at the configured prices; 0 for providers without a price. */
+    public double costUsd(String provider, LlmOutput output) {
+        AiProps.OpenAi o = props.openai();
+        if (!"openai".equals(provider) || o == null) return 0.0;
+        return (output.inputTokens() * o.inputUsdPerMillionTokens()
+            + output.outputTokens() * o.outputUsdPerMillionTokens()) / 1_000_000.0;
+    }
+
+    public void recordCost(String intent, String model, double usd) {
+        if (usd <= 0) return;
+        Counter.builder("assistant.llm.cost")
+            .tags("intent", intent, "model", model)
+            .baseUnit("usd")
+            .register(meters)
+            .increment(usd);
+    }
+}
@@ -0,0 +1,13 @@
+package com.intuit.taxrefund.llm;
+
+/**
+ * Model output text plus the token usage the provider reported for it.
+ * Token counts are 0 when the provider does not report usage (the mock, a stream that
+ * ended before its usage event).
+ */
+public record LlmOutput(String json, long inputTokens, long outputTokens) {
+
+    public static LlmOutput of(String json) {
+        return new LlmOutput(json, 0, 0);
+    }
+}
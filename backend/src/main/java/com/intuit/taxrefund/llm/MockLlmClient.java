@@ -7,11 +7,14 @@ import org.springframework.stereotype.Component;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @Component
 public class MockLlmClient implements LlmClient {
 
     private static final String MODEL = "mock-assistant-v1";
+    // Roughly a few tokens per delta, like a real provider
+    private static final int STREAM_CHUNK_CHARS = 16;
 
     private final ObjectMapper om;
 
@@ -35,7 +38,11 @@ public class MockLlmClient implements LlmClient {
     }
 
     @Override
-    public String generateStructuredJson(String developerPrompt, String userPrompt, Map<String, Object> jsonSchema) {
+    public LlmOutput generateStructuredJson(String developerPrompt, String userPrompt, Map<String, Object> jsonSchema) {
+        return LlmOutput.of(buildJson(userPrompt));
+    }
+
+    private String buildJson(String userPrompt) {
         String answer = buildAnswerFromPrompt(userPrompt);
 
         Map<String, Object> out = new LinkedHashMap<>();
@@ -60,6 +67,21 @@ public class MockLlmClient implements LlmClient {
         }
     }
 
+    /**
+     * Simulated streaming: the same JSON as {@link #generateStructuredJson}, delivered in small
+     * chunks so the streaming path can be exercised locally and in tests without a provider.
+     */
+    @Override
+    public LlmOutput streamStructuredJson(
+        String developerPrompt, String userPrompt, Map<String, Object> jsonSchema, Consumer<String> onDelta
+    ) {
+        String json = buildJson(userPrompt);
+        for (int i = 0; i < json.length(); i += STREAM_CHUNK_CHARS) {
+            onDelta.accept(json.substring(i, Math.min(json.length(), i + STREAM_CHUNK_CHARS)));
+        }
+        return LlmOutput.of(json);
+    }
+
     private String buildAnswerFromPrompt(String userPrompt) {
         String question = extractQuestion(userPrompt);
         String taxYear = extractJsonField(userPrompt, "taxYear");
@@ -2,20 +2,35 @@ package com.intuit.taxrefund.llm;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.intuit.taxrefund.llm.AiProps;
-import com.intuit.taxrefund.llm.LlmClient;
+import com.fasterxml.jackson.databind.util.RawValue;
+import jakarta.annotation.PreDestroy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 @Component
 public class OpenAiLlmClient implements LlmClient {
@@ -24,16 +39,46 @@ public class OpenAiLlmClient implements LlmClient {
 
     private final AiProps aiProps;
     private final ObjectMapper om;
+    private static final String DEFAULT_BASE_URL = "https://api.openai.com/v1";
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(3);
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    // One JDK client for all three call styles: it keeps a connection pool (HTTP/2 where the
+    // server supports it) and completes async calls on virtual threads.
+    private final ExecutorService httpExecutor;
+    private final HttpClient http;
     private final RestClient rest;
 
+    // Serialized text.format for the last schema seen. Callers pass a constant schema, so
+    // after the first call the schema is neither walked nor re-serialized per request.
+    private volatile SerializedFormat lastFormat;
+
+    private record SerializedFormat(Map<String, Object> schema, RawValue json) {}
+
     public OpenAiLlmClient(AiProps aiProps, ObjectMapper om) {
         this.aiProps = aiProps;
         this.om = om;
+        this.httpExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.http = HttpClient.newBuilder()
+            .connectTimeout(connectTimeout())
+            .executor(httpExecutor)
+            .build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(http);
+        requestFactory.setReadTimeout(requestTimeout());
         this.rest = RestClient.builder()
-            .baseUrl("https://api.openai.com/v1")
+            .baseUrl(baseUrl())
+            .requestFactory(requestFactory)
             .build();
 
-        log.info("openai_llm_initialized enabled={} model={}", isAvailable(), model());
+        log.info("openai_llm_initialized enabled={} model={} connectTimeoutMs={} requestTimeoutMs={}",
+            isAvailable(), model(), connectTimeout().toMillis(), requestTimeout().toMillis());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        http.shutdownNow();
+        httpExecutor.shutdownNow();
     }
 
     @Override public String provider() { return "openai"; }
@@ -56,12 +101,30 @@ public class OpenAiLlmClient implements LlmClient {
         return (o == null) ? null : o.apiKey();
     }
 
+    private String baseUrl() {
+        AiProps.OpenAi o = aiProps.openai();
+        String url = (o == null) ? null : o.baseUrl();
+        return (url == null || url.isBlank()) ? DEFAULT_BASE_URL : url;
+    }
+
+    private Duration connectTimeout() {
+        AiProps.OpenAi o = aiProps.openai();
+        return (o == null || o.connectTimeoutMs() <= 0)
+            ? DEFAULT_CONNECT_TIMEOUT : Duration.ofMillis(o.connectTimeoutMs());
+    }
+
+    private Duration requestTimeout() {
+        AiProps.OpenAi o = aiProps.openai();
+        return (o == null || o.requestTimeoutMs() <= 0)
+            ? DEFAULT_REQUEST_TIMEOUT : Duration.ofMillis(o.requestTimeoutMs());
+    }
+
     /**
      * Calls OpenAI Responses API with Structured Outputs (JSON Schema).
-     * Returns the model's JSON text (not the full OpenAI payload).
+     * Returns the model's JSON text (not the full OpenAI payload) and the reported usage.
      */
     @Override
-    public String generateStructuredJson(String developerPrompt, String userPrompt, Map<String, Object> jsonSchema) {
+    public LlmOutput generateStructuredJson(String developerPrompt, String userPrompt, Map<String, Object> jsonSchema) {
         if (!isAvailable()) throw new IllegalStateException("OpenAI API key not configured");
 
         Map<String, Object> body = buildRequestBody(developerPrompt, userPrompt, jsonSchema);
@@ -87,26 +150,140 @@ public class OpenAiLlmClient implements LlmClient {
             throw e;
         }
 
-        return extractOutputText(raw);
+        return parseOutput(raw);
     }
 
-    private Map<String, Object> buildRequestBody(String developerPrompt, String userPrompt, Map<String, Object> jsonSchema) {
-        String name = String.valueOf(jsonSchema.getOrDefault("name", "assistant_response"));
-        boolean strict = Boolean.TRUE.equals(jsonSchema.getOrDefault("strict", Boolean.TRUE));
+    /**
+     * Non-blocking variant of {@link #generateStructuredJson}. The future fails with an
+     * {@link java.net.http.HttpTimeoutException} when no response arrives within the request
+     * timeout, and with IllegalStateException on an HTTP error or an unexpected payload.
+     * Cancelling the returned future cancels the HTTP exchange.
+     */
+    @Override
+    public CompletableFuture<LlmOutput> generateStructuredJsonAsync(
+        String developerPrompt, String userPrompt, Map<String, Object> jsonSchema
+    ) {
+        if (!isAvailable()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("OpenAI API key not configured"));
+        }
 
-        @SuppressWarnings("unchecked")
-        Map<String, Object> schemaOnly = (Map<String, Object>) jsonSchema.get("schema");
-        if (schemaOnly == null) {
-            throw new IllegalArgumentException("jsonSchema must contain key 'schema' with a JSON Schema object");
+        final HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(baseUrl() + "/responses"))
+                .timeout(requestTimeout())
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .header("Authorization", "Bearer " + apiKey())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(
+                    om.writeValueAsBytes(buildRequestBody(developerPrompt, userPrompt, jsonSchema))))
+                .build();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
         }
 
-        Map<String, Object> format = Map.of(
-            "type", "json_schema",
-            "name", name,
-            "strict", strict,
-            "schema", schemaOnly
-        );
+        CompletableFuture<HttpResponse<String>> sent =
+            http.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        CompletableFuture<LlmOutput> output = sent
+            .thenApply(res -> {
+                if (res.statusCode() >= 400) {
+                    log.error("openai_http_failed model={} status={} body={} async=true",
+                        model(), res.statusCode(), safeBody(res.body()));
+                    throw new IllegalStateException("OpenAI call failed with status " + res.statusCode());
+                }
+                return parseOutput(res.body());
+            })
+            .whenComplete((json, err) -> {
+                if (err != null && !(err.getCause() instanceof IllegalStateException)
+                    && !(err instanceof CancellationException) && !(err.getCause() instanceof CancellationException)) {
+                    log.error("openai_http_failed model={} err={} async=true", model(), err.toString());
+                }
+            });
+        // a dependent future does not pass cancellation back to the one it came from
+        output.whenComplete((json, err) -> {
+            if (err instanceof CancellationException) sent.cancel(true);
+        });
+        return output;
+    }
+
+    /**
+     * Same request with {@code "stream": true}. The Responses API answers with Server-Sent
+     * Events; {@code response.output_text.delta} carries the JSON text piece by piece,
+     * {@code response.output_text.done} the complete text and {@code response.completed}
+     * the usage.
+     */
+    @Override
+    public LlmOutput streamStructuredJson(
+        String developerPrompt, String userPrompt, Map<String, Object> jsonSchema, Consumer<String> onDelta
+    ) {
+        if (!isAvailable()) throw new IllegalStateException("OpenAI API key not configured");
+
+        Map<String, Object> body = buildRequestBody(developerPrompt, userPrompt, jsonSchema);
+        body.put("stream", true);
 
+        try {
+            return rest.post()
+                .uri("/responses")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Authorization", "Bearer " + apiKey())
+                .body(body)
+                .exchange((req, res) -> {
+                    if (res.getStatusCode().isError()) {
+                        String err = new String(res.getBody().readAllBytes(), StandardCharsets.UTF_8);
+                        log.error("openai_http_failed model={} status={} body={} stream=true",
+                            model(), res.getStatusCode().value(), safeBody(err));
+                        throw new IllegalStateException("OpenAI stream failed with status " + res.getStatusCode().value());
+                    }
+                    try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(res.getBody(), StandardCharsets.UTF_8))) {
+                        return readStream(reader, onDelta);
+                    }
+                });
+        } catch (Exception e) {
+            log.error("openai_stream_failed model={} err={}", model(), e.toString());
+            throw e;
+        }
+    }
+
+    private LlmOutput readStream(BufferedReader reader, Consumer<String> onDelta) throws IOException {
+        StringBuilder text = new StringBuilder();
+        String doneText = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.startsWith("data:")) continue; // event names, comments and blank separators
+
+            String data = line.substring(5).trim();
+            if (data.isEmpty() || "[DONE]".equals(data)) continue;
+
+            JsonNode event = om.readTree(data);
+            switch (event.path("type").asText("")) {
+                case "response.output_text.delta" -> {
+                    String delta = event.path("delta").asText("");
+                    if (!delta.isEmpty()) {
+                        text.append(delta);
+                        onDelta.accept(delta);
+                    }
+                }
+                case "response.output_text.done" ->
+                    // Authoritative full text; prefer it over the concatenated deltas
+                    doneText = event.path("text").asText(text.toString());
+                case "response.completed" -> {
+                    String out = doneText != null ? doneText : text.toString();
+                    if (out.isEmpty()) throw new IllegalStateException("OpenAI stream completed without output text");
+                    return withUsage(out, event.path("response").path("usage"));
+                }
+                case "response.failed", "response.incomplete", "error" ->
+                    throw new IllegalStateException("OpenAI stream ended with " + safeBody(data));
+                default -> { }
+            }
+        }
+
+        // Closed without response.completed: keep the text, usage is unknown
+        if (doneText != null) return LlmOutput.of(doneText);
+        if (text.isEmpty()) throw new IllegalStateException("OpenAI stream closed without output text");
+        return LlmOutput.of(text.toString());
+    }
+
+    private Map<String, Object> buildRequestBody(String developerPrompt, String userPrompt, Map<String, Object> jsonSchema) {
         Map<String, Object> developerMsg = Map.of(
             "role", "developer",
             "content", List.of(Map.of("type", "input_text", "text", developerPrompt))
@@ -120,12 +297,47 @@ public class OpenAiLlmClient implements LlmClient {
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("model", model());
         body.put("input", List.of(developerMsg, userMsg));
-        body.put("text", Map.of("format", format));
+        body.put("text", Map.of("format", serializedFormat(jsonSchema)));
         body.put("store", false);
         return body;
     }
 
-    private String extractOutputText(String raw) {
+    private RawValue serializedFormat(Map<String, Object> jsonSchema) {
+        SerializedFormat cached = lastFormat;
+        if (cached != null && cached.schema() == jsonSchema) return cached.json();
+
+        RawValue json = new RawValue(toJson(responseFormat(jsonSchema)));
+        lastFormat = new SerializedFormat(jsonSchema, json);
+        return json;
+    }
+
+    private Map<String, Object> responseFormat(Map<String, Object> jsonSchema) {
+        String name = String.valueOf(jsonSchema.getOrDefault("name", "assistant_response"));
+        boolean strict = Boolean.TRUE.equals(jsonSchema.getOrDefault("strict", Boolean.TRUE));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> schemaOnly = (Map<String, Object>) jsonSchema.get("schema");
+        if (schemaOnly == null) {
+            throw new IllegalArgumentException("jsonSchema must contain key 'schema' with a JSON Schema object");
+        }
+
+        Map<String, Object> format = new LinkedHashMap<>();
+        format.put("type", "json_schema");
+        format.put("name", name);
+        format.put("strict", strict);
+        format.put("schema", schemaOnly);
+        return format;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return om.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("jsonSchema is not serializable: " + e.getMessage(), e);
+        }
+    }
+
+    private LlmOutput parseOutput(String raw) {
         try {
             JsonNode root = om.readTree(raw);
             JsonNode output = root.path("output");
@@ -136,7 +348,7 @@ public class OpenAiLlmClient implements LlmClient {
                     for (JsonNode c : content) {
                         JsonNode text = c.get("text");
                         if (text != null && text.isTextual()) {
-                            return text.asText();
+                            return withUsage(text.asText(), root.path("usage"));
                         }
                     }
                 }
@@ -154,6 +366,10 @@ public class OpenAiLlmClient implements LlmClient {
         }
     }
 
+    private static LlmOutput withUsage(String text, JsonNode usage) {
+        return new LlmOutput(text, usage.path("input_tokens").asLong(0), usage.path("output_tokens").asLong(0));
+    }
+
     private static String safeBody(String s) {
         if (s == null) return "";
         return s.length() <= 2000 ? s : s.substring(0, 2000) + "...(truncated)";
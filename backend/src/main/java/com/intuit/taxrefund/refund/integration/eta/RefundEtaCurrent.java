@@ -0,0 +1,44 @@
+package com.intuit.taxrefund.refund.integration.eta;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Read model holding the latest ETA per (user, tax year, status).
+ *
+ * Upserted by the outbox handler whenever a new prediction lands, so the refund
+ * hot path resolves the ETA with a primary-key lookup instead of sorting the
+ * append-only {@link RefundEtaPrediction} history.
+ */
+@Entity
+@Table(name = "refund_eta_current")
+public class RefundEtaCurrent {
+
+    @EmbeddedId
+    private RefundEtaCurrentId id;
+
+    @Column(nullable = false, name = "eta_days")
+    private int etaDays;
+
+    @Column(name = "estimated_available_at")
+    private Instant estimatedAvailableAt;
+
+    @Column(nullable = false, name = "model_name", length = 120)
+    private String modelName;
+
+    @Column(nullable = false, name = "model_version", length = 120)
+    private String modelVersion;
+
+    @Column(nullable = false, name = "updated_at")
+    private Instant updatedAt = Instant.now();
+
+    protected RefundEtaCurrent() {}
+
+    public RefundEtaCurrentId getId() { return id; }
+    public int getEtaDays() { return etaDays; }
+    public Instant getEstimatedAvailableAt() { return estimatedAvailableAt; }
+    public String getModelName() { return modelName; }
+    public String getModelVersion() { return modelVersion; }
+    public Instant getUpdatedAt() { return updatedAt; }
+}
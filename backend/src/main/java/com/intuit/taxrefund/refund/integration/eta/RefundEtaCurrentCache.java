@@ -0,0 +1,83 @@
+package com.intuit.taxrefund.refund.integration.eta;
+
+import com.intuit.taxrefund.shared.concurrent.BoundedMaps;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process cache in front of {@link RefundEtaCurrentRepository}.
+ *
+ * Key  : (userId, taxYear, status)
+ * Value: estimatedAvailableAt (null is cached too, so "no prediction yet" is also a hit)
+ * TTL  : 60 seconds, so upserts made by another node's outbox worker become visible
+ *        within the same window as the Redis refund cache.
+ *
+ * The local node's outbox handler writes through via {@link #put}, so on the node that
+ * processed the prediction the new ETA is visible immediately.
+ */
+@Component
+public class RefundEtaCurrentCache {
+
+    private static final Logger log = LogManager.getLogger(RefundEtaCurrentCache.class);
+    private static final Duration TTL = Duration.ofSeconds(60);
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final RefundEtaCurrentRepository repo;
+    private final Clock clock;
+    private final ConcurrentHashMap<RefundEtaCurrentId, Entry> entries = new ConcurrentHashMap<>();
+
+    public RefundEtaCurrentCache(RefundEtaCurrentRepository repo, Clock clock) {
+        this.repo = repo;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the current ETA for the key, loading it by primary key on miss or expiry.
+     * Returns null when no prediction exists yet.
+     */
+    public Instant findEstimatedAvailableAt(Long userId, int taxYear, String status) {
+        RefundEtaCurrentId id = new RefundEtaCurrentId(userId, taxYear, status);
+        Instant now = Instant.now(clock);
+
+        Entry cached = entries.get(id);
+        if (cached != null && now.isBefore(cached.expiresAt())) {
+            return cached.estimatedAvailableAt();
+        }
+
+        Instant loaded = repo.findById(id)
+            .map(RefundEtaCurrent::getEstimatedAvailableAt)
+            .orElse(null);
+
+        store(id, loaded, now);
+        log.debug("eta_current_cache_loaded userId={} taxYear={} status={} found={}",
+            userId, taxYear, status, loaded != null);
+        return loaded;
+    }
+
+    /**
+     * Write-through after an upsert of the read model.
+     */
+    public void put(Long userId, int taxYear, String status, Instant estimatedAvailableAt) {
+        store(new RefundEtaCurrentId(userId, taxYear, status), estimatedAvailableAt, Instant.now(clock));
+    }
+
+    public void evict(Long userId, int taxYear, String status) {
+        entries.remove(new RefundEtaCurrentId(userId, taxYear, status));
+    }
+
+    private void store(RefundEtaCurrentId id, Instant estimatedAvailableAt, Instant now) {
+        if (entries.size() >= MAX_ENTRIES) {
+            BoundedMaps.makeRoom(entries, MAX_ENTRIES,
+                e -> !now.isBefore(e.expiresAt()), e -> e.expiresAt().toEpochMilli());
+        }
+        entries.put(id, new Entry(estimatedAvailableAt, now.plus(TTL)));
+    }
+
+    private record Entry(Instant estimatedAvailableAt, Instant expiresAt) {}
+}
@@ -0,0 +1,46 @@
+package com.intuit.taxrefund.refund.integration.eta;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@Embeddable
+public class RefundEtaCurrentId implements Serializable {
+
+    @Column(nullable = false, name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false, name = "tax_year")
+    private int taxYear;
+
+    @Column(nullable = false, length = 40)
+    private String status;
+
+    protected RefundEtaCurrentId() {}
+
+    public RefundEtaCurrentId(Long userId, int taxYear, String status) {
+        this.userId = userId;
+        this.taxYear = taxYear;
+        this.status = status;
+    }
+
+    public Long getUserId() { return userId; }
+    public int getTaxYear() { return taxYear; }
+    public String getStatus() { return status; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RefundEtaCurrentId other)) return false;
+        return taxYear == other.taxYear
+            && Objects.equals(userId, other.userId)
+            && Objects.equals(status, other.status);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, taxYear, status);
+    }
+}
@@ -0,0 +1,44 @@
+package com.intuit.taxrefund.refund.integration.eta;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface RefundEtaCurrentRepository extends JpaRepository<RefundEtaCurrent, RefundEtaCurrentId> {
+
+    /**
+     * Insert or replace the current ETA for (user, tax year, status), stamped with the
+     * prediction's created_at. A prediction older than the stored row is ignored, so outbox
+     * events handled out of order cannot roll the read model back.
+     *
+     * @return 1 when the row was written, 0 when a newer prediction was already stored
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        insert into refund_eta_current
+          (user_id, tax_year, status, eta_days, estimated_available_at, model_name, model_version, updated_at)
+        values
+          (:userId, :taxYear, :status, :etaDays, :estimatedAvailableAt, :modelName, :modelVersion, :createdAt)
+        on conflict (user_id, tax_year, status) do update
+        set eta_days = excluded.eta_days,
+            estimated_available_at = excluded.estimated_available_at,
+            model_name = excluded.model_name,
+            model_version = excluded.model_version,
+            updated_at = excluded.updated_at
+        where refund_eta_current.updated_at <= excluded.updated_at
+        """, nativeQuery = true)
+    int upsert(
+        Long userId,
+        int taxYear,
+        String status,
+        int etaDays,
+        Instant estimatedAvailableAt,
+        String modelName,
+        String modelVersion,
+        Instant createdAt
+    );
+}
@@ -2,12 +2,11 @@ package com.intuit.taxrefund.refund.integration.eta;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
-import java.util.Optional;
-
+/**
+ * Append-only prediction history (analytics / training).
+ * The request path reads the current ETA from {@link RefundEtaCurrentRepository} instead.
+ */
 public interface RefundEtaPredictionRepository extends JpaRepository<RefundEtaPrediction, Long> {
 
-    Optional<RefundEtaPrediction> findTopByUserIdAndTaxYearAndStatusOrderByCreatedAtDesc(
-        Long userId, int taxYear, String status
-    );
     boolean existsByUserIdAndTaxYearAndStatusAndModelVersion(Long userId, int taxYear, String status, String modelVersion);
 }
\ No newline at end of file
@@ -9,9 +9,13 @@ import com.intuit.taxrefund.refund.repository.RefundAccessAuditRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
 
 @Service
 public class RefundService {
@@ -19,6 +23,16 @@ public class RefundService {
     private static final Logger log = LogManager.getLogger(RefundService.class);
     private static final Duration REFUND_CACHE_TTL = Duration.ofSeconds(60);
 
+    // Compare-and-set: only replace the cached value if nobody rewrote it since we read it.
+    // KEEPTTL so a patch never extends the entry beyond its original freshness window.
+    private static final DefaultRedisScript<Long> CAS_KEEP_TTL = new DefaultRedisScript<>("""
+        if redis.call('GET', KEYS[1]) == ARGV[1] then
+          redis.call('SET', KEYS[1], ARGV[2], 'KEEPTTL')
+          return 1
+        end
+        return 0
+        """, Long.class);
+
     private final IrsAdapter irsAdapter;
     private final RefundSyncService refundSyncService;
     private final RefundAccessAuditRepository auditRepo;
@@ -45,11 +59,34 @@ public class RefundService {
      */
     public RefundStatusResponse getLatestRefundStatus(JwtService.JwtPrincipal principal, String correlationId) {
         Long userId = principal.userId();
+        String cacheKey = latestRefundCacheKey(userId);
+        return serveLatest(userId, correlationId, () -> tryReadLatestRefundFromCache(cacheKey, userId));
+    }
+
+    /**
+     * Same as {@link #getLatestRefundStatus(JwtService.JwtPrincipal, String)} for callers that
+     * already fetched the cache entry as part of a batched Redis round-trip.
+     * A null {@code prefetchedCacheJson} is treated as a cache miss (no second GET).
+     */
+    public RefundStatusResponse getLatestRefundStatus(
+        JwtService.JwtPrincipal principal,
+        String correlationId,
+        String prefetchedCacheJson
+    ) {
+        Long userId = principal.userId();
+        return serveLatest(userId, correlationId, () -> tryParseCachedLatestRefund(prefetchedCacheJson, userId));
+    }
+
+    private RefundStatusResponse serveLatest(
+        Long userId,
+        String correlationId,
+        Supplier<RefundStatusResponse> cacheRead
+    ) {
         String cacheKey = latestRefundCacheKey(userId);
         boolean success = false;
 
         try {
-            RefundStatusResponse cached = tryReadLatestRefundFromCache(cacheKey, userId);
+            RefundStatusResponse cached = cacheRead.get();
             if (cached != null) {
                 success = true;
                 return cached;
@@ -65,6 +102,48 @@ public class RefundService {
         }
     }
 
+    /**
+     * Write-through for ETA predictions: patch {@code availableAtEstimated} into the cached
+     * response if it still describes the same tax year and status, so users see a new ETA
+     * without waiting for the entry to expire or forcing another IRS fetch.
+     * Best effort; a missing entry is left alone and picked up on the next cache miss.
+     */
+    public void applyEtaToCachedLatest(Long userId, int taxYear, String status, Instant estimatedAvailableAt) {
+        String cacheKey = latestRefundCacheKey(userId);
+        try {
+            String cachedJson = redis.opsForValue().get(cacheKey);
+            if (cachedJson == null) return;
+
+            RefundStatusResponse cached = objectMapper.readValue(cachedJson, RefundStatusResponse.class);
+            if (cached.taxYear() != taxYear || !status.equals(cached.status())) {
+                log.debug("refund_latest_cache_eta_skip userId={} cachedStatus={} etaStatus={}",
+                    userId, cached.status(), status);
+                return;
+            }
+
+            RefundStatusResponse patched = new RefundStatusResponse(
+                cached.taxYear(),
+                cached.status(),
+                cached.lastUpdatedAt(),
+                cached.expectedAmount(),
+                cached.trackingId(),
+                estimatedAvailableAt,
+                cached.aiExplanation()
+            );
+
+            Long swapped = redis.execute(
+                CAS_KEEP_TTL,
+                List.of(cacheKey),
+                cachedJson,
+                objectMapper.writeValueAsString(patched)
+            );
+            log.debug("refund_latest_cache_eta_patched userId={} taxYear={} status={} swapped={}",
+                userId, taxYear, status, swapped);
+        } catch (Exception e) {
+            log.warn("refund_latest_cache_eta_patch_failed userId={} err={}", userId, e.toString());
+        }
+    }
+
     /**
      * Reusable orchestration: fetch latest IRS status and reconcile it into local DB.
      * Future scheduler / polling job can reuse this directly.
@@ -95,18 +174,26 @@ public class RefundService {
         }
     }
 
-    private String latestRefundCacheKey(Long userId) {
+    public static String latestRefundCacheKey(Long userId) {
         return "refund:latest:" + userId;
     }
 
     private RefundStatusResponse tryReadLatestRefundFromCache(String cacheKey, Long userId) {
         try {
-            String cached = redis.opsForValue().get(cacheKey);
-            if (cached == null) {
-                log.debug("refund_latest_cache_miss userId={}", userId);
-                return null;
-            }
+            return tryParseCachedLatestRefund(redis.opsForValue().get(cacheKey), userId);
+        } catch (Exception e) {
+            log.warn("refund_latest_cache_read_or_parse_failed userId={} err={}", userId, e.toString());
+            return null;
+        }
+    }
 
+    private RefundStatusResponse tryParseCachedLatestRefund(String cached, Long userId) {
+        if (cached == null) {
+            log.debug("refund_latest_cache_miss userId={}", userId);
+            return null;
+        }
+
+        try {
             RefundStatusResponse resp = objectMapper.readValue(cached, RefundStatusResponse.class);
             log.debug("refund_latest_cache_hit userId={} taxYear={} status={}", userId, resp.taxYear(), resp.status());
             return resp;
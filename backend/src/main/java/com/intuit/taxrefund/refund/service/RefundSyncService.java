@@ -3,8 +3,7 @@ package com.intuit.taxrefund.refund.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.intuit.taxrefund.auth.model.AppUser;
 import com.intuit.taxrefund.auth.repository.UserRepository;
-import com.intuit.taxrefund.refund.integration.eta.RefundEtaPrediction;
-import com.intuit.taxrefund.refund.integration.eta.RefundEtaPredictionRepository;
+import com.intuit.taxrefund.refund.integration.eta.RefundEtaCurrentCache;
 import com.intuit.taxrefund.refund.integration.irs.IrsAdapter;
 import com.intuit.taxrefund.refund.model.RefundRecord;
 import com.intuit.taxrefund.refund.model.RefundStatus;
@@ -31,7 +30,7 @@ public class RefundSyncService {
     private final UserRepository userRepo;
     private final RefundStatusEventRepository statusEventRepo;
     private final OutboxEventRepository outboxRepo;
-    private final RefundEtaPredictionRepository etaRepo;
+    private final RefundEtaCurrentCache etaCache;
     private final StringRedisTemplate redis;
     private final ObjectMapper objectMapper;
 
@@ -40,7 +39,7 @@ public class RefundSyncService {
         UserRepository userRepo,
         RefundStatusEventRepository statusEventRepo,
         OutboxEventRepository outboxRepo,
-        RefundEtaPredictionRepository etaRepo,
+        RefundEtaCurrentCache etaCache,
         StringRedisTemplate redis,
         ObjectMapper objectMapper
     ) {
@@ -48,7 +47,7 @@ public class RefundSyncService {
         this.userRepo = userRepo;
         this.statusEventRepo = statusEventRepo;
         this.outboxRepo = outboxRepo;
-        this.etaRepo = etaRepo;
+        this.etaCache = etaCache;
         this.redis = redis;
         this.objectMapper = objectMapper;
     }
@@ -139,16 +138,15 @@ public class RefundSyncService {
         Instant estimatedAvailableAt = record.getAvailableAtEstimated();
 
         try {
-            RefundEtaPrediction prediction = etaRepo
-                .findTopByUserIdAndTaxYearAndStatusOrderByCreatedAtDesc(
-                    userId,
-                    record.getTaxYear(),
-                    record.getStatus().name()
-                )
-                .orElse(null);
-
-            if (prediction != null && prediction.getEstimatedAvailableAt() != null) {
-                estimatedAvailableAt = prediction.getEstimatedAvailableAt();
+            // Primary-key lookup on the refund_eta_current read model (cached in-process)
+            Instant predicted = etaCache.findEstimatedAvailableAt(
+                userId,
+                record.getTaxYear(),
+                record.getStatus().name()
+            );
+
+            if (predicted != null) {
+                estimatedAvailableAt = predicted;
                 record.setAvailableAtEstimated(estimatedAvailableAt);
 
                 log.info("eta_prediction_applied userId={} taxYear={} status={} estimatedAvailableAt={}",
@@ -0,0 +1,63 @@
+package com.intuit.taxrefund.shared.concurrent;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Size cap for the in-process ConcurrentHashMap caches (verified JWTs, local rate limit
+ * buckets, leases, quota flags, current ETAs).
+ *
+ * {@link #makeRoom} is called before inserting a new key into a full map. It first drops
+ * entries that are no longer useful; if the map is still full it drops the
+ * {@link #EVICT_FRACTION} of entries that would expire first, which for these caches are the
+ * oldest ones. Live entries are never all dropped at once, so a burst of new keys cannot
+ * reset every rate limit or quota flag the node holds.
+ *
+ * Concurrent callers may both evict; the map can briefly overshoot the cap by the number of
+ * threads inserting at that moment, which is fine for a memory bound.
+ */
+public final class BoundedMaps {
+
+    /** Share of the cap evicted when only live entries are left: 1 in 10, at least one. */
+    static final int EVICT_FRACTION = 10;
+
+    private BoundedMaps() {}
+
+    /**
+     * Makes room for one more entry when {@code map} holds {@code maxEntries} or more.
+     *
+     * @param expired   entries that can go first, e.g. past their expiry
+     * @param expiresAt rank of a live entry; the lowest go first
+     * @return how many entries were removed
+     */
+    public static <K, V> int makeRoom(
+        ConcurrentMap<K, V> map, int maxEntries, Predicate<? super V> expired, ToLongFunction<? super V> expiresAt
+    ) {
+        if (maxEntries <= 0 || map.size() < maxEntries) return 0;
+
+        int before = map.size();
+        map.values().removeIf(expired);
+        if (map.size() < maxEntries) return before - map.size();
+
+        int n = Math.max(1, maxEntries / EVICT_FRACTION);
+        // max-heap of the n lowest ranks seen so far; ranks are read once, values may be mutable
+        PriorityQueue<Candidate<K, V>> oldest =
+            new PriorityQueue<>(n + 1, Comparator.comparingLong((Candidate<K, V> c) -> c.rank()).reversed());
+        for (Map.Entry<K, V> e : map.entrySet()) {
+            oldest.add(new Candidate<>(e.getKey(), e.getValue(), expiresAt.applyAsLong(e.getValue())));
+            if (oldest.size() > n) oldest.poll();
+        }
+
+        int removed = before - map.size();
+        for (Candidate<K, V> c : oldest) {
+            if (map.remove(c.key(), c.value())) removed++;
+        }
+        return removed;
+    }
+
+    private record Candidate<K, V>(K key, V value, long rank) {}
+}
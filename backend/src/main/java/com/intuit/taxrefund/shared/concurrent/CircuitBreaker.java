@@ -0,0 +1,104 @@
+package com.intuit.taxrefund.shared.concurrent;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Consecutive-failure circuit breaker.
+ *
+ *   CLOSED    – calls pass; {@code failureThreshold} failures in a row open the circuit
+ *   OPEN      – calls are refused until {@code openFor} has elapsed
+ *   HALF_OPEN – one trial call passes; success closes the circuit, failure re-opens it
+ *
+ * Callers ask {@link #tryAcquire()} before the call and report the outcome with
+ * {@link #onSuccess()} / {@link #onFailure()}. Thread-safe; transitions are cheap enough
+ * that a lock is simpler than a lock-free state machine here. A ReentrantLock rather than
+ * synchronized, so request threads (virtual threads) never pin their carrier on it.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openFor;
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMillis;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openFor, Clock clock) {
+        if (failureThreshold < 1) throw new IllegalArgumentException("failureThreshold must be >= 1");
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openFor = openFor;
+        this.clock = clock;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** True if the caller may make the call now. */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (clock.millis() - openedAtMillis < openFor.toMillis()) return false;
+                    state = State.HALF_OPEN;
+                    trialInFlight = true;
+                    return true;
+                default: // HALF_OPEN: only the single trial call
+                    if (trialInFlight) return false;
+                    trialInFlight = true;
+                    return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess() {
+        lock.lock();
+        try {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure() {
+        lock.lock();
+        try {
+            trialInFlight = false;
+            if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+                state = State.OPEN;
+                openedAtMillis = clock.millis();
+                consecutiveFailures = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State state() {
+        lock.lock();
+        try {
+            if (state == State.OPEN && clock.millis() - openedAtMillis >= openFor.toMillis()) {
+                return State.HALF_OPEN;
+            }
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.intuit.taxrefund.shared.concurrent;
+
+import java.time.Duration;
+
+/**
+ * A unit of work did not finish within its deadline. Mapped to 504 by the global handler.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private final String step;
+
+    public DeadlineExceededException(String step, Duration budget) {
+        super("Deadline of " + budget.toMillis() + "ms exceeded waiting for " + step);
+        this.step = step;
+    }
+
+    public String step() {
+        return step;
+    }
+}
@@ -0,0 +1,89 @@
+package com.intuit.taxrefund.shared.concurrent;
+
+import org.apache.logging.log4j.ThreadContext;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Structured fan-out on virtual threads with one deadline shared by all subtasks.
+ *
+ *   try (DeadlineScope scope = DeadlineScope.within(Duration.ofSeconds(5))) {
+ *       Future<A> a = scope.fork(this::loadA);
+ *       Future<B> b = scope.fork(this::loadB);
+ *       return combine(scope.join(a, "a"), scope.join(b, "b"));
+ *   }
+ *
+ * The deadline bounds how long the caller waits, not how long subtasks run. A subtask that
+ * misses it is abandoned, never interrupted: interrupting a virtual thread blocked in socket
+ * I/O closes the socket, which would tear down a pooled JDBC or Redis connection mid-call.
+ * It runs to completion in the background (a refund fetch still lands in the cache), and
+ * closing the scope only stops new forks without waiting for it. The log ThreadContext of
+ * the forking thread is copied into every subtask so correlation ids stay on their log lines.
+ *
+ * Same shape as StructuredTaskScope.ShutdownOnFailure (a preview API on Java 21), except that
+ * it never interrupts subtasks.
+ */
+public final class DeadlineScope implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Duration budget;
+    private final long deadlineNanos;
+
+    private DeadlineScope(Duration budget) {
+        this.budget = budget;
+        this.deadlineNanos = System.nanoTime() + budget.toNanos();
+    }
+
+    public static DeadlineScope within(Duration budget) {
+        return new DeadlineScope(budget);
+    }
+
+    public <T> Future<T> fork(Callable<T> task) {
+        Map<String, String> logContext = ThreadContext.getImmutableContext();
+        return executor.submit(() -> {
+            ThreadContext.putAll(logContext);
+            try {
+                return task.call();
+            } finally {
+                ThreadContext.clearMap();
+            }
+        });
+    }
+
+    /**
+     * Wait for a forked subtask within what is left of the deadline.
+     * Unchecked failures of the subtask are rethrown as-is.
+     */
+    public <T> T join(Future<T> future, String step) {
+        try {
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException(step, budget);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException(step + " failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for " + step, e);
+        } catch (CancellationException e) {
+            throw new IllegalStateException(step + " was cancelled", e);
+        }
+    }
+
+    /** Stops new forks; subtasks still running finish on their own. */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -1,20 +1,75 @@
 package com.intuit.taxrefund.shared.config;
 
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+
 /**
  * Minimal Redis configuration:
  * - StringRedisTemplate for simple string keys/values (rate limit, cache JSON as String).
+ * - A second one for the rate limiter, on its own connection with a short command and connect
+ *   timeout (app.ratelimit.redisTimeout), so a limiter check fails fast into its breaker while
+ *   every other Redis user keeps spring.data.redis.timeout.
  */
 @Configuration
 public class RedisConfig {
 
+    public static final String RATE_LIMIT_TEMPLATE = "rateLimitRedisTemplate";
+
     @Bean
+    @Primary
     public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory cf) {
+        return template(cf);
+    }
+
+    @Bean(RATE_LIMIT_TEMPLATE)
+    public StringRedisTemplate rateLimitRedisTemplate(
+        RedisConnectionFactory cf,
+        @Value("${app.ratelimit.redisTimeout:500ms}") Duration timeout
+    ) {
+        // not a bean: a second RedisConnectionFactory would replace Boot's auto-configured one
+        if (!(cf instanceof LettuceConnectionFactory shared)) return template(cf);
+        LettuceConnectionFactory own = shortTimeoutCopy(shared, timeout);
+        own.afterPropertiesSet();
+        own.start();
+        return new OwningTemplate(own);
+    }
+
+    static LettuceConnectionFactory shortTimeoutCopy(LettuceConnectionFactory shared, Duration timeout) {
+        LettuceClientConfiguration base = shared.getClientConfiguration();
+        ClientOptions options = base.getClientOptions().orElseGet(ClientOptions::create).mutate()
+            .socketOptions(SocketOptions.builder().connectTimeout(timeout).build())
+            .build();
+
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder client = LettuceClientConfiguration.builder()
+            .clientOptions(options)
+            .commandTimeout(timeout)
+            .shutdownTimeout(base.getShutdownTimeout());
+        base.getClientResources().ifPresent(client::clientResources);
+        base.getClientName().ifPresent(client::clientName);
+        if (base.isUseSsl()) {
+            LettuceClientConfiguration.LettuceSslClientConfigurationBuilder ssl = client.useSsl();
+            if (!base.isVerifyPeer()) ssl.disablePeerVerification();
+            if (base.isStartTls()) ssl.startTls();
+        }
+
+        if (shared.isClusterAware()) return new LettuceConnectionFactory(shared.getClusterConfiguration(), client.build());
+        if (shared.isRedisSentinelAware()) return new LettuceConnectionFactory(shared.getSentinelConfiguration(), client.build());
+        return new LettuceConnectionFactory(shared.getStandaloneConfiguration(), client.build());
+    }
+
+    private static StringRedisTemplate template(RedisConnectionFactory cf) {
         StringRedisTemplate t = new StringRedisTemplate(cf);
         // Explicit serializers to avoid surprises
         t.setKeySerializer(StringRedisSerializer.UTF_8);
@@ -23,4 +78,19 @@ public class RedisConfig {
         t.setHashValueSerializer(StringRedisSerializer.UTF_8);
         return t;
     }
-}
\ No newline at end of file
+
+    /** A template that shuts its own connection factory down with the context. */
+    private static final class OwningTemplate extends StringRedisTemplate implements DisposableBean {
+        private final LettuceConnectionFactory cf;
+
+        OwningTemplate(LettuceConnectionFactory cf) {
+            super(cf);
+            this.cf = cf;
+        }
+
+        @Override
+        public void destroy() {
+            cf.destroy();
+        }
+    }
+}
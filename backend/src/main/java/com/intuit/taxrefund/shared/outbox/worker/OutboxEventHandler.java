@@ -2,11 +2,16 @@ package com.intuit.taxrefund.shared.outbox.worker;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.refund.integration.eta.RefundEtaCurrentCache;
+import com.intuit.taxrefund.refund.integration.eta.RefundEtaCurrentRepository;
 import com.intuit.taxrefund.refund.integration.eta.RefundEtaPrediction;
 import com.intuit.taxrefund.refund.integration.eta.RefundEtaPredictionRepository;
 import com.intuit.taxrefund.ml.MlEtaClient;
+import com.intuit.taxrefund.refund.service.RefundService;
 import com.intuit.taxrefund.shared.outbox.model.OutboxEvent;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -17,11 +22,24 @@ public class OutboxEventHandler {
     private static final long SECONDS_IN_DAY = 86400L;
 
     private final RefundEtaPredictionRepository etaRepo;
+    private final RefundEtaCurrentRepository etaCurrentRepo;
+    private final RefundEtaCurrentCache etaCache;
+    private final RefundService refundService;
     private final MlEtaClient ml;
     private final ObjectMapper om;
 
-    public OutboxEventHandler(RefundEtaPredictionRepository etaRepo, MlEtaClient ml, ObjectMapper om) {
+    public OutboxEventHandler(
+        RefundEtaPredictionRepository etaRepo,
+        RefundEtaCurrentRepository etaCurrentRepo,
+        RefundEtaCurrentCache etaCache,
+        RefundService refundService,
+        MlEtaClient ml,
+        ObjectMapper om
+    ) {
         this.etaRepo = etaRepo;
+        this.etaCurrentRepo = etaCurrentRepo;
+        this.etaCache = etaCache;
+        this.refundService = refundService;
         this.ml = ml;
         this.om = om;
     }
@@ -65,6 +83,39 @@ public class OutboxEventHandler {
             pred.featuresJson()
         );
 
+        // History row (append-only) + current read model (one row per user/year/status)
         etaRepo.save(row);
+        int written = etaCurrentRepo.upsert(
+            userId,
+            taxYear,
+            status,
+            pred.etaDays(),
+            estimatedAvailableAt,
+            pred.modelName(),
+            pred.modelVersion(),
+            row.getCreatedAt()
+        );
+        if (written == 0) {
+            // a newer prediction already owns the read model; leave the caches on it
+            return;
+        }
+        afterCommit(() -> {
+            etaCache.put(userId, taxYear, status, estimatedAvailableAt);
+            refundService.applyEtaToCachedLatest(userId, taxYear, status, estimatedAvailableAt);
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        // Only publish to in-process caches once the rows are durable
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 }
\ No newline at end of file
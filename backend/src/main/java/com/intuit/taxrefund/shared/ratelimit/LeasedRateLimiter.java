@@ -0,0 +1,372 @@
+package com.intuit.taxrefund.shared.ratelimit;
+
+import com.intuit.taxrefund.shared.concurrent.BoundedMaps;
+import com.intuit.taxrefund.shared.concurrent.CircuitBreaker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Token bucket split between Redis and the nodes.
+ *
+ * Redis holds the global bucket. Each node leases whole tokens from it in batches of
+ * app.ratelimit.lease.fraction × capacity and spends them locally with a CAS, so most
+ * requests are decided without a round-trip and Redis sees one call per batch instead of
+ * one per request. When a node's lease runs low it fetches the next batch in the background;
+ * only a request that finds the lease empty waits for Redis. When Redis has nothing left,
+ * the node denies locally until enough tokens have refilled (at most one TTL), so a client
+ * hammering an exhausted limit does not reach Redis either.
+ *
+ * Leased tokens are already taken from the global bucket, so all nodes together never admit
+ * more than it allows. The cost is the other way round: tokens a node leased but did not use
+ * are dropped after app.ratelimit.lease.ttlMs, and meanwhile other nodes cannot have them.
+ * To keep that loss to keys busy enough to be worth it, each key sizes its batches from its
+ * own traffic: it starts at one token per lease, doubles the batch (up to fraction × capacity)
+ * whenever a lease runs dry before its TTL, and drops back to what was used when one expires.
+ * A per-user key used a few times a minute therefore leases single tokens and loses none;
+ * only a key seeing several requests per TTL batches, and then loses at most one batch per
+ * node per TTL. With leasing disabled every request goes to Redis as before.
+ *
+ * Every Redis call goes through a {@link CircuitBreaker}. A failing call, or any call while
+ * the breaker is open, is decided by app.ratelimit.degraded.mode instead of erroring: admit
+ * (OPEN), deny (CLOSED) or count in per-node memory buckets (LOCAL). Once the breaker is
+ * open requests no longer wait for Redis timeouts; after openMs one trial call checks whether
+ * Redis is back, and on success the local buckets are dropped. Tokens already leased are
+ * still spent as usual during an outage.
+ *
+ *   ratelimit.degraded                       gauge, 1 while the breaker is not closed
+ *   ratelimit.degraded.time                  counter, seconds spent degraded
+ *   ratelimit.degraded.duration              timer, one sample per outage
+ *   ratelimit.degraded.decisions{mode,outcome} counter
+ *   ratelimit.redis.failures                 counter
+ */
+@Component
+public class LeasedRateLimiter {
+
+    private static final Logger log = LogManager.getLogger(LeasedRateLimiter.class);
+
+    /** Start fetching the next batch when a lease is down to this share of a batch. */
+    private static final double LOW_WATER = 0.25;
+
+    private static final RateLimitProps.Degraded DEFAULT_DEGRADED =
+        new RateLimitProps.Degraded(RateLimitProps.FailMode.LOCAL, 3, 5_000, 1.0, 100_000);
+
+    private final RedisRateLimiter redis;
+    private final RateLimitProps props;
+    private final MeterRegistry meters;
+    private final Clock clock;
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    /** Runs lease prefetches and the Redis part of charges. */
+    private final ExecutorService background;
+
+    private final RateLimitProps.Degraded degraded;
+    private final CircuitBreaker breaker;
+    private final LocalRateLimiter local;
+    /** Start of the current outage, 0 while Redis is healthy. */
+    private final AtomicLong degradedSinceMillis = new AtomicLong();
+    private final AtomicLong degradedMillisTotal = new AtomicLong();
+    private final Timer outages;
+
+    @Autowired
+    public LeasedRateLimiter(RedisRateLimiter redis, RateLimitProps props, MeterRegistry meters, Clock clock) {
+        this(redis, props, meters, clock, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    LeasedRateLimiter(RedisRateLimiter redis, RateLimitProps props, MeterRegistry meters, Clock clock,
+                      ExecutorService background) {
+        this.redis = redis;
+        this.background = background;
+        this.props = props;
+        this.meters = meters;
+        this.clock = clock;
+        this.degraded = props.degraded() == null ? DEFAULT_DEGRADED : props.degraded();
+        this.breaker = new CircuitBreaker("ratelimit-redis",
+            Math.max(1, degraded.failureThreshold()), Duration.ofMillis(Math.max(1, degraded.openMs())), clock);
+        this.local = new LocalRateLimiter(clock, degraded.maxBuckets());
+
+        meters.gauge("ratelimit.degraded", degradedSinceMillis, since -> since.get() != 0 ? 1 : 0);
+        FunctionCounter.builder("ratelimit.degraded.time", this, l -> l.degradedMillis() / 1000.0)
+            .baseUnit("seconds")
+            .register(meters);
+        this.outages = Timer.builder("ratelimit.degraded.duration").register(meters);
+    }
+
+    /**
+     * Tokens granted by one Redis call ({@code granted}, of which {@code tokens} are left),
+     * spendable until {@code expiresAtMillis}; {@code globalRemaining} is what Redis had left
+     * after granting them.
+     */
+    private record Lease(AtomicLong tokens, long granted, long globalRemaining, long expiresAtMillis) {
+        static final Lease EMPTY = new Lease(new AtomicLong(), 0, 0, 0);
+    }
+
+    private static final class Bucket {
+        final ReentrantLock lock = new ReentrantLock();
+        final AtomicBoolean prefetching = new AtomicBoolean();
+        volatile Lease lease = Lease.EMPTY;
+        /** Tokens to lease next, adapted to this key's traffic; see the class comment. */
+        volatile int batch = 1;
+        /** Redis had no tokens for us; deny locally until then. */
+        volatile long exhaustedUntilMillis;
+    }
+
+    public RedisRateLimiter.Result tryConsume(String key, RateLimitProps.Policy policy, int cost) {
+        RateLimitProps.Lease cfg = props.lease();
+        if (cfg == null || !cfg.enabled()) {
+            RedisRateLimiter.Result r =
+                remote(() -> redis.tryConsume(key, policy.capacity(), policy.refillPerMinute(), cost));
+            return r != null ? r : degradedDecision(key, policy, cost);
+        }
+
+        int maxBatch = batchSize(policy, cfg);
+        Bucket bucket = bucket(key, cfg);
+
+        // fast path: spend from the current lease, or deny while Redis is known to be empty
+        long start = clock.millis();
+        Lease lease = bucket.lease;
+        if (start < lease.expiresAtMillis()) {
+            long left = take(lease.tokens(), cost);
+            if (left >= 0) {
+                int batch = bucket.batch;
+                if (batch > 1 && left <= batch * LOW_WATER && start >= bucket.exhaustedUntilMillis) {
+                    prefetch(key, policy, batch, cfg, bucket);
+                }
+                return new RedisRateLimiter.Result(true, left + lease.globalRemaining(), 0);
+            }
+        }
+        long exhaustedUntil = bucket.exhaustedUntilMillis;
+        if (start < exhaustedUntil) {
+            return new RedisRateLimiter.Result(false, 0, exhaustedUntil - start);
+        }
+
+        // slow path: lease now, one caller per bucket
+        bucket.lock.lock();
+        try {
+            long now = clock.millis();
+            lease = bucket.lease;
+            if (now < lease.expiresAtMillis()) {
+                long left = take(lease.tokens(), cost);
+                if (left >= 0) return new RedisRateLimiter.Result(true, left + lease.globalRemaining(), 0);
+            }
+            if (now < bucket.exhaustedUntilMillis) {
+                return new RedisRateLimiter.Result(false, 0, bucket.exhaustedUntilMillis - now);
+            }
+            int batch = adaptBatch(bucket, lease, now, maxBatch);
+            RedisRateLimiter.Grant grant =
+                remote(() -> redis.lease(key, policy.capacity(), policy.refillPerMinute(), Math.max(batch, cost)));
+            if (grant == null) return degradedDecision(key, policy, cost);
+            long carried = now < lease.expiresAtMillis() ? lease.tokens().getAndSet(0) : 0;
+            long available = carried + grant.tokens();
+            if (available < cost) {
+                long wait = Math.min(cfg.ttlMs(), millisToRefill(policy, cost - available));
+                bucket.lease = new Lease(new AtomicLong(available), available, 0, now + cfg.ttlMs());
+                bucket.exhaustedUntilMillis = now + wait;
+                return new RedisRateLimiter.Result(false, available, wait);
+            }
+            bucket.lease = new Lease(new AtomicLong(available - cost), available, grant.remainingTokens(),
+                now + cfg.ttlMs());
+            return new RedisRateLimiter.Result(true, available - cost + grant.remainingTokens(), 0);
+        } finally {
+            bucket.lock.unlock();
+        }
+    }
+
+    /**
+     * Takes {@code tokens} more from the bucket after the request was already admitted, e.g.
+     * for a turn that turned out to be expensive. Never denies: takes what the local lease has,
+     * the rest from Redis as far as it goes (or the local bucket while Redis is down). The
+     * Redis part runs in the background, so the caller never waits for a round-trip.
+     */
+    public void charge(String key, RateLimitProps.Policy policy, int tokens) {
+        if (tokens <= 0) return;
+        RateLimitProps.Lease cfg = props.lease();
+        long owed = tokens;
+        if (cfg != null && cfg.enabled()) {
+            Lease lease = bucket(key, cfg).lease;
+            if (clock.millis() < lease.expiresAtMillis()) {
+                AtomicLong local = lease.tokens();
+                long t;
+                long taken;
+                do {
+                    t = local.get();
+                    taken = Math.min(t, owed);
+                } while (taken > 0 && !local.compareAndSet(t, t - taken));
+                owed -= Math.max(0, taken);
+            }
+        }
+        if (owed <= 0) return;
+        int rest = (int) owed;
+        try {
+            background.execute(() -> chargeRemote(key, policy, rest));
+        } catch (RejectedExecutionException e) {
+            chargeRemote(key, policy, rest); // shutting down
+        }
+    }
+
+    private void chargeRemote(String key, RateLimitProps.Policy policy, int tokens) {
+        if (remote(() -> redis.lease(key, policy.capacity(), policy.refillPerMinute(), tokens)) == null
+            && degraded.mode() == RateLimitProps.FailMode.LOCAL) {
+            local.charge(key, localPolicy(policy), tokens);
+        }
+    }
+
+    /** Runs a Redis call through the breaker; null when it was refused or failed. */
+    private <T> T remote(Supplier<T> call) {
+        if (!breaker.tryAcquire()) return null;
+        try {
+            T result = call.get();
+            redisUp();
+            return result;
+        } catch (RuntimeException e) {
+            redisDown(e);
+            return null;
+        }
+    }
+
+    private void redisUp() {
+        breaker.onSuccess();
+        if (degradedSinceMillis.get() == 0) return;
+        long since = degradedSinceMillis.getAndSet(0);
+        if (since == 0) return;
+        long took = Math.max(0, clock.millis() - since);
+        degradedMillisTotal.addAndGet(took);
+        outages.record(Duration.ofMillis(took));
+        local.clear();
+        log.info("ratelimit_redis_recovered degradedMs={}", took);
+    }
+
+    private void redisDown(RuntimeException e) {
+        breaker.onFailure();
+        meters.counter("ratelimit.redis.failures").increment();
+        if (breaker.state() != CircuitBreaker.State.CLOSED && degradedSinceMillis.compareAndSet(0, clock.millis())) {
+            log.warn("ratelimit_redis_unavailable mode={} openMs={} err={}",
+                degraded.mode(), degraded.openMs(), e.toString());
+        }
+    }
+
+    private RedisRateLimiter.Result degradedDecision(String key, RateLimitProps.Policy policy, int cost) {
+        RateLimitProps.FailMode mode = degraded.mode() == null ? RateLimitProps.FailMode.LOCAL : degraded.mode();
+        RedisRateLimiter.Result r = switch (mode) {
+            case OPEN -> new RedisRateLimiter.Result(true, policy.capacity(), 0);
+            case CLOSED -> new RedisRateLimiter.Result(false, 0, degraded.openMs());
+            case LOCAL -> local.tryConsume(key, localPolicy(policy), cost);
+        };
+        meters.counter("ratelimit.degraded.decisions",
+            "mode", mode.name().toLowerCase(Locale.ROOT), "outcome", r.allowed() ? "allowed" : "denied").increment();
+        return r;
+    }
+
+    private RateLimitProps.Policy localPolicy(RateLimitProps.Policy policy) {
+        double share = degraded.localShare() > 0 ? degraded.localShare() : 1.0;
+        return new RateLimitProps.Policy(
+            Math.max(1, (int) Math.ceil(policy.capacity() * share)),
+            (int) Math.ceil(policy.refillPerMinute() * share));
+    }
+
+    /** Time spent degraded so far, including a current outage. */
+    long degradedMillis() {
+        long since = degradedSinceMillis.get();
+        return degradedMillisTotal.get() + (since == 0 ? 0 : Math.max(0, clock.millis() - since));
+    }
+
+    /** Breaker state of the Redis connection, for health and diagnostics. */
+    public CircuitBreaker.State redisState() {
+        return breaker.state();
+    }
+
+    /** Subtracts {@code cost} unless that would go negative; returns what is left, or -1. */
+    private static long take(AtomicLong tokens, int cost) {
+        while (true) {
+            long t = tokens.get();
+            if (t < cost) return -1;
+            if (tokens.compareAndSet(t, t - cost)) return t - cost;
+        }
+    }
+
+    private void prefetch(String key, RateLimitProps.Policy policy, int batch,
+                          RateLimitProps.Lease cfg, Bucket bucket) {
+        if (!bucket.prefetching.compareAndSet(false, true)) return;
+        try {
+            background.execute(() -> {
+                bucket.lock.lock();
+                try {
+                    RedisRateLimiter.Grant grant =
+                        remote(() -> redis.lease(key, policy.capacity(), policy.refillPerMinute(), batch));
+                    if (grant == null) return; // Redis down; the slow path decides from now on
+                    long now = clock.millis();
+                    Lease current = bucket.lease;
+                    long carried = now < current.expiresAtMillis() ? current.tokens().getAndSet(0) : 0;
+                    long available = carried + grant.tokens();
+                    bucket.lease = new Lease(new AtomicLong(available), available, grant.remainingTokens(),
+                        now + cfg.ttlMs());
+                    if (grant.tokens() == 0) {
+                        bucket.exhaustedUntilMillis = now + Math.min(cfg.ttlMs(), millisToRefill(policy, 1));
+                    }
+                } finally {
+                    bucket.lock.unlock();
+                    bucket.prefetching.set(false);
+                }
+            });
+        } catch (Exception e) {
+            bucket.prefetching.set(false); // executor shut down
+        }
+    }
+
+    private Bucket bucket(String key, RateLimitProps.Lease cfg) {
+        Bucket b = buckets.get(key);
+        if (b != null) return b;
+        if (cfg.maxBuckets() > 0 && buckets.size() >= cfg.maxBuckets()) {
+            long now = clock.millis();
+            BoundedMaps.makeRoom(buckets, cfg.maxBuckets(),
+                x -> now >= x.lease.expiresAtMillis(), x -> x.lease.expiresAtMillis());
+        }
+        return buckets.computeIfAbsent(key, k -> new Bucket());
+    }
+
+    private static long millisToRefill(RateLimitProps.Policy policy, long tokens) {
+        if (policy.refillPerMinute() <= 0) return Long.MAX_VALUE;
+        return (tokens * 60_000L + policy.refillPerMinute() - 1) / policy.refillPerMinute();
+    }
+
+    /**
+     * Next batch for a bucket whose lease {@code previous} could not serve a request: double it
+     * if the lease ran dry before expiring, else shrink it to what the expired lease had used.
+     */
+    private static int adaptBatch(Bucket bucket, Lease previous, long now, int maxBatch) {
+        if (previous != Lease.EMPTY) {
+            if (now < previous.expiresAtMillis()) {
+                bucket.batch = Math.min(maxBatch, bucket.batch * 2);
+            } else {
+                long used = previous.granted() - Math.max(0, previous.tokens().get());
+                bucket.batch = (int) Math.max(1, Math.min(maxBatch, used));
+            }
+        }
+        return Math.min(bucket.batch, maxBatch);
+    }
+
+    private static int batchSize(RateLimitProps.Policy policy, RateLimitProps.Lease cfg) {
+        return Math.max(1, (int) Math.ceil(policy.capacity() * cfg.fraction()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        background.shutdownNow();
+    }
+}
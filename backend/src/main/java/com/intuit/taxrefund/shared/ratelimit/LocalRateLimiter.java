@@ -0,0 +1,105 @@
+package com.intuit.taxrefund.shared.ratelimit;
+
+import com.intuit.taxrefund.shared.concurrent.BoundedMaps;
+
+import java.time.Clock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory token bucket per key, used by {@link LeasedRateLimiter} while Redis is
+ * unreachable. Same arithmetic as the Redis script (integer units of 1/60000 token), but
+ * each node counts on its own, so N nodes together admit up to N times the policy they are
+ * given; the caller scales it down by app.ratelimit.degraded.localShare.
+ */
+final class LocalRateLimiter {
+
+    private static final long UNIT = 60_000;
+
+    private final Clock clock;
+    private final int maxBuckets;
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    LocalRateLimiter(Clock clock, int maxBuckets) {
+        this.clock = clock;
+        this.maxBuckets = maxBuckets;
+    }
+
+    private static final class Bucket {
+        final ReentrantLock lock = new ReentrantLock();
+        long units;
+        long ts;
+        /** When the bucket is full again and can be dropped. */
+        volatile long fullAtMillis;
+
+        Bucket(long units, long now) {
+            this.units = units;
+            this.ts = now;
+        }
+    }
+
+    RedisRateLimiter.Result tryConsume(String key, RateLimitProps.Policy policy, int cost) {
+        long now = clock.millis();
+        Bucket b = bucket(key, policy, now);
+        b.lock.lock();
+        try {
+            refill(b, policy, now);
+            long needed = cost * UNIT;
+            if (b.units >= needed) {
+                b.units -= needed;
+                b.fullAtMillis = fullAt(b, policy);
+                return new RedisRateLimiter.Result(true, b.units / UNIT, 0);
+            }
+            long rate = policy.refillPerMinute();
+            long wait = rate > 0 ? (needed - b.units + rate - 1) / rate : -1;
+            return new RedisRateLimiter.Result(false, b.units / UNIT, wait);
+        } finally {
+            b.lock.unlock();
+        }
+    }
+
+    /** Takes up to {@code tokens}, never below zero. */
+    void charge(String key, RateLimitProps.Policy policy, int tokens) {
+        long now = clock.millis();
+        Bucket b = bucket(key, policy, now);
+        b.lock.lock();
+        try {
+            refill(b, policy, now);
+            b.units = Math.max(0, b.units - tokens * UNIT);
+            b.fullAtMillis = fullAt(b, policy);
+        } finally {
+            b.lock.unlock();
+        }
+    }
+
+    /** Drops all buckets, e.g. once Redis is back and counts again. */
+    void clear() {
+        buckets.clear();
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private static void refill(Bucket b, RateLimitProps.Policy policy, long now) {
+        if (now > b.ts) {
+            b.units = Math.min(policy.capacity() * UNIT, b.units + (now - b.ts) * policy.refillPerMinute());
+            b.ts = now;
+        }
+    }
+
+    private static long fullAt(Bucket b, RateLimitProps.Policy policy) {
+        long missing = policy.capacity() * UNIT - b.units;
+        if (missing <= 0) return b.ts;
+        if (policy.refillPerMinute() <= 0) return Long.MAX_VALUE;
+        return b.ts + (missing + policy.refillPerMinute() - 1) / policy.refillPerMinute();
+    }
+
+    private Bucket bucket(String key, RateLimitProps.Policy policy, long now) {
+        Bucket b = buckets.get(key);
+        if (b != null) return b;
+        // full buckets carry no state; past those, drop the ones that refill soonest
+        BoundedMaps.makeRoom(buckets, maxBuckets, x -> now >= x.fullAtMillis, x -> x.fullAtMillis);
+        return buckets.computeIfAbsent(key, k -> new Bucket(policy.capacity() * UNIT, now));
+    }
+}
@@ -15,16 +15,25 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/**
+ * Applies the first matching rule of {@link RateLimitPolicies} to each request and reports
+ * the bucket state in the RateLimit-Limit / RateLimit-Remaining / RateLimit-Reset headers
+ * (seconds until the bucket is full again, or until the next token once it is empty), plus
+ * Retry-After on 429. With leasing on, Remaining is approximate: this node's lease plus what
+ * Redis had left when it was taken.
+ */
 @Component
 public class RateLimitFilter extends OncePerRequestFilter {
 
     private static final Logger log = LogManager.getLogger(RateLimitFilter.class);
 
-    private final RedisRateLimiter limiter;
+    private final LeasedRateLimiter limiter;
+    private final RateLimitPolicies policies;
     private final RateLimitProps props;
 
-    public RateLimitFilter(RedisRateLimiter limiter, RateLimitProps props) {
+    public RateLimitFilter(LeasedRateLimiter limiter, RateLimitPolicies policies, RateLimitProps props) {
         this.limiter = limiter;
+        this.policies = policies;
         this.props = props;
     }
 
@@ -37,43 +46,54 @@ public class RateLimitFilter extends OncePerRequestFilter {
             return;
         }
 
-        String path = req.getRequestURI();
-        String method = req.getMethod();
-
-        if (path.length() > 1 && path.endsWith("/")) {
-            path = path.substring(0, path.length() - 1);
-        }
-
-        RateLimitProps.Policy policy = null;
-        if ("GET".equals(method) && "/api/refund/latest".equals(path)) policy = props.refundLatest();
-        if ("POST".equals(method) && "/api/assistant/chat".equals(path)) policy = props.assistantChat();
-
-        if (policy == null) {
+        RateLimitPolicies.Compiled rule = policies.match(req.getMethod(), req.getRequestURI());
+        if (rule == null) {
             chain.doFilter(req, res);
             return;
         }
 
-        String principal;
+        Long userId = null;
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null && auth.isAuthenticated() && auth.getPrincipal() instanceof JwtService.JwtPrincipal p) {
-            principal = "u:" + p.userId();
-        } else {
-            principal = "ip:" + req.getRemoteAddr();
+            userId = p.userId();
+        }
+
+        String key = switch (rule.principal()) {
+            case USER -> userId == null ? null : rule.userKeyPrefix() + userId;
+            case IP -> rule.ipKeyPrefix() + req.getRemoteAddr();
+            case USER_OR_IP -> userId != null ? rule.userKeyPrefix() + userId : rule.ipKeyPrefix() + req.getRemoteAddr();
+        };
+        if (key == null) {
+            chain.doFilter(req, res);
+            return;
         }
 
-        String key = "rl:" + principal + ":" + method + ":" + path;
+        RateLimitProps.Policy bucket = rule.bucket();
+        var r = limiter.tryConsume(key, bucket, rule.cost());
+        long remaining = Math.max(0, Math.min(bucket.capacity(), r.remainingTokens()));
+        res.setHeader("RateLimit-Limit", Integer.toString(bucket.capacity()));
+        res.setHeader("RateLimit-Remaining", Long.toString(remaining));
 
-        var r = limiter.tryConsume(key, policy.capacity(), policy.refillPerMinute(), 1);
         if (!r.allowed()) {
-            log.warn("rate_limited principal={} method={} path={}", principal, method, path);
+            long retrySeconds = r.retryAfterMillis() < 0 ? 60 : Math.max(1, (r.retryAfterMillis() + 999) / 1000);
+            log.warn("rate_limited key={} method={} path={} retryAfterSec={}",
+                key, req.getMethod(), req.getRequestURI(), retrySeconds);
 
             res.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
-            res.setHeader("Retry-After", "10");
+            res.setHeader("RateLimit-Reset", Long.toString(retrySeconds));
+            res.setHeader("Retry-After", Long.toString(retrySeconds));
             res.setContentType("application/json");
             res.getWriter().write("{\"error\":\"rate_limited\"}");
             return;
         }
 
+        res.setHeader("RateLimit-Reset", Long.toString(secondsUntilFull(bucket, remaining)));
         chain.doFilter(req, res);
     }
-}
\ No newline at end of file
+
+    private static long secondsUntilFull(RateLimitProps.Policy bucket, long remaining) {
+        long missing = bucket.capacity() - remaining;
+        if (missing <= 0 || bucket.refillPerMinute() <= 0) return 0;
+        return (missing * 60 + bucket.refillPerMinute() - 1) / bucket.refillPerMinute();
+    }
+}
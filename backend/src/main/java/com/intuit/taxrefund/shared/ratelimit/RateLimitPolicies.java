@@ -0,0 +1,157 @@
+package com.intuit.taxrefund.shared.ratelimit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The app.ratelimit.policies table, compiled once at startup.
+ *
+ * Rules are grouped by HTTP method; exact paths are a hash lookup and only paths with
+ * wildcards are matched as Spring path patterns. A request gets the first rule found in
+ * this order, so table order only decides between patterns of the same group:
+ *   1. a rule for its method with its exact path
+ *   2. a rule for its method whose pattern matches, in table order
+ *   3. a rule for any method with its exact path
+ *   4. a rule for any method whose pattern matches, in table order
+ */
+@Component
+public class RateLimitPolicies {
+
+    private static final Logger log = LogManager.getLogger(RateLimitPolicies.class);
+
+    /** A compiled rule: its bucket, cost, principal type and Redis key prefixes. */
+    public record Compiled(
+        String name,
+        RateLimitProps.PrincipalType principal,
+        RateLimitProps.Policy bucket,
+        int cost,
+        Map<String, Integer> charges,
+        String userKeyPrefix,
+        String ipKeyPrefix
+    ) {}
+
+    private record PatternRule(PathPattern pattern, Compiled rule) {}
+
+    private static final class MethodTable {
+        final Map<String, Compiled> exact = new HashMap<>();
+        final List<PatternRule> patterns = new ArrayList<>();
+
+        Compiled match(String path) {
+            Compiled r = exact.get(path);
+            if (r != null || patterns.isEmpty()) return r;
+            PathContainer parsed = PathContainer.parsePath(path);
+            for (PatternRule p : patterns) {
+                if (p.pattern().matches(parsed)) return p.rule();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Extra tokens to take from a rule's bucket for one reason, resolved at startup with
+     * {@link #chargeFor} so a renamed policy or missing charge fails the boot instead of
+     * silently charging nothing.
+     */
+    public record Charge(Compiled rule, int tokens) {
+        static final Charge NONE = new Charge(null, 0);
+    }
+
+    private final LeasedRateLimiter limiter;
+    private final boolean enabled;
+    private final Map<String, MethodTable> byMethod = new HashMap<>();
+    private final MethodTable anyMethod = new MethodTable();
+    private final Map<String, Compiled> byName = new HashMap<>();
+
+    public RateLimitPolicies(RateLimitProps props, LeasedRateLimiter limiter) {
+        this.limiter = limiter;
+        this.enabled = props.enabled();
+        List<RateLimitProps.Rule> rules = props.policies() == null ? List.of() : props.policies();
+        PathPatternParser parser = new PathPatternParser();
+        for (RateLimitProps.Rule rule : rules) {
+            if (rule.name() == null || rule.path() == null) {
+                throw new IllegalArgumentException("ratelimit policy needs a name and a path: " + rule);
+            }
+            Compiled c = byName.computeIfAbsent(rule.name(), n -> compile(rule));
+            String method = rule.method() == null || "*".equals(rule.method())
+                ? null : rule.method().toUpperCase(Locale.ROOT);
+            MethodTable table = method == null ? anyMethod : byMethod.computeIfAbsent(method, m -> new MethodTable());
+            String path = normalize(rule.path());
+            PathPattern pattern = parser.parse(path);
+            if (pattern.hasPatternSyntax()) {
+                table.patterns.add(new PatternRule(pattern, c));
+            } else {
+                table.exact.putIfAbsent(path, c);
+            }
+        }
+        log.info("ratelimit_policies_compiled rules={} buckets={}", rules.size(), byName.size());
+    }
+
+    private static Compiled compile(RateLimitProps.Rule rule) {
+        return new Compiled(
+            rule.name(),
+            rule.principal() == null ? RateLimitProps.PrincipalType.USER_OR_IP : rule.principal(),
+            new RateLimitProps.Policy(rule.capacity(), rule.refillPerMinute()),
+            Math.max(1, rule.cost()),
+            rule.charges() == null ? Map.of() : Map.copyOf(rule.charges()),
+            "rl:" + rule.name() + ":u:",
+            "rl:" + rule.name() + ":ip:"
+        );
+    }
+
+    /** The rule for this request, or null when it is not rate limited. */
+    public Compiled match(String method, String path) {
+        path = normalize(path);
+        MethodTable table = byMethod.get(method);
+        Compiled r = table == null ? null : table.match(path);
+        return r != null ? r : anyMethod.match(path);
+    }
+
+    /**
+     * The charge configured under {@code reason} on the rule that limits {@code method path}.
+     *
+     * @throws IllegalStateException if rate limiting is on and no rule matches the route or
+     *                               the rule has no such charge
+     */
+    public Charge chargeFor(String method, String path, String reason) {
+        if (!enabled) return Charge.NONE;
+        Compiled rule = match(method, path);
+        if (rule == null) {
+            throw new IllegalStateException("no ratelimit policy matches " + method + " " + path);
+        }
+        Integer tokens = rule.charges().get(reason);
+        if (tokens == null || tokens <= 0) {
+            throw new IllegalStateException("ratelimit policy " + rule.name() + " has no charge '" + reason + "'");
+        }
+        return new Charge(rule, tokens);
+    }
+
+    /**
+     * Takes a charge from the user's bucket, e.g. after a chat turn reached the LLM. Only the
+     * node's lease is touched on the calling thread (see {@link LeasedRateLimiter#charge});
+     * failures are only logged.
+     */
+    public void charge(Charge charge, long userId) {
+        if (charge.rule() == null) return;
+        Compiled rule = charge.rule();
+        try {
+            limiter.charge(rule.userKeyPrefix() + userId, rule.bucket(), charge.tokens());
+        } catch (Exception e) {
+            log.warn("ratelimit_charge_failed policy={} userId={} tokens={} err={}",
+                rule.name(), userId, charge.tokens(), e.toString());
+        }
+    }
+
+    private static String normalize(String path) {
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+}
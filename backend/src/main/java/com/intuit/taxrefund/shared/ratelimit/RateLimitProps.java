@@ -2,11 +2,99 @@ package com.intuit.taxrefund.shared.ratelimit;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
 @ConfigurationProperties(prefix = "app.ratelimit")
 public record RateLimitProps(
     boolean enabled,
-    Policy refundLatest,
-    Policy assistantChat
+    List<Rule> policies,
+    Lease lease,
+    Degraded degraded
 ) {
+    /** Rules sharing a name share one bucket, so they must agree on everything about it. */
+    public RateLimitProps {
+        Map<String, Rule> byName = new HashMap<>();
+        for (Rule r : policies == null ? List.<Rule>of() : policies) {
+            if (r == null || r.name() == null) continue;
+            Rule first = byName.putIfAbsent(r.name(), r);
+            if (first != null && !first.sameBucket(r)) {
+                throw new IllegalArgumentException("ratelimit policies named '" + r.name()
+                    + "' share a bucket but differ in principal, capacity, refill, cost or charges: "
+                    + first + " vs " + r);
+            }
+        }
+    }
+
+    /** Bucket size and refill rate. */
     public record Policy(int capacity, int refillPerMinute) {}
-}
\ No newline at end of file
+
+    /** Who a bucket belongs to. */
+    public enum PrincipalType {
+        /** the authenticated user, else the client IP */
+        USER_OR_IP,
+        /** authenticated users only; anonymous requests are not limited by this rule */
+        USER,
+        /** the client IP, even for authenticated requests */
+        IP
+    }
+
+    /**
+     * One row of the policy table; see {@link RateLimitPolicies}.
+     *
+     * @param name      bucket name, part of the Redis key; rules sharing a name share a bucket
+     * @param method    HTTP method, or null/"*" for any
+     * @param path      exact path or a Spring path pattern ("/api/assistant/chat/**")
+     * @param cost      tokens taken per request, default 1
+     * @param charges   extra tokens charged after the fact by name, e.g. {llm: 2} for a turn
+     *                  that reached the LLM (see {@link RateLimitPolicies#charge})
+     */
+    public record Rule(
+        String name,
+        String method,
+        String path,
+        PrincipalType principal,
+        int capacity,
+        int refillPerMinute,
+        int cost,
+        Map<String, Integer> charges
+    ) {
+        boolean sameBucket(Rule o) {
+            return Objects.equals(principal, o.principal) && capacity == o.capacity
+                && refillPerMinute == o.refillPerMinute && Math.max(1, cost) == Math.max(1, o.cost)
+                && Objects.equals(charges == null ? Map.of() : charges, o.charges == null ? Map.of() : o.charges);
+        }
+    }
+
+    /**
+     * Node-local token leasing, see {@link LeasedRateLimiter}.
+     *
+     * @param fraction   share of a bucket's capacity leased from Redis at a time
+     * @param ttlMs      unused leased tokens are dropped after this long
+     * @param maxBuckets local buckets kept before expired ones are evicted
+     */
+    public record Lease(boolean enabled, double fraction, long ttlMs, int maxBuckets) {}
+
+    /** What to decide while Redis is unreachable. */
+    public enum FailMode {
+        /** admit everything */
+        OPEN,
+        /** deny everything limited by a rule */
+        CLOSED,
+        /** per-node in-memory buckets holding localShare of each policy */
+        LOCAL
+    }
+
+    /**
+     * Redis outage handling, see {@link LeasedRateLimiter}.
+     *
+     * @param failureThreshold consecutive Redis failures that open the breaker
+     * @param openMs           how long the breaker stays open before one trial call
+     * @param localShare       share of capacity and refill each node allows on its own in LOCAL
+     *                         mode, roughly 1 / number of nodes
+     * @param maxBuckets       local buckets kept in LOCAL mode
+     */
+    public record Degraded(FailMode mode, int failureThreshold, long openMs, double localShare, int maxBuckets) {}
+}
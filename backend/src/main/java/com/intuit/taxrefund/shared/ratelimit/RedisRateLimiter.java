@@ -1,83 +1,173 @@
 package com.intuit.taxrefund.shared.ratelimit;
 
+import com.intuit.taxrefund.shared.config.RedisConfig;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Component;
 
-import java.time.Instant;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+/**
+ * Token bucket in Redis, one hash per key.
+ *
+ * Tokens are kept in integer units of 1/60000 token, so a bucket refilling r tokens per
+ * minute gains exactly r units per millisecond and the script never handles fractions. The
+ * current time comes from Redis (TIME), so nodes with skewed clocks all refill the same
+ * bucket consistently; calling TIME before a write relies on effects replication, the default
+ * on Redis 6+, which the application requires anyway. The key expires once the bucket would
+ * be full again; a missing key means a full bucket.
+ *
+ * The script is loaded once (SCRIPT LOAD) and run with EVALSHA; if Redis lost it (restart,
+ * SCRIPT FLUSH) it is reloaded and the call retried once. Arguments are plain integers and
+ * the reply is three integers: {granted tokens, whole tokens left, ms until next token}.
+ * Errors and malformed replies are thrown; {@link LeasedRateLimiter} decides what an outage means.
+ * Calls go through the limiter's own short-timeout connection (see {@link RedisConfig}).
+ */
 @Component
 public class RedisRateLimiter {
 
-    private final StringRedisTemplate redis;
+    private static final Logger log = LogManager.getLogger(RedisRateLimiter.class);
 
     private static final String LUA = """
         local key = KEYS[1]
-        local now = tonumber(ARGV[1])
-        local capacity = tonumber(ARGV[2])
-        local refillRate = tonumber(ARGV[3])
-        local requested = tonumber(ARGV[4])
-
-        local data = redis.call('HMGET', key, 'tokens', 'ts')
-        local tokens = tonumber(data[1])
-        local ts = tonumber(data[2])
-
-        if tokens == nil then tokens = capacity end
-        if ts == nil then ts = now end
-
-        local delta = math.max(0, now - ts)
-        local refill = delta * refillRate
-        tokens = math.min(capacity, tokens + refill)
-
-        local allowed = 0
-        if tokens >= requested then
-          allowed = 1
-          tokens = tokens - requested
+        local capacity = tonumber(ARGV[1])
+        local rate = tonumber(ARGV[2])
+        local requested = tonumber(ARGV[3])
+        local partial = ARGV[4] == '1'
+        local unit = 60000
+
+        local t = redis.call('TIME')
+        local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+
+        local full = capacity * unit
+        local data = redis.call('HMGET', key, 't', 'ts')
+        local tokens = tonumber(data[1]) or full
+        local ts = tonumber(data[2]) or now
+
+        if now > ts then
+          tokens = math.min(full, tokens + (now - ts) * rate)
         end
 
-        redis.call('HMSET', key, 'tokens', tokens, 'ts', now)
-        redis.call('PEXPIRE', key, 10 * 60 * 1000)
+        local granted = 0
+        if tokens >= requested * unit then
+          granted = requested
+        elseif partial then
+          granted = math.floor(tokens / unit)
+        end
+        tokens = tokens - granted * unit
+
+        local missing = full - tokens
+        if missing > 0 then
+          redis.call('HSET', key, 't', tokens, 'ts', now)
+          local ttl = 600000
+          if rate > 0 then ttl = math.floor((missing + rate - 1) / rate) + 1000 end
+          redis.call('PEXPIRE', key, ttl)
+        else
+          redis.call('DEL', key)
+        end
 
-        return {allowed, tokens}
+        local wait = 0
+        if tokens < unit then
+          if rate > 0 then wait = math.floor((unit - tokens + rate - 1) / rate) else wait = -1 end
+        end
+        return {granted, math.floor(tokens / unit), wait}
     """;
 
-    // Tell Spring the script returns a 2-element list
-    private static final DefaultRedisScript<List> SCRIPT;
-    static {
-        SCRIPT = new DefaultRedisScript<>();
-        SCRIPT.setScriptText(LUA);
-        SCRIPT.setResultType(List.class);
-    }
+    private static final byte[] SCRIPT = LUA.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ZERO = { '0' };
+    private static final byte[] ONE = { '1' };
+
+    private final StringRedisTemplate redis;
+    private volatile String sha;
 
-    public RedisRateLimiter(StringRedisTemplate redis) {
+    public RedisRateLimiter(@Qualifier(RedisConfig.RATE_LIMIT_TEMPLATE) StringRedisTemplate redis) {
         this.redis = redis;
     }
 
+    @PostConstruct
+    void init() {
+        try {
+            load();
+        } catch (Exception e) {
+            // Redis may come up after us; the first call loads it
+            log.warn("ratelimit_script_preload_failed err={}", e.toString());
+        }
+    }
+
     public Result tryConsume(String key, int capacity, int refillPerMinute, int tokens) {
-        long now = Instant.now().toEpochMilli();
-        double refillPerMillis = refillPerMinute / 60000.0;
-
-        @SuppressWarnings("unchecked")
-        List<Object> resp = (List<Object>) redis.execute(
-            SCRIPT,
-            List.of(key),
-            String.valueOf(now),
-            String.valueOf(capacity),
-            String.valueOf(refillPerMillis),
-            String.valueOf(tokens)
-        );
-
-        // Defensive: null if Redis down or script failed
-        if (resp == null || resp.size() < 2) {
-            return new Result(true, capacity); // or fail-closed if you prefer
+        List<Object> resp = execute(key, capacity, refillPerMinute, tokens, false);
+        return new Result(asLong(resp.get(0)) == tokens, asLong(resp.get(1)), asLong(resp.get(2)));
+    }
+
+    /**
+     * Takes up to {@code max} whole tokens from the bucket, as many as it holds, for a node to
+     * spend locally (see {@link LeasedRateLimiter}). Grants 0 when the bucket is empty.
+     */
+    public Grant lease(String key, int capacity, int refillPerMinute, int max) {
+        List<Object> resp = execute(key, capacity, refillPerMinute, max, true);
+        return new Grant(asLong(resp.get(0)), asLong(resp.get(1)), asLong(resp.get(2)));
+    }
+
+    private List<Object> execute(String key, int capacity, int refillPerMinute, int tokens, boolean partial) {
+        byte[][] keysAndArgs = {
+            key.getBytes(StandardCharsets.UTF_8),
+            digits(capacity),
+            digits(refillPerMinute),
+            digits(tokens),
+            partial ? ONE : ZERO
+        };
+        String current = sha != null ? sha : load();
+        List<Object> resp;
+        try {
+            resp = evalSha(current, keysAndArgs);
+        } catch (RuntimeException e) {
+            if (!isNoScript(e)) throw e;
+            log.info("ratelimit_script_reloaded");
+            resp = evalSha(load(), keysAndArgs);
+        }
+        // an error like any other, so LeasedRateLimiter's degraded mode decides instead
+        if (resp == null || resp.size() < 3) throw new IllegalStateException("ratelimit_script_bad_reply " + resp);
+        return resp;
+    }
+
+    private List<Object> evalSha(String scriptSha, byte[][] keysAndArgs) {
+        return redis.execute((RedisCallback<List<Object>>) conn ->
+            conn.scriptingCommands().evalSha(scriptSha, ReturnType.MULTI, 1, keysAndArgs));
+    }
+
+    private String load() {
+        String loaded = redis.execute((RedisCallback<String>) conn -> conn.scriptingCommands().scriptLoad(SCRIPT));
+        sha = loaded;
+        return loaded;
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().contains("NOSCRIPT")) return true;
         }
+        return false;
+    }
 
-        int allowed = Integer.parseInt(resp.get(0).toString());
-        double remaining = Double.parseDouble(resp.get(1).toString());
+    private static byte[] digits(int value) {
+        return value == 0 ? ZERO : Integer.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
 
-        return new Result(allowed == 1, remaining);
+    private static long asLong(Object o) {
+        return o instanceof Number n ? n.longValue() : Long.parseLong(o.toString());
     }
 
-    public record Result(boolean allowed, double remainingTokens) {}
-}
\ No newline at end of file
+    /**
+     * @param retryAfterMillis until the next whole token, 0 when one is available now,
+     *                         -1 when the bucket never refills
+     */
+    public record Result(boolean allowed, long remainingTokens, long retryAfterMillis) {}
+
+    /** Reply to {@link #lease}: tokens granted, whole tokens left in Redis, ms until the next one. */
+    public record Grant(long tokens, long remainingTokens, long retryAfterMillis) {}
+}
@@ -1,5 +1,6 @@
 package com.intuit.taxrefund.shared.web;
 
+import com.intuit.taxrefund.shared.concurrent.DeadlineExceededException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -82,6 +83,22 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(DeadlineExceededException.class)
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public ApiError deadlineExceeded(DeadlineExceededException ex, HttpServletRequest req) {
+        log.warn("deadline_exceeded path={} method={} step={}",
+            req.getRequestURI(), req.getMethod(), ex.step());
+
+        return new ApiError(
+            Instant.now(),
+            504,
+            "Gateway Timeout",
+            "The request took too long. Please try again.",
+            req.getRequestURI(),
+            null
+        );
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ApiError serverError(Exception ex, HttpServletRequest req) {
@@ -0,0 +1,3 @@
+-- Support the batched purge of expired and revoked refresh tokens (RefreshTokenStore.purge).
+create index ix_refresh_expires_at on refresh_token(expires_at);
+create index ix_refresh_revoked on refresh_token(id) where revoked;
@@ -0,0 +1,20 @@
+-- Current ETA read model: one row per (user, tax year, status).
+-- Upserted by the outbox handler; refund_eta_prediction stays append-only history.
+create table refund_eta_current (
+  user_id bigint not null references app_user(id) on delete cascade,
+  tax_year int not null,
+  status varchar(40) not null,
+  eta_days int not null,
+  estimated_available_at timestamptz,
+  model_name varchar(120) not null,
+  model_version varchar(120) not null,
+  updated_at timestamptz not null default now(),
+  primary key (user_id, tax_year, status)
+);
+
+-- Backfill from the latest prediction per key
+insert into refund_eta_current (user_id, tax_year, status, eta_days, estimated_available_at, model_name, model_version, updated_at)
+select distinct on (user_id, tax_year, status)
+  user_id, tax_year, status, eta_days, estimated_available_at, model_name, model_version, created_at
+from refund_eta_prediction
+order by user_id, tax_year, status, created_at desc;
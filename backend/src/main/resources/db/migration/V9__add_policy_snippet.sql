@@ -0,0 +1,55 @@
+-- Policy snippets quoted to the assistant, editable without a deploy.
+-- status_triggers is a comma-separated list of refund statuses, or '*' for all.
+create table policy_snippet (
+  id varchar(80) primary key,
+  title varchar(200) not null,
+  quote varchar(1000) not null,
+  source_type varchar(40) not null,
+  source_url varchar(500),
+  source_title varchar(200),
+  version varchar(40) not null,
+  effective_from timestamptz,
+  effective_to timestamptz,
+  status_triggers varchar(400) not null,
+  locale varchar(20),
+  enabled boolean not null default true,
+  priority int not null default 100,
+  updated_at timestamptz not null default now()
+);
+
+-- Single-row change counter. Every write to policy_snippet bumps it, so nodes poll one
+-- integer to find out whether their in-memory snapshot is stale.
+create table policy_snippet_set (
+  id smallint primary key check (id = 1),
+  version bigint not null,
+  changed_at timestamptz not null default now()
+);
+insert into policy_snippet_set (id, version) values (1, 1);
+
+create function bump_policy_snippet_set() returns trigger as $$
+begin
+  update policy_snippet_set set version = version + 1, changed_at = now() where id = 1;
+  return null;
+end;
+$$ language plpgsql;
+
+create trigger policy_snippet_changed
+after insert or update or delete or truncate on policy_snippet
+for each statement execute function bump_policy_snippet_set();
+
+-- Seed with the snippets previously hard-coded in InMemoryPolicySnippetRepository
+insert into policy_snippet
+  (id, title, quote, source_type, source_url, source_title, version, effective_from, status_triggers, locale, priority)
+values
+  ('IRS_REFUND_GENERAL_001', 'Peak processing delays',
+   'Refund status updates can be delayed during peak processing periods.',
+   'IRS', 'https://www.irs.gov/refunds', 'IRS Refunds', '2026.01', '2025-01-01T00:00:00Z', '*', 'en-US', 10),
+  ('IRS_REFUND_BANK_POSTING_001', 'Bank posting delays',
+   'If a refund is marked SENT, banks may require additional time to post deposits.',
+   'IRS', 'https://www.irs.gov/refunds', 'IRS Refunds', '2026.01', '2025-01-01T00:00:00Z', 'SENT,AVAILABLE', 'en-US', 20),
+  ('IRS_REFUND_PROCESSING_001', 'Processing review delays',
+   'Long processing times can occur due to verification or return review.',
+   'IRS', 'https://www.irs.gov/refunds', 'IRS Refunds', '2026.01', '2025-01-01T00:00:00Z', 'PROCESSING', 'en-US', 5),
+  ('IRS_REFUND_REJECTED_001', 'Rejected refund next steps',
+   'Rejected refunds often require correcting filing details or addressing notices.',
+   'IRS', 'https://www.irs.gov/refunds', 'IRS Refunds', '2026.01', '2025-01-01T00:00:00Z', 'REJECTED', 'en-US', 5);
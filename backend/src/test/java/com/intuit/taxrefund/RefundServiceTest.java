@@ -9,12 +9,15 @@ import com.intuit.taxrefund.refund.repository.RefundAccessAuditRepository;
 import com.intuit.taxrefund.refund.service.RefundService;
 import com.intuit.taxrefund.refund.service.RefundSyncService;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
 
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -220,4 +223,52 @@ class RefundServiceTest {
             && "corr-sync-fail".equals(a.getCorrelationId())
     ));
   }
-}
\ No newline at end of file
+
+  @Test
+  void applyEtaToCachedLatest_patchesCachedResponse_whenStatusMatches() throws Exception {
+    StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+    when(redis.opsForValue()).thenReturn(valueOps);
+
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    String cachedJson = objectMapper.writeValueAsString(new RefundStatusResponse(
+        2025, "PROCESSING", Instant.now(), new BigDecimal("50.00"), "IRS-1", null, null
+    ));
+    when(valueOps.get("refund:latest:1")).thenReturn(cachedJson);
+
+    RefundService svc = newSvc(mock(IrsAdapter.class), mock(RefundSyncService.class),
+        mock(RefundAccessAuditRepository.class), redis, objectMapper);
+
+    Instant eta = Instant.parse("2026-03-01T00:00:00Z");
+    svc.applyEtaToCachedLatest(1L, 2025, "PROCESSING", eta);
+
+    org.mockito.ArgumentCaptor<String> patchedJson = org.mockito.ArgumentCaptor.forClass(String.class);
+    verify(redis, times(1)).execute(
+        ArgumentMatchers.<RedisScript<Long>>any(), eq(List.of("refund:latest:1")), eq(cachedJson), patchedJson.capture());
+
+    RefundStatusResponse patched = objectMapper.readValue(patchedJson.getValue(), RefundStatusResponse.class);
+    assertEquals(eta, patched.availableAtEstimated());
+    assertEquals("PROCESSING", patched.status());
+  }
+
+  @Test
+  void applyEtaToCachedLatest_leavesCacheAlone_whenStatusDiffers() throws Exception {
+    StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+    when(redis.opsForValue()).thenReturn(valueOps);
+
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    when(valueOps.get("refund:latest:1")).thenReturn(objectMapper.writeValueAsString(new RefundStatusResponse(
+        2025, "SENT", Instant.now(), new BigDecimal("50.00"), "IRS-1", null, null
+    )));
+
+    RefundService svc = newSvc(mock(IrsAdapter.class), mock(RefundSyncService.class),
+        mock(RefundAccessAuditRepository.class), redis, objectMapper);
+
+    svc.applyEtaToCachedLatest(1L, 2025, "PROCESSING", Instant.now());
+
+    verify(redis, never()).execute(ArgumentMatchers.<RedisScript<Long>>any(), anyList(), any(Object[].class));
+  }
+}
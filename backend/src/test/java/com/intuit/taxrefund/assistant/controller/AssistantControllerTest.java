@@ -0,0 +1,80 @@
+package com.intuit.taxrefund.assistant.controller;
+
+import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse;
+import com.intuit.taxrefund.assistant.service.AssistantService;
+import com.intuit.taxrefund.auth.jwt.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class AssistantControllerTest {
+
+  private final AssistantService service = mock(AssistantService.class);
+  private final MockMvc mvc = MockMvcBuilders
+      .standaloneSetup(new AssistantController(service, new SimpleAsyncTaskExecutor()))
+      .build();
+  private final JwtService.JwtPrincipal principal = new JwtService.JwtPrincipal(7L, "u7@example.com", "USER");
+
+  private String stream(String question) throws Exception {
+    MvcResult result = mvc.perform(post("/api/assistant/chat/stream")
+            .principal(new UsernamePasswordAuthenticationToken(principal, null, List.of()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"question\":\"" + question + "\"}"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    result.getAsyncResult(5_000);
+    return result.getResponse().getContentAsString();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void stream_sendsTokensInOrder_thenTheFinalAnswer() throws Exception {
+    when(service.answerStreaming(eq(principal), eq("where is my refund"), any())).thenAnswer(inv -> {
+      Consumer<String> onToken = inv.getArgument(2);
+      onToken.accept("Your refund ");
+      onToken.accept("is processing.");
+      return new AssistantChatResponse("Your refund is processing.", List.of(), List.of(),
+          AssistantChatResponse.Confidence.HIGH);
+    });
+
+    String body = stream("where is my refund");
+
+    assertEquals("""
+        event:token
+        data:{"text":"Your refund "}
+
+        event:token
+        data:{"text":"is processing."}
+
+        event:final
+        data:{"answerMarkdown":"Your refund is processing.","citations":[],"actions":[],"confidence":"HIGH"}
+
+        """, body);
+  }
+
+  @Test
+  void stream_endsWithAnErrorEvent_whenTheTurnFails() throws Exception {
+    when(service.answerStreaming(any(), anyString(), any())).thenThrow(new IllegalStateException("redis down"));
+
+    String body = stream("where is my refund");
+
+    assertEquals("""
+        event:error
+        data:{"error":"assistant_failed"}
+
+        """, body);
+  }
+}
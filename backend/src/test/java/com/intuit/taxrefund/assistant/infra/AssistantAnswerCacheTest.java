@@ -0,0 +1,141 @@
+package com.intuit.taxrefund.assistant.infra;
+
+import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse;
+import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse.Confidence;
+import com.intuit.taxrefund.assistant.model.AssistantIntent;
+import com.intuit.taxrefund.assistant.model.AssistantPlan;
+import com.intuit.taxrefund.assistant.model.ConversationState;
+import com.intuit.taxrefund.assistant.policy.PolicySnippetRecord;
+import com.intuit.taxrefund.refund.controller.dto.RefundStatusResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AssistantAnswerCacheTest {
+
+  private static final Instant NOW = Instant.parse("2026-03-01T00:00:00Z");
+
+  private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+  @SuppressWarnings("unchecked")
+  private final ValueOperations<String, String> ops = mock(ValueOperations.class);
+  private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+  private final AssistantAnswerCache cache = new AssistantAnswerCache(
+      redis,
+      new PrivacyFilter(Clock.fixed(NOW, ZoneOffset.UTC)),
+      new AssistantProps(500, true, 0, 0, true),
+      meters);
+
+  private final AssistantPlan plan = new AssistantPlan(ConversationState.PROVIDED_ETA, true, true, true);
+
+  private static RefundStatusResponse refund(String amount, Instant eta, String trackingId) {
+    return new RefundStatusResponse(2025, "PROCESSING", NOW.minusSeconds(3600),
+        new BigDecimal(amount), trackingId, eta, null);
+  }
+
+  private static PolicySnippetRecord snippet(String version, String quote) {
+    return new PolicySnippetRecord("IRS_REFUND_PROCESSING_001", "t", quote, "IRS", null, null, version,
+        null, null, Set.of("PROCESSING"), "en-US", true, 5);
+  }
+
+  @Test
+  void key_isSharedByUsersInTheSameBuckets_andIgnoresIdentifiers() {
+    List<PolicySnippetRecord> snippets = List.of(snippet("2026.01", "Reviews take time."));
+
+    String a = cache.keyFor(1, AssistantIntent.REFUND_ETA, plan,
+        refund("1200.00", NOW.plus(Duration.ofDays(9)), "TRK-A"), snippets);
+    String b = cache.keyFor(1, AssistantIntent.REFUND_ETA, plan,
+        refund("1875.50", NOW.plus(Duration.ofDays(12)), "TRK-B"), snippets);
+
+    assertEquals(a, b);
+    assertTrue(a.startsWith("assistant:answer:"));
+  }
+
+  @Test
+  void key_changesWithBucketsPolicySnippetsAndPromptVersion() {
+    RefundStatusResponse r = refund("1200.00", NOW.plus(Duration.ofDays(9)), null);
+    String base = cache.keyFor(1, AssistantIntent.REFUND_ETA, plan, r, List.of(snippet("2026.01", "Reviews take time.")));
+
+    assertNotEquals(base, cache.keyFor(1, AssistantIntent.REFUND_ETA, plan,
+        refund("6000.00", NOW.plus(Duration.ofDays(9)), null), List.of(snippet("2026.01", "Reviews take time."))));
+    assertNotEquals(base, cache.keyFor(1, AssistantIntent.REFUND_ETA, plan,
+        refund("1200.00", NOW.plus(Duration.ofDays(30)), null), List.of(snippet("2026.01", "Reviews take time."))));
+    assertNotEquals(base, cache.keyFor(1, AssistantIntent.REFUND_ETA, plan, r,
+        List.of(snippet("2026.02", "Reviews take time."))));
+    assertNotEquals(base, cache.keyFor(1, AssistantIntent.REFUND_ETA, plan, r,
+        List.of(snippet("2026.01", "Reviews can take several weeks."))));
+    assertNotEquals(base, cache.keyFor(2, AssistantIntent.REFUND_ETA, plan, r,
+        List.of(snippet("2026.01", "Reviews take time."))));
+  }
+
+  @Test
+  void onlyStoresAnswersThatCannotCarryUserData() {
+    RefundStatusResponse r = refund("1200.00", null, null);
+    String q = "When will I get my refund for my account ending 4321?";
+
+    assertNull(AssistantAnswerCache.rejectReason(answer("Your 2025 refund is still processing.", Confidence.HIGH), r, q, true));
+    assertEquals("history", AssistantAnswerCache.rejectReason(answer("Still processing.", Confidence.HIGH), r, q, false));
+    assertEquals("low_confidence", AssistantAnswerCache.rejectReason(answer("Not sure.", Confidence.LOW), r, q, true));
+    assertEquals("digits", AssistantAnswerCache.rejectReason(answer("Expected on March 9.", Confidence.HIGH), r, q, true));
+    assertEquals("echoes_question", AssistantAnswerCache.rejectReason(
+        answer("About my account ending soon: it is processing.", Confidence.HIGH), r, q, true));
+  }
+
+  @Test
+  void rejectsAnswersThatRepeatANameOrEmailFromTheQuestion() {
+    RefundStatusResponse r = refund("1200.00", null, null);
+
+    String name = "My name is Jane Smith, where is my refund?";
+    assertEquals("echoes_question", AssistantAnswerCache.rejectReason(
+        answer("Hi Jane Smith, your refund is still processing.", Confidence.HIGH), r, name, true));
+    assertEquals("echoes_question", AssistantAnswerCache.rejectReason(
+        answer("Hi Jane, your refund is still processing.", Confidence.HIGH), r, name, true));
+    assertNull(AssistantAnswerCache.rejectReason(
+        answer("Your refund is still processing.", Confidence.HIGH), r, name, true));
+
+    // a name that is also a common word only counts when the user capitalized it mid-sentence
+    String will = "Hi, this is Will. When will my refund arrive?";
+    assertEquals("echoes_question", AssistantAnswerCache.rejectReason(
+        answer("Thanks Will, your refund is still processing.", Confidence.HIGH), r, will, true));
+    assertNull(AssistantAnswerCache.rejectReason(
+        answer("Your refund will arrive once processing is done.", Confidence.HIGH), r, will, true));
+
+    String email = "Can you send the status to jane.smith@example.com?";
+    assertEquals("email", AssistantAnswerCache.rejectReason(
+        answer("I'll send it to jane.smith@example.com.", Confidence.HIGH), r, email, true));
+    assertEquals("echoes_question", AssistantAnswerCache.rejectReason(
+        answer("Jane, your refund is processing; check example com for updates.", Confidence.HIGH), r, email, true));
+  }
+
+  @Test
+  void countsHitsMissesAndStores() {
+    when(redis.opsForValue()).thenReturn(ops);
+    when(ops.get("k1")).thenReturn("{}");
+
+    assertEquals("{}", cache.get("k1"));
+    assertNull(cache.get("k2"));
+    cache.putIfShareable("k3", "{}", answer("Still processing.", Confidence.MEDIUM),
+        refund("10.00", null, null), "status?", true);
+
+    verify(ops).set(eq("k3"), eq("{}"), eq(Duration.ofHours(6)));
+    assertEquals(1.0, meters.counter("assistant.answer.cache", "result", "hit").count());
+    assertEquals(1.0, meters.counter("assistant.answer.cache", "result", "miss").count());
+    assertEquals(1.0, meters.counter("assistant.answer.cache", "result", "store").count());
+  }
+
+  private static AssistantChatResponse answer(String markdown, Confidence confidence) {
+    return new AssistantChatResponse(markdown, List.of(), List.of(), confidence);
+  }
+}
@@ -0,0 +1,106 @@
+package com.intuit.taxrefund.assistant.infra;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AssistantQuotaServiceTest {
+
+  private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+  private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+  private final AtomicLong now = new AtomicLong(1_000_000);
+  private final List<List<String>> keys = new ArrayList<>();
+  private final List<List<Object>> args = new ArrayList<>();
+  private final AssistantQuotaService quota;
+
+  AssistantQuotaServiceTest() {
+    Clock clock = mock(Clock.class);
+    when(clock.millis()).thenAnswer(inv -> now.get());
+    quota = new AssistantQuotaService(redis, new AssistantQuotaProps(List.of(
+        new AssistantQuotaProps.Limit("user-minute", AssistantQuotaProps.Scope.USER, 60, 5,
+            AssistantQuotaProps.Unit.CALLS),
+        new AssistantQuotaProps.Limit("provider-minute", AssistantQuotaProps.Scope.PROVIDER, 60, 600,
+            AssistantQuotaProps.Unit.CALLS),
+        new AssistantQuotaProps.Limit("spend-day", AssistantQuotaProps.Scope.GLOBAL, 86400, 50_000_000,
+            AssistantQuotaProps.Unit.MICRO_USD)
+    ), 0), meters, clock);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void scriptReturns(Object reply) {
+    when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+      Object[] raw = inv.getArguments();
+      keys.add(inv.getArgument(1));
+      args.add(Arrays.asList(raw).subList(2, raw.length));
+      if (reply instanceof RuntimeException e) throw e;
+      return reply;
+    });
+  }
+
+  @Test
+  void tryAcquire_checksAllLimitsInOneCall_countingCallsButNotSpend() {
+    scriptReturns(List.of(1L, 0L, 0L));
+
+    assertTrue(quota.tryAcquire(7L, "openai").allowed());
+
+    assertEquals(List.of(List.of("llm:quota:user-minute:u:7", "llm:quota:provider-minute:p:openai",
+        "llm:quota:spend-day:g")), keys);
+    assertEquals(List.of("1", "60000", "5", "1", "60000", "600", "1", "86400000", "50000000", "0"),
+        args.get(0));
+  }
+
+  @Test
+  void denial_isCachedLocally_untilTheLimitHasRoom() {
+    scriptReturns(List.of(0L, 1L, 62_000L));
+
+    AssistantQuotaService.Decision first = quota.tryAcquire(7L, "openai");
+    now.addAndGet(60_000);
+    AssistantQuotaService.Decision second = quota.tryAcquire(7L, "openai");
+
+    assertFalse(first.allowed());
+    assertEquals("user-minute", first.limit());
+    assertEquals(62_000, first.retryAfterMillis());
+    assertFalse(second.allowed());
+    assertEquals(2_000, second.retryAfterMillis());
+    assertEquals(1, keys.size(), "the second denial must not reach Redis");
+    assertEquals(1.0, meters.get("assistant.quota.denied").tags("source", "local").counter().count());
+
+    // another user is not affected
+    scriptReturns(List.of(1L, 0L, 0L));
+    assertTrue(quota.tryAcquire(8L, "openai").allowed());
+
+    now.addAndGet(2_000);
+    assertTrue(quota.tryAcquire(7L, "openai").allowed());
+  }
+
+  @Test
+  void recordSpend_addsMicroUsdToSpendLimitsOnly() {
+    scriptReturns(List.of(1L, 0L, 0L));
+
+    quota.recordSpend(7L, "openai", 0.0123);
+    quota.recordSpend(7L, "mock", 0.0);
+
+    assertEquals(List.of(List.of("llm:quota:spend-day:g")), keys);
+    assertEquals(List.of("0", "86400000", "50000000", "12300"), args.get(0));
+  }
+
+  @Test
+  void redisFailure_failsClosed() {
+    scriptReturns(new RedisConnectionFailureException("down"));
+
+    assertFalse(quota.tryAcquire(7L, "openai").allowed());
+    assertDoesNotThrow(() -> quota.recordSpend(7L, "openai", 0.01));
+  }
+}
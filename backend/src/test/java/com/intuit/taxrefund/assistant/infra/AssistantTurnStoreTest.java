@@ -0,0 +1,210 @@
+package com.intuit.taxrefund.assistant.infra;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.assistant.model.AssistantIntent;
+import com.intuit.taxrefund.assistant.model.ConversationContext;
+import com.intuit.taxrefund.assistant.model.ConversationState;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisListCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AssistantTurnStoreTest {
+
+  // Mirrors Spring Boot's mapper: derived record accessors (e.g. isRepeating) are ignored on read
+  private final ObjectMapper om = new ObjectMapper().findAndRegisterModules()
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+  private final ConversationContextCodec codec = new ConversationContextCodec(om);
+
+  private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+  private final AssistantTurnStore store = new AssistantTurnStore(redis, new ConversationStateStore(redis, codec));
+
+  private final StringRedisConnection conn = mock(StringRedisConnection.class);
+  private final RedisStringCommands byteStrings = mock(RedisStringCommands.class);
+  private final RedisListCommands byteLists = mock(RedisListCommands.class);
+  private final RedisKeyCommands byteKeys = mock(RedisKeyCommands.class);
+
+  private static final byte[] HIST_KEY = "chat:hist:42".getBytes(StandardCharsets.UTF_8);
+
+  private void runCapturedCallback(boolean withSerializer) {
+    ArgumentCaptor<RedisCallback<?>> cb = ArgumentCaptor.forClass(RedisCallback.class);
+    if (withSerializer) verify(redis, times(1)).executePipelined(cb.capture(), any());
+    else verify(redis, times(1)).executePipelined(cb.capture());
+
+    when(conn.stringCommands()).thenReturn(byteStrings);
+    when(conn.listCommands()).thenReturn(byteLists);
+    when(conn.keyCommands()).thenReturn(byteKeys);
+    cb.getValue().doInRedis(conn);
+  }
+
+  private static ConversationContext afterTurns(int turns) {
+    ConversationContext ctx = ConversationContext.start();
+    for (int i = 0; i < turns; i++) {
+      ctx = ctx.advance(ConversationState.PROVIDED_STATUS, AssistantIntent.REFUND_STATUS, false, "HIGH", "q" + i, "a" + i);
+    }
+    return ctx;
+  }
+
+  @Test
+  void readTurn_fetchesContextAndRefund_inOneRoundTrip() throws Exception {
+    Map<String, String> fsm = Map.of(
+        "state", "PROVIDED_STATUS", "confirmedState", "PROVIDED_STATUS", "pendingIntent", "REFUND_STATUS",
+        "repeatCount", "1", "turnCount", "2", "troubleshootingTurns", "0", "lowConfidenceTurns", "1",
+        "lastAnswerConfidence", "HIGH");
+    List<byte[]> history = List.of(
+        codec.encodeEntry(new ConversationContext.HistoryEntry("q0", "a0")),
+        codec.encodeEntry(new ConversationContext.HistoryEntry("q1", "a1")));
+    when(redis.executePipelined(any(RedisCallback.class), any()))
+        .thenReturn(Arrays.asList(fsm, history, null, "{\"status\":\"SENT\"}"));
+
+    AssistantTurnStore.TurnReads reads = store.readTurn(42L);
+
+    assertEquals(ConversationState.PROVIDED_STATUS, reads.ctx().state());
+    assertEquals(AssistantIntent.REFUND_STATUS, reads.ctx().pendingIntent());
+    assertEquals(2, reads.ctx().turnCount());
+    assertEquals(List.of("q0", "q1"), reads.ctx().history().stream().map(ConversationContext.HistoryEntry::question).toList());
+    assertEquals("{\"status\":\"SENT\"}", reads.refundCacheJson());
+    verify(redis, never()).opsForValue();
+
+    runCapturedCallback(true);
+    verify(conn).hGetAll("chat:fsm:42");
+    verify(byteLists).lRange(aryEq(HIST_KEY), eq(0L), eq(-1L));
+    verify(byteStrings).get(aryEq("chat:ctx:42".getBytes(StandardCharsets.UTF_8)));
+    verify(conn).get("refund:latest:42");
+    verify(conn, never()).get(startsWith("llm:quota:"));
+  }
+
+  @Test
+  void readTurn_missingKeys_startFresh() {
+    when(redis.executePipelined(any(RedisCallback.class), any()))
+        .thenReturn(Arrays.asList(Map.of(), List.of(), null, null));
+
+    AssistantTurnStore.TurnReads reads = store.readTurn(1L);
+
+    assertEquals(ConversationState.START, reads.ctx().state());
+    assertNull(reads.refundCacheJson());
+  }
+
+  @Test
+  void readTurn_fallsBackToLegacyContextBlob() throws Exception {
+    ConversationContext legacy = afterTurns(2);
+    when(redis.executePipelined(any(RedisCallback.class), any()))
+        .thenReturn(Arrays.asList(Map.of(), List.of(), codec.encode(legacy), null));
+
+    AssistantTurnStore.TurnReads reads = store.readTurn(42L);
+
+    assertEquals(legacy, reads.ctx());
+  }
+
+  /** WRITE_TURN's arguments, split the way the script reads them. */
+  private record TurnArgs(String ttl, String maxHistory, Map<String, String> seed, Map<String, String> sets,
+                          List<String> incrs, List<String> dels, byte[] appended, List<byte[]> history) {}
+
+  @SuppressWarnings("unchecked")
+  private TurnArgs capturedTurn(List<String> expectedKeys) {
+    ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+    verify(redis).execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+        eq(expectedKeys), args.capture());
+    List<byte[]> a = Arrays.stream(args.getValue()).map(o -> (byte[]) o).toList();
+    int[] i = {2};
+    IntFunction<List<String>> list = width -> {
+      int n = Integer.parseInt(str(a.get(i[0]))) * width;
+      List<String> out = a.subList(i[0] + 1, i[0] + 1 + n).stream().map(AssistantTurnStoreTest::str).toList();
+      i[0] += n + 1;
+      return out;
+    };
+    Map<String, String> seed = pairs(list.apply(2));
+    Map<String, String> sets = pairs(list.apply(2));
+    List<String> incrs = list.apply(1);
+    List<String> dels = list.apply(1);
+    return new TurnArgs(str(a.get(0)), str(a.get(1)), seed, sets, incrs, dels,
+        a.get(i[0]), a.subList(i[0] + 1, a.size()));
+  }
+
+  private static String str(byte[] b) {
+    return new String(b, StandardCharsets.UTF_8);
+  }
+
+  private static Map<String, String> pairs(List<String> flat) {
+    Map<String, String> out = new HashMap<>();
+    for (int i = 0; i < flat.size(); i += 2) out.put(flat.get(i), flat.get(i + 1));
+    return out;
+  }
+
+  private static final List<String> TURN_KEYS = List.of("chat:fsm:42", "chat:hist:42", "chat:ctx:42");
+
+  @Test
+  void commitTurn_isOneScript_carryingTheDeltaAndTheSeed() throws Exception {
+    ConversationContext before = afterTurns(4);
+    ConversationContext after = before.advance(
+        ConversationState.PROVIDED_STATUS, AssistantIntent.REFUND_STATUS, false, "HIGH", "q4", "a4");
+    AssistantTurnStore.TurnReads reads = new AssistantTurnStore.TurnReads(before, null);
+
+    store.commitTurn(42L, reads, after);
+
+    TurnArgs t = capturedTurn(TURN_KEYS);
+    assertEquals("3600", t.ttl());
+    assertEquals(Integer.toString(ConversationContext.MAX_HISTORY), t.maxHistory());
+
+    // repeat + low-confidence go up by one (same intent again), turn count always does
+    assertEquals(List.of("repeatCount", "turnCount", "lowConfidenceTurns"), t.incrs());
+    assertEquals("PROVIDED_STATUS", t.sets().get("state"));
+    assertEquals("0", t.sets().get("troubleshootingTurns"));
+    assertFalse(t.sets().containsKey("turnCount"));
+    assertTrue(t.dels().isEmpty());
+
+    // exactly one entry is appended to an existing list, regardless of window size
+    assertArrayEquals(codec.encodeEntry(new ConversationContext.HistoryEntry("q4", "a4")), t.appended());
+
+    // ...and the whole context is there in case the hash expired since the read
+    assertEquals("5", t.seed().get("turnCount"));
+    assertEquals(after.history().size(), t.history().size());
+
+    verify(redis, never()).executePipelined(any(RedisCallback.class));
+    verify(redis, never()).executePipelined(any(RedisCallback.class), any());
+  }
+
+  @Test
+  void commitTurn_onNewSession_sendsTheSameShape_soAConcurrentFirstTurnIsNotSeededTwice() {
+    AssistantTurnStore.TurnReads reads = new AssistantTurnStore.TurnReads(ConversationContext.start(), null);
+
+    store.commitTurn(42L, reads, afterTurns(1));
+
+    // whether to seed is decided by the script (EXISTS on the hash), not by the read:
+    // a second tab that also read nothing applies +1 on top of the first tab's seed
+    TurnArgs t = capturedTurn(TURN_KEYS);
+    assertEquals("1", t.seed().get("turnCount"));
+    assertTrue(t.incrs().contains("turnCount"));
+    assertEquals(1, t.history().size());
+    assertTrue(t.appended().length > 0);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void commitTurn_failure_isOnlyLogged() {
+    when(redis.execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+        anyList(), any(Object[].class))).thenThrow(new IllegalStateException("redis down"));
+
+    assertDoesNotThrow(() -> store.commitTurn(42L,
+        new AssistantTurnStore.TurnReads(ConversationContext.start(), null), afterTurns(1)));
+  }
+}
@@ -0,0 +1,77 @@
+package com.intuit.taxrefund.assistant.infra;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.assistant.model.AssistantIntent;
+import com.intuit.taxrefund.assistant.model.ConversationContext;
+import com.intuit.taxrefund.assistant.model.ConversationState;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversationContextCodecTest {
+
+  private final ObjectMapper om = new ObjectMapper().findAndRegisterModules()
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+  private final ConversationContextCodec codec = new ConversationContextCodec(om);
+
+  private static ConversationContext fullHistory() {
+    ConversationContext ctx = ConversationContext.start();
+    for (int i = 0; i < ConversationContext.MAX_HISTORY; i++) {
+      ctx = ctx.advance(ConversationState.PROVIDED_ETA, AssistantIntent.REFUND_ETA, false, "MEDIUM",
+          "When will I get my refund? (" + i + ")",
+          "**Latest refund status:** PROCESSING\n**Tax year:** 2025\n"
+              + "**Estimated availability:** 2026-03-0" + (i + 1) + "T00:00:00Z\n\n"
+              + "Refund status updates can be delayed during peak processing periods.");
+    }
+    return ctx;
+  }
+
+  @Test
+  void roundTrips_binaryEncoding() throws Exception {
+    ConversationContext ctx = fullHistory();
+
+    byte[] encoded = codec.encode(ctx);
+
+    assertEquals(ConversationContextCodec.FORMAT_SMILE_V1, encoded[0]);
+    assertEquals(ctx, codec.decode(encoded));
+  }
+
+  @Test
+  void roundTrips_historyEntry() throws Exception {
+    ConversationContext.HistoryEntry entry = fullHistory().history().get(0);
+
+    byte[] encoded = codec.encodeEntry(entry);
+
+    assertEquals(ConversationContextCodec.FORMAT_SMILE_V1, encoded[0]);
+    assertEquals(entry, codec.decodeEntry(encoded));
+  }
+
+  @Test
+  void decodes_legacyJsonValues() throws Exception {
+    ConversationContext ctx = fullHistory();
+    byte[] legacy = om.writeValueAsString(ctx).getBytes(StandardCharsets.UTF_8);
+
+    assertEquals(ctx, codec.decode(legacy));
+  }
+
+  @Test
+  void binaryEncoding_isSmallerThanJson_forFullHistory() throws Exception {
+    ConversationContext ctx = fullHistory();
+
+    int jsonBytes = om.writeValueAsBytes(ctx).length;
+    int binaryBytes = codec.encode(ctx).length;
+
+    assertTrue(binaryBytes < jsonBytes, "binary=" + binaryBytes + " json=" + jsonBytes);
+  }
+
+  @Test
+  void decode_returnsNull_forMissingValue_andRejectsUnknownFormat() throws Exception {
+    assertNull(codec.decode(null));
+    assertNull(codec.decode(new byte[0]));
+    assertThrows(IOException.class, () -> codec.decode(new byte[] {0x7F, 0x01}));
+  }
+}
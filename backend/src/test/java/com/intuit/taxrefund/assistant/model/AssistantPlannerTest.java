@@ -0,0 +1,32 @@
+package com.intuit.taxrefund.assistant.model;
+
+import com.intuit.taxrefund.assistant.infra.AssistantProps;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssistantPlannerTest {
+
+  private final AssistantPlanner planner = new AssistantPlanner(new AssistantProps(500, true, 0, 0, true));
+
+  @Test
+  void templateAnswer_onlyForConfidentSimpleTurns() {
+    ConversationContext start = ConversationContext.start();
+
+    assertTrue(planner.plan(start, AssistantIntent.REFUND_STATUS, 0.9, "PROCESSING", false).templateAnswer());
+    assertTrue(planner.plan(start, AssistantIntent.REFUND_ETA, 0.9, "PROCESSING", true).templateAnswer());
+    assertTrue(planner.plan(start, AssistantIntent.REFUND_ETA, 0.9, "AVAILABLE", false).templateAnswer());
+
+    assertFalse(planner.plan(start, AssistantIntent.REFUND_ETA, 0.9, "PROCESSING", false).templateAnswer());
+    assertFalse(planner.plan(start, AssistantIntent.REFUND_STATUS, 0.7, "PROCESSING", false).templateAnswer());
+    assertFalse(planner.plan(start, AssistantIntent.WHY_DELAYED, 0.95, "PROCESSING", true).templateAnswer());
+  }
+
+  @Test
+  void templateAnswer_offWhenDisabled() {
+    AssistantPlanner off = new AssistantPlanner(new AssistantProps(500, true, 0, 0, false));
+
+    assertFalse(off.plan(ConversationContext.start(), AssistantIntent.REFUND_STATUS, 0.99, "SENT", true)
+        .templateAnswer());
+  }
+}
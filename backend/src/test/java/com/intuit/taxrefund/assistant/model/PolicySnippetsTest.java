@@ -0,0 +1,107 @@
+package com.intuit.taxrefund.assistant.model;
+
+import com.intuit.taxrefund.assistant.policy.PolicySnippetRecord;
+import com.intuit.taxrefund.assistant.policy.PolicySnippetRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolicySnippetsTest {
+
+  private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+  /** Clock the test can move. */
+  private static final class MovableClock extends Clock {
+    Instant now = T0;
+
+    @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+    @Override public Clock withZone(ZoneId zone) { return this; }
+    @Override public Instant instant() { return now; }
+  }
+
+  private static final class Repo implements PolicySnippetRepository {
+    List<PolicySnippetRecord> snippets = new ArrayList<>();
+    String version = "v1";
+    final AtomicInteger loads = new AtomicInteger();
+
+    @Override public List<PolicySnippetRecord> findCandidates(String locale) { return snippets; }
+    @Override public List<PolicySnippetRecord> findAll() { loads.incrementAndGet(); return snippets; }
+    @Override public String version() { return version; }
+  }
+
+  private static PolicySnippetRecord snippet(String id, int priority, Set<String> statuses, String locale,
+                                             Instant from, Instant to, boolean enabled) {
+    return new PolicySnippetRecord(id, id, "quote " + id, "IRS", null, null, "1", from, to, statuses, locale,
+        enabled, priority);
+  }
+
+  /** The per-call filter/sort the index replaced. */
+  private static List<PolicySnippetRecord> reference(List<PolicySnippetRecord> all, String locale, String status,
+                                                     Instant now) {
+    return all.stream()
+        .filter(p -> p.isActiveAt(now))
+        .filter(p -> p.matchesLocale(locale))
+        .filter(p -> p.matchesStatus(status))
+        .sorted(Comparator.comparingInt(PolicySnippetRecord::priority).thenComparing(PolicySnippetRecord::id))
+        .limit(5)
+        .toList();
+  }
+
+  private final MovableClock clock = new MovableClock();
+  private final Repo repo = new Repo();
+  private final PolicySnippets snippets = new PolicySnippets(repo, clock);
+
+  @Test
+  void lookups_matchPerCallFiltering_acrossLocalesStatusesAndTime() {
+    Instant later = T0.plusSeconds(3600);
+    repo.snippets.addAll(List.of(
+        snippet("ANY_1", 10, Set.of("*"), "en-US", null, null, true),
+        snippet("PROC_1", 5, Set.of("PROCESSING"), "en-US", null, null, true),
+        snippet("PROC_2", 5, Set.of("PROCESSING", "SENT"), "en-US", null, later, true),
+        snippet("PROC_NEW", 1, Set.of("PROCESSING"), "en-US", later, null, true),
+        snippet("ES_1", 1, Set.of("*"), "es-US", null, null, true),
+        snippet("ALL_LOCALES", 7, Set.of("SENT"), null, null, null, true),
+        snippet("OFF", 0, Set.of("*"), "en-US", null, null, false)));
+    for (int i = 0; i < 6; i++) repo.snippets.add(snippet("BULK_" + i, 50 + i, Set.of("*"), "en-US", null, null, true));
+
+    for (Instant at : List.of(T0, later.minusMillis(1), later, later.plusSeconds(60))) {
+      clock.now = at;
+      for (String locale : List.of("en-US", "en-us", "es-US", "fr-FR")) {
+        for (String status : List.of("PROCESSING", "SENT", "REJECTED", "UNKNOWN")) {
+          assertEquals(reference(repo.snippets, locale, status, at),
+              snippets.forStatusDetailed(status, locale), at + " " + locale + " " + status);
+        }
+      }
+    }
+  }
+
+  @Test
+  void index_isReusedUntilTheNextBoundaryOrVersionChange() {
+    Instant expiry = T0.plusSeconds(60);
+    repo.snippets.add(snippet("A", 1, Set.of("*"), "en-US", null, expiry, true));
+
+    List<PolicySnippetRecord> first = snippets.forStatusDetailed("PROCESSING", "en-US");
+    clock.now = expiry.minusMillis(1);
+    assertSame(first, snippets.forStatusDetailed("PROCESSING", "en-US"));
+    assertEquals(1, repo.loads.get());
+
+    clock.now = expiry;
+    assertTrue(snippets.forStatusDetailed("PROCESSING", "en-US").isEmpty());
+    assertEquals(2, repo.loads.get());
+
+    repo.snippets = List.of(snippet("B", 1, Set.of("*"), "en-US", null, null, true));
+    repo.version = "v2";
+    assertEquals("B", snippets.forStatusDetailed("PROCESSING", "en-US").get(0).id());
+    assertEquals(3, repo.loads.get());
+  }
+}
@@ -0,0 +1,81 @@
+package com.intuit.taxrefund.assistant.nlp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntentModelRegistryTest {
+
+  @TempDir Path dir;
+  private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+  private void install(String version) throws Exception {
+    try (InputStream in = new ClassPathResource("nlp/intent-model.bin").getInputStream()) {
+      Files.copy(in, dir.resolve("intent-model-" + version + ".bin"));
+    }
+  }
+
+  private IntentModelRegistry registry(String candidate, double sampleRate) {
+    IntentModelRegistry r = new IntentModelRegistry(
+        new IntentModelProps(dir.toString(), null, candidate, sampleRate, 0),
+        meters, new ClassPathResource("nlp/intent-model.bin"));
+    r.init();
+    return r;
+  }
+
+  @Test
+  void activatesHighestVersion_andSwapsWhenANewerOneAppears() throws Exception {
+    install("9");
+    install("10");
+    IntentModelRegistry r = registry(null, 0);
+    assertEquals("10", r.active().version());
+
+    IntentModelRegistry.LoadedModel before = r.active();
+    r.reload();
+    assertSame(before, r.active(), "unchanged files are not reloaded");
+
+    install("11");
+    r.reload();
+    assertEquals("11", r.active().version());
+  }
+
+  @Test
+  void fallsBackToBundledModel_whenDirectoryHasNoModels() {
+    assertEquals(IntentModelRegistry.BUNDLED, registry(null, 0).active().version());
+  }
+
+  @Test
+  void shadowRunsCandidate_andRecordsAgreement() throws Exception {
+    install("1");
+    install("2");
+    IntentModelRegistry r = registry("1", 1.0);
+    assertEquals("2", r.active().version());
+    assertEquals("1", r.candidate().version());
+
+    String[] tokens = IntentTokenizer.tokenize("when will I get my refund");
+    String activeCategory = r.active().pool().predict(tokens).category();
+    r.shadow(r.active(), tokens, activeCategory);
+
+    long deadline = System.nanoTime() + 5_000_000_000L;
+    while (meters.counter("assistant.intent.shadow", "active", "2", "candidate", "1", "result", "agree").count() < 1
+        && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(1.0, meters.counter("assistant.intent.shadow", "active", "2", "candidate", "1", "result", "agree").count());
+    assertEquals(1, meters.get("assistant.intent.classify").tags("role", "candidate", "version", "1").timer().count());
+  }
+
+  @Test
+  void comparesVersionsNumerically() {
+    assertTrue(IntentModelRegistry.compareVersions("v10", "v9") > 0);
+    assertTrue(IntentModelRegistry.compareVersions("2026.3", "2026.12") < 0);
+    assertEquals(0, IntentModelRegistry.compareVersions("1.2", "1.2"));
+  }
+}
@@ -0,0 +1,106 @@
+package com.intuit.taxrefund.assistant.nlp;
+
+import com.intuit.taxrefund.assistant.model.AssistantIntent;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeywordIntentClassifierTest {
+
+  private final KeywordIntentClassifier classifier = new KeywordIntentClassifier();
+
+  /** The contains() chain this classifier replaced. */
+  private static AssistantIntent legacy(String text) {
+    String t = text.toLowerCase();
+    if (t.contains("status") || t.contains("where is my refund") || t.contains("latest")) return AssistantIntent.REFUND_STATUS;
+    if (t.contains("eta") || t.contains("when") || t.contains("how long") || t.contains("available")) return AssistantIntent.REFUND_ETA;
+    if (t.contains("why") || t.contains("delayed") || t.contains("stuck") || t.contains("processing")) return AssistantIntent.WHY_DELAYED;
+    if (t.contains("next step") || t.contains("what should i do") || t.contains("action")) return AssistantIntent.NEXT_STEPS;
+    return AssistantIntent.UNKNOWN;
+  }
+
+  @Test
+  void agreesWithLegacyChain_onSingleIntentQuestions() {
+    List<String> questions = List.of(
+        "What's my refund STATUS?",
+        "where is my refund",
+        "show the latest",
+        "ETA?",
+        "When will I get it",
+        "how long does it take",
+        "is it available yet",
+        "why is it taking so long",
+        "my refund is stuck",
+        "Still processing...",
+        "what are the next steps",
+        "what should I do now",
+        "any action needed from me",
+        "hello there",
+        "");
+    for (String q : questions) {
+      assertEquals(legacy(q), classifier.classify(q).intent(), q);
+    }
+  }
+
+  @Test
+  void keywordsMatchOnlyAtWordStart() {
+    // substring matching read "details" as ETA and "transaction" as NEXT_STEPS
+    assertEquals(AssistantIntent.REFUND_ETA, legacy("give me the details"));
+    assertEquals(AssistantIntent.UNKNOWN, classifier.classify("give me the details").intent());
+    assertEquals(AssistantIntent.UNKNOWN, classifier.classify("the transaction failed").intent());
+    assertEquals(AssistantIntent.NEXT_STEPS, classifier.classify("actions?").intent());
+  }
+
+  @Test
+  void scoresAddUp_andTheBestIntentWins() {
+    String q = "why is my refund delayed and still processing? what's the status";
+    Map<AssistantIntent, Double> scores = classifier.scores(q);
+    assertEquals(2.0, scores.get(AssistantIntent.WHY_DELAYED));
+    assertEquals(1.0, scores.get(AssistantIntent.REFUND_STATUS));
+
+    IntentClassifier.IntentResult r = classifier.classify(q);
+    assertEquals(AssistantIntent.WHY_DELAYED, r.intent());
+    assertEquals(0.40 + 0.30 * 2.0 / 3.0, r.confidence(), 1e-9);
+  }
+
+  @Test
+  void confidence_reflectsStrengthAndAmbiguity() {
+    assertEquals(0.70, classifier.classify("my refund is stuck").confidence(), 1e-9);
+    assertEquals(0.55, classifier.classify("why?").confidence(), 1e-9);
+    assertEquals(0.50, classifier.classify("hello").confidence(), 1e-9);
+
+    // tie: table order decides, confidence drops
+    IntentClassifier.IntentResult tie = classifier.classify("status eta");
+    assertEquals(AssistantIntent.REFUND_STATUS, tie.intent());
+    assertEquals(0.50, tie.confidence(), 1e-9);
+  }
+
+  @Test
+  void tiesAndSpreadQuestions_stayBelowThePlannersMinConfidence() {
+    // AssistantPlanner.MIN_CONFIDENCE: anything below is a weak signal that does not advance state
+    double minConfidence = 0.55;
+    for (String q : List.of("status eta", "why? when?", "status, eta, stuck", "status eta why", "latest action")) {
+      assertTrue(classifier.classify(q).confidence() < minConfidence, q);
+    }
+    assertTrue(classifier.classify("stuck, why?").confidence() >= minConfidence, "a clear majority still counts");
+  }
+
+  @Test
+  void automaton_findsOverlappingKeywords_andCountsEachOnce() throws Exception {
+    KeywordAutomaton a = KeywordAutomaton.parse(new BufferedReader(new StringReader(
+        "# test\nREFUND_STATUS\the\nREFUND_ETA\thers\t2\nWHY_DELAYED\this\nNEXT_STEPS\tshe\t0.5\n")));
+    double[] s = a.scan("ushers hers his he he");
+    assertEquals(1.0, s[AssistantIntent.REFUND_STATUS.ordinal()]);
+    assertEquals(2.0, s[AssistantIntent.REFUND_ETA.ordinal()]);
+    assertEquals(1.0, s[AssistantIntent.WHY_DELAYED.ordinal()]);
+    assertEquals(0.0, s[AssistantIntent.NEXT_STEPS.ordinal()], "'she' inside 'ushers' is not at a word start");
+
+    assertThrows(IllegalArgumentException.class, () -> KeywordAutomaton.parse(
+        new BufferedReader(new StringReader("REFUND_STATUS status\n"))));
+  }
+}
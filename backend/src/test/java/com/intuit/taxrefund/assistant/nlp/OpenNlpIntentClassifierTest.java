@@ -0,0 +1,77 @@
+package com.intuit.taxrefund.assistant.nlp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenNlpIntentClassifierTest {
+
+  private static final List<String> QUESTIONS = List.of(
+      "What's my refund status?",
+      "When will I get my refund??",
+      "why is it DELAYED — still processing",
+      "what should I do next",
+      "  ",
+      "Où est mon remboursement 2025?",
+      "hello");
+
+  private static OpenNlpIntentClassifier classifier() {
+    IntentModelRegistry models = new IntentModelRegistry(new IntentModelProps(null, null, null, 0, 0),
+        new SimpleMeterRegistry(), new ClassPathResource("nlp/intent-model.bin"));
+    models.init();
+    OpenNlpIntentClassifier c = new OpenNlpIntentClassifier(new KeywordIntentClassifier(), models);
+    ReflectionTestUtils.setField(c, "mode", "opennlp");
+    ReflectionTestUtils.setField(c, "minConfidence", 0.55);
+    c.init();
+    return c;
+  }
+
+  @Test
+  void tokenizer_matchesRegexNormalization() {
+    for (String q : QUESTIONS) {
+      String[] regex = q.toLowerCase(Locale.ROOT)
+          .replaceAll("[^a-z0-9\\s]", " ")
+          .replaceAll("\\s+", " ")
+          .trim()
+          .split("\\s+");
+      assertArrayEquals(regex, IntentTokenizer.tokenize(q), q);
+    }
+    assertArrayEquals(new String[] { "" }, IntentTokenizer.tokenize(null));
+  }
+
+  @Test
+  void concurrentAndBatchClassification_matchSequentialResults() throws Exception {
+    OpenNlpIntentClassifier c = classifier();
+    List<IntentClassifier.IntentResult> expected = new ArrayList<>();
+    for (String q : QUESTIONS) expected.add(c.classify(q));
+
+    assertEquals(expected, c.classifyBatch(QUESTIONS));
+
+    try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+      List<Future<List<IntentClassifier.IntentResult>>> runs = new ArrayList<>();
+      for (int t = 0; t < 32; t++) {
+        runs.add(pool.submit(() -> {
+          List<IntentClassifier.IntentResult> out = new ArrayList<>();
+          for (int i = 0; i < 50; i++) out.addAll(c.classifyBatch(QUESTIONS));
+          return out;
+        }));
+      }
+      for (Future<List<IntentClassifier.IntentResult>> run : runs) {
+        List<IntentClassifier.IntentResult> out = run.get();
+        for (int i = 0; i < out.size(); i++) {
+          assertEquals(expected.get(i % QUESTIONS.size()), out.get(i));
+        }
+      }
+    }
+  }
+}
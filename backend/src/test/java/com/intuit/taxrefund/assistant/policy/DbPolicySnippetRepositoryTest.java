@@ -0,0 +1,63 @@
+package com.intuit.taxrefund.assistant.policy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DbPolicySnippetRepositoryTest {
+
+  private final PolicySnippetJpaRepository jpa = mock(PolicySnippetJpaRepository.class);
+  private final DbPolicySnippetRepository repo = new DbPolicySnippetRepository(jpa);
+
+  private static PolicySnippetEntity row(String id, String triggers) {
+    PolicySnippetEntity e = new PolicySnippetEntity();
+    ReflectionTestUtils.setField(e, "id", id);
+    ReflectionTestUtils.setField(e, "title", "t");
+    ReflectionTestUtils.setField(e, "quote", "q " + id);
+    ReflectionTestUtils.setField(e, "sourceType", "IRS");
+    ReflectionTestUtils.setField(e, "version", "2026.01");
+    ReflectionTestUtils.setField(e, "statusTriggers", triggers);
+    ReflectionTestUtils.setField(e, "locale", "en-US");
+    ReflectionTestUtils.setField(e, "enabled", true);
+    ReflectionTestUtils.setField(e, "priority", 5);
+    return e;
+  }
+
+  @Test
+  void reloadsOnlyWhenTheChangeCounterMoves() {
+    when(jpa.currentSetVersion()).thenReturn(1L);
+    when(jpa.findAll()).thenReturn(List.of(row("A", "SENT, AVAILABLE")));
+    repo.init();
+
+    assertEquals("db-1", repo.version());
+    assertEquals(Set.of("SENT", "AVAILABLE"), repo.findAll().get(0).statusTriggers());
+
+    repo.refresh();
+    repo.refresh();
+    verify(jpa, times(1)).findAll();
+
+    when(jpa.currentSetVersion()).thenReturn(2L);
+    when(jpa.findAll()).thenReturn(List.of(row("A", "*"), row("B", "REJECTED")));
+    repo.refresh();
+    assertEquals("db-2", repo.version());
+    assertEquals(2, repo.findAll().size());
+  }
+
+  @Test
+  void failedRefresh_keepsThePreviousSnapshot() {
+    when(jpa.currentSetVersion()).thenReturn(1L);
+    when(jpa.findAll()).thenReturn(List.of(row("A", "*")));
+    repo.init();
+
+    when(jpa.currentSetVersion()).thenThrow(new IllegalStateException("db down"));
+    repo.refresh();
+
+    assertEquals("db-1", repo.version());
+    assertEquals("A", repo.findAll().get(0).id());
+  }
+}
@@ -0,0 +1,65 @@
+package com.intuit.taxrefund.assistant.prompt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.assistant.model.AssistantIntent;
+import com.intuit.taxrefund.assistant.model.ConversationContext;
+import com.intuit.taxrefund.assistant.model.ConversationState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssistantPromptTemplatesTest {
+
+  private final ObjectMapper om = new ObjectMapper();
+  private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+  private final AssistantPromptTemplates templates = new AssistantPromptTemplates(om, meters);
+
+  @Test
+  void developerPrompts_arePrecompiledPerFlagCombination() {
+    assertSame(AssistantPromptTemplates.developerPrompt(true, false),
+        AssistantPromptTemplates.developerPrompt(true, false));
+    assertFalse(AssistantPromptTemplates.developerPrompt(false, false).contains("ESCALATION"));
+    assertTrue(AssistantPromptTemplates.developerPrompt(true, true).contains("ESCALATION"));
+    assertTrue(AssistantPromptTemplates.developerPrompt(true, true).contains("REPEAT NOTICE"));
+    assertFalse(AssistantPromptTemplates.developerPrompt(true, false).contains("REPEAT NOTICE"));
+  }
+
+  @Test
+  void compose_writesHistoryQuestionAndCompactJson_andRecordsTokenEstimate() throws Exception {
+    ConversationContext ctx = ConversationContext.start().advance(
+        ConversationState.PROVIDED_STATUS, AssistantIntent.REFUND_STATUS, false, "HIGH", "status?", "Processing.");
+    Map<String, Object> authData = new LinkedHashMap<>();
+    authData.put("refund", Map.of("status", "PROCESSING", "taxYear", 2025));
+
+    AssistantPromptTemplates.Prompt p = templates.compose("when \"exactly\"?", ctx, authData, false, false);
+
+    String expectedJson = om.writeValueAsString(authData);
+    assertEquals("Conversation history (oldest first):\nUser: status?\nAssistant: Processing.\n\n"
+        + "Question: when \"exactly\"?\n\nauthoritativeData:\n" + expectedJson, p.user());
+    assertSame(AssistantPromptTemplates.RESPONSE_SCHEMA, p.schema());
+    assertEquals(AssistantPromptTemplates.estimateTokens(p.developer())
+        + AssistantPromptTemplates.estimateTokens(p.user()), p.estimatedTokens());
+    assertEquals(1, meters.summary("assistant.prompt.tokens").count());
+    assertEquals(p.estimatedTokens(), meters.summary("assistant.prompt.tokens").totalAmount());
+  }
+
+  @Test
+  void responseSchema_serializesTheAnswerFirst() throws Exception {
+    // structured output is generated in schema order; streaming needs answerMarkdown first
+    String json = om.writeValueAsString(AssistantPromptTemplates.RESPONSE_SCHEMA);
+
+    assertTrue(json.startsWith("{\"name\":\"assistant_response\",\"strict\":true,\"schema\":"), json);
+    int answer = json.indexOf("\"answerMarkdown\":{");
+    assertTrue(answer >= 0);
+    assertTrue(answer < json.indexOf("\"citations\":{"));
+    assertTrue(json.indexOf("\"citations\":{") < json.indexOf("\"actions\":{"));
+    assertTrue(json.indexOf("\"actions\":{") < json.indexOf("\"confidence\":{"));
+    assertEquals(List.of("answerMarkdown", "citations", "actions", "confidence"),
+        List.copyOf(((Map<?, ?>) ((Map<?, ?>) AssistantPromptTemplates.RESPONSE_SCHEMA.get("schema")).get("properties")).keySet()));
+  }
+}
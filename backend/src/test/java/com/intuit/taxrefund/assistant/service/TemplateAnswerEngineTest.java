@@ -0,0 +1,46 @@
+package com.intuit.taxrefund.assistant.service;
+
+import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse;
+import com.intuit.taxrefund.assistant.controller.dto.AssistantChatResponse.Confidence;
+import com.intuit.taxrefund.assistant.model.AssistantIntent;
+import com.intuit.taxrefund.refund.controller.dto.RefundStatusResponse;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateAnswerEngineTest {
+
+  private final TemplateAnswerEngine engine = new TemplateAnswerEngine();
+
+  private static RefundStatusResponse refund(String status, Instant eta) {
+    return new RefundStatusResponse(2025, status, Instant.parse("2026-02-20T00:00:00Z"),
+        new BigDecimal("1234.50"), "TRK-1", eta, null);
+  }
+
+  @Test
+  void rendersStatusAndEta_withHighConfidence() {
+    AssistantChatResponse status = engine.render(AssistantIntent.REFUND_STATUS,
+        refund("PROCESSING", null), List.of(), List.of());
+    assertEquals(Confidence.HIGH, status.confidence());
+    assertTrue(status.answerMarkdown().contains("**Status:** Processing (tax year 2025)"));
+    assertTrue(status.answerMarkdown().contains("$1,234.50"));
+    assertTrue(status.answerMarkdown().contains("21 days"));
+
+    AssistantChatResponse eta = engine.render(AssistantIntent.REFUND_ETA,
+        refund("APPROVED", Instant.parse("2026-03-09T12:00:00Z")), List.of(), List.of());
+    assertTrue(eta.answerMarkdown().startsWith("**Estimated availability:** March 9, 2026"));
+    assertFalse(eta.answerMarkdown().contains("TRK-1"));
+  }
+
+  @Test
+  void returnsNull_whenNoTemplateFits() {
+    assertNull(engine.render(AssistantIntent.REFUND_STATUS, refund("REJECTED", null), List.of(), List.of()));
+    assertNull(engine.render(AssistantIntent.REFUND_ETA, refund("PROCESSING", null), List.of(), List.of()));
+    assertNull(engine.render(AssistantIntent.WHY_DELAYED, refund("PROCESSING", null), List.of(), List.of()));
+    assertNull(engine.render(AssistantIntent.REFUND_STATUS, refund("SOMETHING_NEW", null), List.of(), List.of()));
+  }
+}
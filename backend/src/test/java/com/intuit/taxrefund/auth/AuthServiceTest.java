@@ -4,17 +4,17 @@ import com.intuit.taxrefund.auth.controller.dto.LoginRequest;
 import com.intuit.taxrefund.auth.controller.dto.RegisterRequest;
 import com.intuit.taxrefund.auth.jwt.JwtService;
 import com.intuit.taxrefund.auth.model.AppUser;
-import com.intuit.taxrefund.auth.model.RefreshToken;
 import com.intuit.taxrefund.auth.model.Role;
-import com.intuit.taxrefund.auth.repository.RefreshTokenRepository;
 import com.intuit.taxrefund.auth.repository.UserRepository;
 import com.intuit.taxrefund.auth.service.AuthService;
 import com.intuit.taxrefund.auth.service.PasswordPolicy;
+import com.intuit.taxrefund.auth.service.RefreshTokenStore;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Base64;
@@ -41,7 +41,7 @@ class AuthServiceTest {
   @Test
   void register_createsUser_whenEmailNotUsed() {
     UserRepository userRepo = mock(UserRepository.class);
-    RefreshTokenRepository refreshRepo = mock(RefreshTokenRepository.class);
+    RefreshTokenStore refreshTokens = mock(RefreshTokenStore.class);
     JwtService jwtService = mock(JwtService.class);
     PasswordPolicy policy = new PasswordPolicy();
     PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
@@ -49,7 +49,7 @@ class AuthServiceTest {
     when(userRepo.existsByEmailIgnoreCase("a@b.com")).thenReturn(false);
     when(userRepo.save(any(AppUser.class))).thenAnswer(inv -> inv.getArgument(0));
 
-    AuthService svc = new AuthService(userRepo, refreshRepo, jwtService, policy, passwordEncoder, 14);
+    AuthService svc = new AuthService(userRepo, refreshTokens, jwtService, policy, passwordEncoder, 14, Clock.systemUTC());
 
     AppUser created = svc.register(registerReq("A@B.com"));
 
@@ -71,13 +71,13 @@ class AuthServiceTest {
   @Test
   void register_rejectsDuplicateEmail() {
     UserRepository userRepo = mock(UserRepository.class);
-    RefreshTokenRepository refreshRepo = mock(RefreshTokenRepository.class);
+    RefreshTokenStore refreshTokens = mock(RefreshTokenStore.class);
     JwtService jwtService = mock(JwtService.class);
     PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     when(userRepo.existsByEmailIgnoreCase("a@b.com")).thenReturn(true);
 
-    AuthService svc = new AuthService(userRepo, refreshRepo, jwtService, new PasswordPolicy(), passwordEncoder, 14);
+    AuthService svc = new AuthService(userRepo, refreshTokens, jwtService, new PasswordPolicy(), passwordEncoder, 14, Clock.systemUTC());
 
     IllegalArgumentException ex = assertThrows(
         IllegalArgumentException.class,
@@ -89,7 +89,7 @@ class AuthServiceTest {
   @Test
   void login_issuesAccessToken_andRefreshToken() {
     UserRepository userRepo = mock(UserRepository.class);
-    RefreshTokenRepository refreshRepo = mock(RefreshTokenRepository.class);
+    RefreshTokenStore refreshTokens = mock(RefreshTokenStore.class);
     JwtService jwtService = mock(JwtService.class);
     PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
@@ -112,10 +112,8 @@ class AuthServiceTest {
     when(userRepo.findByEmailIgnoreCase("u1@example.com")).thenReturn(Optional.of(user));
     when(jwtService.createAccessToken(1L, "u1@example.com", "USER")).thenReturn("access.jwt");
 
-    ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
-    when(refreshRepo.save(captor.capture())).thenAnswer(inv -> inv.getArgument(0));
 
-    AuthService svc = new AuthService(userRepo, refreshRepo, jwtService, new PasswordPolicy(), passwordEncoder, 14);
+    AuthService svc = new AuthService(userRepo, refreshTokens, jwtService, new PasswordPolicy(), passwordEncoder, 14, Clock.systemUTC());
 
     AuthService.AuthTokens tokens = svc.login(new LoginRequest("u1@example.com", rawPassword));
 
@@ -123,23 +121,26 @@ class AuthServiceTest {
     assertNotNull(tokens.refreshToken());
     assertTrue(tokens.refreshMaxAge().compareTo(Duration.ofDays(1)) > 0);
 
-    RefreshToken saved = captor.getValue();
-    assertEquals("u1@example.com", saved.getUser().getEmail());
-    assertFalse(saved.isRevoked());
-    assertTrue(saved.getExpiresAt().isAfter(Instant.now()));
-    assertTrue(saved.getJti().length() >= 10);
+    ArgumentCaptor<String> jti = ArgumentCaptor.forClass(String.class);
+    ArgumentCaptor<String> hash = ArgumentCaptor.forClass(String.class);
+    ArgumentCaptor<Instant> exp = ArgumentCaptor.forClass(Instant.class);
+    verify(refreshTokens).save(eq(1L), jti.capture(), hash.capture(), exp.capture());
+    assertTrue(tokens.refreshToken().endsWith("." + jti.getValue()));
+    assertEquals(sha256Base64(tokens.refreshToken()), hash.getValue());
+    assertTrue(exp.getValue().isAfter(Instant.now()));
+    assertTrue(jti.getValue().length() >= 10);
   }
 
   @Test
   void login_rejectsBadCredentials() {
     UserRepository userRepo = mock(UserRepository.class);
-    RefreshTokenRepository refreshRepo = mock(RefreshTokenRepository.class);
+    RefreshTokenStore refreshTokens = mock(RefreshTokenStore.class);
     JwtService jwtService = mock(JwtService.class);
     PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     when(userRepo.findByEmailIgnoreCase("x@y.com")).thenReturn(Optional.empty());
 
-    AuthService svc = new AuthService(userRepo, refreshRepo, jwtService, new PasswordPolicy(), passwordEncoder, 14);
+    AuthService svc = new AuthService(userRepo, refreshTokens, jwtService, new PasswordPolicy(), passwordEncoder, 14, Clock.systemUTC());
 
     IllegalArgumentException ex = assertThrows(
         IllegalArgumentException.class,
@@ -151,7 +152,7 @@ class AuthServiceTest {
   @Test
   void refresh_rotatesToken_whenValid() {
     UserRepository userRepo = mock(UserRepository.class);
-    RefreshTokenRepository refreshRepo = mock(RefreshTokenRepository.class);
+    RefreshTokenStore refreshTokens = mock(RefreshTokenStore.class);
     JwtService jwtService = mock(JwtService.class);
     PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
@@ -172,26 +173,26 @@ class AuthServiceTest {
     String raw = "randompart." + jti;
 
     String storedHash = sha256Base64(raw);
-    RefreshToken stored = new RefreshToken(user, storedHash, jti, Instant.now().plus(Duration.ofDays(3)));
-
-    when(refreshRepo.findByJti(jti)).thenReturn(Optional.of(stored));
+    when(refreshTokens.consume(jti)).thenReturn(Optional.of(
+        new RefreshTokenStore.Entry(1L, storedHash, Instant.now().plus(Duration.ofDays(3)), false)));
+    when(userRepo.findById(1L)).thenReturn(Optional.of(user));
     when(jwtService.createAccessToken(1L, "u1@example.com", "USER")).thenReturn("access.jwt");
-    when(refreshRepo.save(any(RefreshToken.class))).thenAnswer(inv -> inv.getArgument(0));
 
-    AuthService svc = new AuthService(userRepo, refreshRepo, jwtService, new PasswordPolicy(), passwordEncoder, 14);
+    AuthService svc = new AuthService(userRepo, refreshTokens, jwtService, new PasswordPolicy(), passwordEncoder, 14, Clock.systemUTC());
 
     AuthService.AuthTokens rotated = svc.refresh(raw);
 
     assertEquals("access.jwt", rotated.accessToken());
     assertNotNull(rotated.refreshToken());
     assertNotEquals(raw, rotated.refreshToken(), "refresh token must rotate");
-    assertTrue(stored.isRevoked(), "old stored token should be revoked");
+    verify(refreshTokens).consume(jti);
+    verify(refreshTokens).save(eq(1L), anyString(), anyString(), any(Instant.class));
   }
 
   @Test
   void refresh_detectsReplay_andRevokes() {
     UserRepository userRepo = mock(UserRepository.class);
-    RefreshTokenRepository refreshRepo = mock(RefreshTokenRepository.class);
+    RefreshTokenStore refreshTokens = mock(RefreshTokenStore.class);
     JwtService jwtService = mock(JwtService.class);
     PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
@@ -212,15 +213,35 @@ class AuthServiceTest {
     String storedRaw = "legit." + jti;
     String attackerRaw = "stolenDifferent." + jti;
 
-    RefreshToken stored = new RefreshToken(user, sha256Base64(storedRaw), jti, Instant.now().plus(Duration.ofDays(3)));
-    when(refreshRepo.findByJti(jti)).thenReturn(Optional.of(stored));
-    when(refreshRepo.save(any(RefreshToken.class))).thenAnswer(inv -> inv.getArgument(0));
+    when(refreshTokens.consume(jti)).thenReturn(Optional.of(
+        new RefreshTokenStore.Entry(1L, sha256Base64(storedRaw), Instant.now().plus(Duration.ofDays(3)), false)));
 
-    AuthService svc = new AuthService(userRepo, refreshRepo, jwtService, new PasswordPolicy(), passwordEncoder, 14);
+    AuthService svc = new AuthService(userRepo, refreshTokens, jwtService, new PasswordPolicy(), passwordEncoder, 14, Clock.systemUTC());
 
     IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> svc.refresh(attackerRaw));
     assertEquals("Invalid refresh token", ex.getMessage());
-    assertTrue(stored.isRevoked(), "replay attempt should revoke stored token");
+    // consume() revoked the stored token before the hash was compared
+    verify(refreshTokens).consume(jti);
+    verify(refreshTokens, never()).save(anyLong(), anyString(), anyString(), any(Instant.class));
+  }
+
+  @Test
+  void refresh_rejectsAlreadyRotatedToken() {
+    UserRepository userRepo = mock(UserRepository.class);
+    RefreshTokenStore refreshTokens = mock(RefreshTokenStore.class);
+    JwtService jwtService = mock(JwtService.class);
+
+    String jti = "1234567890-abcdef";
+    String raw = "randompart." + jti;
+    when(refreshTokens.consume(jti)).thenReturn(Optional.of(
+        new RefreshTokenStore.Entry(1L, sha256Base64(raw), Instant.now().plus(Duration.ofDays(3)), true)));
+
+    AuthService svc = new AuthService(userRepo, refreshTokens, jwtService, new PasswordPolicy(),
+        new BCryptPasswordEncoder(), 14, Clock.systemUTC());
+
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> svc.refresh(raw));
+    assertEquals("Refresh token revoked or expired", ex.getMessage());
+    verifyNoInteractions(jwtService);
   }
 
   private static String sha256Base64(String input) {
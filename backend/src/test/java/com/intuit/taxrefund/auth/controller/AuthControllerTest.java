@@ -5,8 +5,9 @@ import com.intuit.taxrefund.auth.CookieService;
 import com.intuit.taxrefund.auth.controller.dto.LoginRequest;
 import com.intuit.taxrefund.auth.jwt.JwtService;
 import com.intuit.taxrefund.auth.service.AuthService;
+import com.intuit.taxrefund.shared.ratelimit.LeasedRateLimiter;
+import com.intuit.taxrefund.shared.ratelimit.RateLimitPolicies;
 import com.intuit.taxrefund.shared.ratelimit.RateLimitProps;
-import com.intuit.taxrefund.shared.ratelimit.RedisRateLimiter;
 import com.intuit.taxrefund.shared.web.GlobalExceptionHandler;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.Test;
@@ -52,7 +53,10 @@ class AuthControllerTest {
   RateLimitProps rateLimitProps;
 
   @MockBean
-  RedisRateLimiter redisRateLimiter;
+  LeasedRateLimiter rateLimiter;
+
+  @MockBean
+  RateLimitPolicies rateLimitPolicies;
 
   @Test
   void login_setsRefreshCookie_andReturnsAccessToken() throws Exception {
@@ -0,0 +1,90 @@
+package com.intuit.taxrefund.auth.jwt;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtServiceTest {
+
+  private static final String SECRET = "test-secret-test-secret-test-secret-1234";
+
+  private final AtomicLong now = new AtomicLong(Instant.parse("2026-03-01T12:00:00Z").toEpochMilli());
+
+  private final Clock clock = mock(Clock.class);
+
+  private JwtService service(int cacheMaxEntries) {
+    when(clock.millis()).thenAnswer(inv -> now.get());
+    when(clock.instant()).thenAnswer(inv -> Instant.ofEpochMilli(now.get()));
+    when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+    return new JwtService(SECRET, "refund-status", 15, cacheMaxEntries, clock);
+  }
+
+  @Test
+  void cachedToken_isAccepted_untilItsOwnExpiry() {
+    JwtService jwt = service(100);
+    String token = jwt.createAccessToken(7L, "u7@example.com", "USER");
+
+    assertEquals(new JwtService.JwtPrincipal(7L, "u7@example.com", "USER"), jwt.parseAndValidate(token));
+    now.addAndGet(14 * 60_000);
+    assertEquals(7L, jwt.parseAndValidate(token).userId());
+
+    now.addAndGet(61_000);
+    assertThrows(ExpiredJwtException.class, () -> jwt.parseAndValidate(token));
+  }
+
+  // the parser reads clock.instant() to check expiry; cache lookups only read clock.millis()
+  @Test
+  void cacheHit_skipsVerification_butAnExpiredEntryIsVerifiedAgain() {
+    JwtService jwt = service(100);
+    String token = jwt.createAccessToken(7L, "u7@example.com", "USER");
+    jwt.parseAndValidate(token);
+
+    clearInvocations(clock);
+    jwt.parseAndValidate(token);
+    verify(clock, never()).instant();
+
+    now.addAndGet(15 * 60_000 + 1_000);
+    assertThrows(ExpiredJwtException.class, () -> jwt.parseAndValidate(token));
+    verify(clock, atLeastOnce()).instant();
+  }
+
+  @Test
+  void disabledCache_verifiesEveryTime() {
+    JwtService jwt = service(0);
+    String token = jwt.createAccessToken(7L, "u7@example.com", "USER");
+    jwt.parseAndValidate(token);
+
+    clearInvocations(clock);
+    jwt.parseAndValidate(token);
+    verify(clock, atLeastOnce()).instant();
+  }
+
+  @Test
+  void tamperedToken_isRejected_evenWhenTheOriginalIsCached() {
+    JwtService jwt = service(100);
+    String token = jwt.createAccessToken(7L, "u7@example.com", "USER");
+    jwt.parseAndValidate(token);
+
+    String[] parts = token.split("\\.");
+    String forged = parts[0] + "." + parts[1] + "." + (parts[2].startsWith("A") ? "B" : "A") + parts[2].substring(1);
+    assertThrows(JwtException.class, () -> jwt.parseAndValidate(forged));
+  }
+
+  @Test
+  void fullCache_stillValidates() {
+    JwtService jwt = service(2);
+    for (long user = 1; user <= 5; user++) {
+      String token = jwt.createAccessToken(user, "u" + user + "@example.com", "USER");
+      assertEquals(user, jwt.parseAndValidate(token).userId());
+      assertEquals(user, jwt.parseAndValidate(token).userId());
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.intuit.taxrefund.auth.service;
+
+import com.intuit.taxrefund.auth.RefreshTokenProps;
+import com.intuit.taxrefund.auth.model.AppUser;
+import com.intuit.taxrefund.auth.model.RefreshToken;
+import com.intuit.taxrefund.auth.model.Role;
+import com.intuit.taxrefund.auth.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenStoreTest {
+
+  private static final Instant NOW = Instant.parse("2026-03-01T12:00:00Z");
+  private static final Instant EXP = NOW.plusSeconds(14 * 86400);
+
+  private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+  private final RefreshTokenRepository repo = mock(RefreshTokenRepository.class);
+  private final PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+  private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+  private RefreshTokenStore store(int queueCapacity) {
+    return new RefreshTokenStore(redis, repo, new TransactionTemplate(txManager),
+        new RefreshTokenProps(queueCapacity, 200, 500, 3_600_000, 2, 10), meters, Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void scriptReturns(Object reply) {
+    when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+      if (reply instanceof RuntimeException e) throw e;
+      return reply;
+    });
+  }
+
+  @Test
+  void rotation_touchesOnlyRedis_untilTheFlushWritesOneBatch() {
+    RefreshTokenStore store = store(100);
+    scriptReturns(1L);
+    store.save(1L, "jti-old-123", "hash-old", EXP);
+    store.save(1L, "jti-new-456", "hash-new", EXP);
+    scriptReturns(Arrays.asList("1", "hash-old", Long.toString(EXP.toEpochMilli()), "0"));
+
+    Optional<RefreshTokenStore.Entry> entry = store.consume("jti-old-123");
+
+    assertEquals(new RefreshTokenStore.Entry(1L, "hash-old", EXP, false), entry.orElseThrow());
+    verifyNoInteractions(repo);
+
+    store.flush();
+
+    InOrder order = inOrder(txManager, repo);
+    order.verify(txManager).getTransaction(any());
+    order.verify(repo).insertIfAbsent(1L, "hash-old", "jti-old-123", EXP);
+    order.verify(repo).insertIfAbsent(1L, "hash-new", "jti-new-456", EXP);
+    order.verify(repo).revokeAll(List.of("jti-old-123"));
+    order.verify(txManager).commit(any());
+    verify(txManager, times(1)).getTransaction(any());
+  }
+
+  @Test
+  void redisMiss_fallsBackToConditionalRevokeInPostgres() {
+    RefreshTokenStore store = store(100);
+    scriptReturns(null);
+    AppUser user = new AppUser("u1@example.com", "x", "Yang", "Wang", null, "Mountain View", "CA",
+        "555-555-5555", Role.USER);
+    user.setIdForTest(1L);
+    when(repo.findByJti("jti-old-123")).thenReturn(Optional.of(new RefreshToken(user, "hash-old", "jti-old-123", EXP)));
+    when(repo.revokeAll(List.of("jti-old-123"))).thenReturn(1, 0);
+
+    assertFalse(store.consume("jti-old-123").orElseThrow().wasRevoked());
+    assertTrue(store.consume("jti-old-123").orElseThrow().wasRevoked(), "the second caller must lose");
+    assertEquals(2.0, meters.get("auth.refresh_tokens.lookups").tags("source", "db").counter().count());
+  }
+
+  @Test
+  void redisDown_writesThroughSynchronously() {
+    RefreshTokenStore store = store(100);
+    scriptReturns(new RedisConnectionFailureException("down"));
+
+    store.save(1L, "jti-new-456", "hash-new", EXP);
+
+    verify(repo).insertIfAbsent(1L, "hash-new", "jti-new-456", EXP);
+  }
+
+  @Test
+  void fullQueue_callerWritesOnlyItsOwnRecord_andTheFlushDrainsTheRest() {
+    RefreshTokenStore store = store(1);
+    scriptReturns(1L);
+
+    store.save(1L, "jti-a-0000001", "hash-a", EXP);
+    verifyNoInteractions(repo);
+    store.save(1L, "jti-b-0000002", "hash-b", EXP);
+
+    verify(repo).insertIfAbsent(1L, "hash-b", "jti-b-0000002", EXP);
+    verify(repo, never()).insertIfAbsent(1L, "hash-a", "jti-a-0000001", EXP);
+
+    store.flush();
+    verify(repo).insertIfAbsent(1L, "hash-a", "jti-a-0000001", EXP);
+  }
+
+  @Test
+  void fullQueue_revokeWrittenThrough_bringsItsQueuedInsertAlong() {
+    RefreshTokenStore store = store(1);
+    scriptReturns(1L);
+    store.save(1L, "jti-old-123", "hash-old", EXP);
+    scriptReturns(Arrays.asList("1", "hash-old", Long.toString(EXP.toEpochMilli()), "0"));
+
+    store.consume("jti-old-123"); // the queue was full, so the revoke is written directly
+
+    InOrder order = inOrder(repo);
+    order.verify(repo).insertIfAbsent(1L, "hash-old", "jti-old-123", EXP);
+    order.verify(repo).revokeAll(List.of("jti-old-123"));
+  }
+
+  @Test
+  void redisDownOnConsume_writesOnlyTheCallersQueuedToken_notTheBacklog() {
+    RefreshTokenStore store = store(100);
+    scriptReturns(1L);
+    store.save(1L, "jti-other-99", "hash-other", EXP);
+    store.save(1L, "jti-old-123", "hash-old", EXP);
+    scriptReturns(new RedisConnectionFailureException("down"));
+    AppUser user = new AppUser("u1@example.com", "x", "Yang", "Wang", null, "Mountain View", "CA",
+        "555-555-5555", Role.USER);
+    user.setIdForTest(1L);
+    when(repo.findByJti("jti-old-123"))
+        .thenReturn(Optional.empty())
+        .thenReturn(Optional.of(new RefreshToken(user, "hash-old", "jti-old-123", EXP)));
+    when(repo.revokeAll(List.of("jti-old-123"))).thenReturn(1);
+
+    assertFalse(store.consume("jti-old-123").orElseThrow().wasRevoked());
+
+    verify(repo).insertIfAbsent(1L, "hash-old", "jti-old-123", EXP);
+    verify(repo, never()).insertIfAbsent(1L, "hash-other", "jti-other-99", EXP);
+    assertEquals(1.0, meters.get("auth.refresh_tokens.write_queue").gauge().value());
+  }
+
+  @Test
+  void purge_deletesInBatchesUntilAShortOne() {
+    RefreshTokenStore store = store(100);
+    when(repo.deleteExpiredOrRevoked(NOW, 2)).thenReturn(2, 2, 1);
+
+    store.purge();
+
+    verify(repo, times(3)).deleteExpiredOrRevoked(NOW, 2);
+    assertEquals(5.0, meters.get("auth.refresh_tokens.purged").counter().count());
+  }
+}
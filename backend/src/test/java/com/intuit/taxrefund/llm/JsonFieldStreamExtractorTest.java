@@ -0,0 +1,71 @@
+package com.intuit.taxrefund.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonFieldStreamExtractorTest {
+
+  private final ObjectMapper om = new ObjectMapper();
+
+  private static String streamed(String json, int chunkChars) {
+    StringBuilder out = new StringBuilder();
+    JsonFieldStreamExtractor x = new JsonFieldStreamExtractor("answerMarkdown", out::append);
+    for (int i = 0; i < json.length(); i += chunkChars) {
+      x.feed(json.substring(i, Math.min(json.length(), i + chunkChars)));
+    }
+    assertTrue(x.isComplete());
+    return out.toString();
+  }
+
+  @Test
+  void extractsDecodedValue_regardlessOfChunkBoundaries() throws Exception {
+    String answer = "**Status:** \"SENT\"\n\tPath C:\\refunds ✅ 😀 \u00e9";
+    String json = om.writeValueAsString(Map.of(
+        "citations", List.of(Map.of("docId", "answerMarkdown", "quote", "not this")),
+        "answerMarkdown", answer,
+        "confidence", "HIGH"));
+
+    for (int chunk = 1; chunk <= 7; chunk++) {
+      assertEquals(answer, streamed(json, chunk), "chunk=" + chunk);
+    }
+  }
+
+  @Test
+  void neverSplitsASurrogatePair_acrossEmits() throws Exception {
+    String json = om.writeValueAsString(Map.of("answerMarkdown", "a😀b"));
+    List<String> emits = new ArrayList<>();
+    JsonFieldStreamExtractor x = new JsonFieldStreamExtractor("answerMarkdown", emits::add);
+
+    for (char c : json.toCharArray()) x.feed(String.valueOf(c));
+
+    emits.forEach(e -> assertFalse(Character.isHighSurrogate(e.charAt(e.length() - 1)), e));
+    assertEquals("a😀b", String.join("", emits));
+  }
+
+  @Test
+  void ignoresNestedKeysWithTheSameName_andNonStringValues() {
+    assertEquals("", streamed("{\"meta\":{\"answerMarkdown\":\"inner\"},\"answerMarkdown\":null}", 3));
+  }
+
+  @Test
+  void mockClient_streamsSameJsonItReturns() throws Exception {
+    MockLlmClient mock = new MockLlmClient(om);
+    StringBuilder deltas = new StringBuilder();
+    StringBuilder tokens = new StringBuilder();
+    JsonFieldStreamExtractor x = new JsonFieldStreamExtractor("answerMarkdown", tokens::append);
+
+    String json = mock.streamStructuredJson("dev", "Question: when?\n\nauthoritativeData:\n{}", Map.of(), d -> {
+      deltas.append(d);
+      x.feed(d);
+    }).json();
+
+    assertEquals(json, deltas.toString());
+    assertEquals(om.readTree(json).path("answerMarkdown").asText(), tokens.toString());
+  }
+}
@@ -0,0 +1,259 @@
+package com.intuit.taxrefund.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.shared.concurrent.CircuitBreaker;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LlmClientRouterTest {
+
+  private static final String OUTPUT =
+      "{\"output\":[{\"content\":[{\"type\":\"output_text\",\"text\":\"{\\\"answerMarkdown\\\":\\\"hi\\\"}\"}]}],"
+          + "\"usage\":{\"input_tokens\":1200,\"output_tokens\":300}}";
+
+  private static final Map<String, Object> SCHEMA = Map.of("name", "t", "schema", Map.of("type", "object"));
+
+  private final ObjectMapper om = new ObjectMapper();
+  private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+  private final AtomicInteger requests = new AtomicInteger();
+  private volatile int status = 200;
+  private volatile long delayMs = 0;
+  private HttpServer server;
+
+  @BeforeEach
+  void startStub() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/v1/responses", exchange -> {
+      requests.incrementAndGet();
+      exchange.getRequestBody().readAllBytes();
+      try {
+        Thread.sleep(delayMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      byte[] body = (status == 200 ? OUTPUT : "{\"error\":\"boom\"}").getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(status, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    server.start();
+  }
+
+  @AfterEach
+  void stopStub() {
+    server.stop(0);
+  }
+
+  private AiProps props(int requestTimeoutMs, int hedgeAfterMs) {
+    String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    return new AiProps("openai",
+        new AiProps.OpenAi("test-key", "gpt-test", baseUrl, 1000, requestTimeoutMs, 0.15, 0.60),
+        new AiProps.Resilience(hedgeAfterMs, 2, 60));
+  }
+
+  private LlmClientRouter router(AiProps props) {
+    return new LlmClientRouter(props, new MockLlmClient(om), new OpenAiLlmClient(props, om), Clock.systemUTC(),
+        new LlmMetrics(meters, props));
+  }
+
+  @Test
+  void asyncCall_returnsProviderOutputText_andRecordsUsageLatencyAndCost() throws Exception {
+    AiProps props = props(2000, 0);
+    LlmClientRouter.Completion c = router(props).callAsync("dev", "Question: q", SCHEMA).get();
+
+    assertEquals("{\"answerMarkdown\":\"hi\"}", c.json());
+    assertEquals("openai", c.provider());
+    assertFalse(c.fallback());
+    assertEquals(1200, c.output().inputTokens());
+    assertEquals(300, c.output().outputTokens());
+
+    assertEquals(1200.0, meters.counter("llm.tokens", "provider", "openai", "model", "gpt-test", "type", "input").count());
+    assertEquals(300.0, meters.counter("llm.tokens", "provider", "openai", "model", "gpt-test", "type", "output").count());
+    assertEquals(1, meters.get("llm.call.latency").tags("provider", "openai", "outcome", "ok").timer().count());
+    assertEquals(0.00036, new LlmMetrics(meters, props).costUsd("openai", c.output()), 1e-12);
+  }
+
+  @Test
+  void requestTimeout_failsTheClientFuture_andRouterFallsBackToMock() throws Exception {
+    delayMs = 800;
+    AiProps props = props(200, 0);
+
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> new OpenAiLlmClient(props, om).generateStructuredJsonAsync("dev", "q", SCHEMA).get());
+    assertInstanceOf(HttpTimeoutException.class, e.getCause());
+
+    LlmClientRouter.Completion c = router(props).callWithFallback("dev", "Question: q", SCHEMA);
+    assertEquals("mock", c.provider());
+    assertTrue(c.fallback());
+  }
+
+  @Test
+  void hedge_answersWithMockBeforeSlowPrimaryFinishes() throws Exception {
+    delayMs = 1500;
+    long start = System.nanoTime();
+
+    LlmClientRouter.Completion c = router(props(5000, 100)).callAsync("dev", "Question: q", SCHEMA).get();
+
+    assertTrue(c.fallback());
+    assertTrue((System.nanoTime() - start) / 1_000_000 < 1000, "hedge should win well before the primary");
+  }
+
+  /** An OpenAI client whose async call returns {@code call}. */
+  private LlmClientRouter hedgingRouter(CompletableFuture<LlmOutput> call) {
+    OpenAiLlmClient primary = mock(OpenAiLlmClient.class);
+    when(primary.provider()).thenReturn("openai");
+    when(primary.model()).thenReturn("gpt-test");
+    when(primary.isAvailable()).thenReturn(true);
+    when(primary.generateStructuredJsonAsync(anyString(), anyString(), anyMap())).thenReturn(call);
+    AiProps props = props(5000, 50);
+    return new LlmClientRouter(props, new MockLlmClient(om), primary, Clock.systemUTC(), new LlmMetrics(meters, props));
+  }
+
+  @Test
+  void hedge_cancelsThePrimary_andReportsItAsAbandonedWithoutUsage() throws Exception {
+    CompletableFuture<LlmOutput> call = new CompletableFuture<>();
+    CompletableFuture<Optional<LlmOutput>> abandoned = new CompletableFuture<>();
+
+    LlmClientRouter.Completion c = hedgingRouter(call).callAsync("dev", "Question: q", SCHEMA,
+        (provider, model, late) -> abandoned.complete(Optional.ofNullable(late))).get(2, TimeUnit.SECONDS);
+
+    assertEquals("mock", c.provider());
+    assertTrue(call.isCancelled(), "the provider request must not keep running");
+    assertEquals(Optional.empty(), abandoned.get(2, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void hedge_primaryThatStillAnswers_isReportedWithItsUsage() throws Exception {
+    // the response was already on its way, so cancelling it does nothing
+    CompletableFuture<LlmOutput> call = new CompletableFuture<>() {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+      }
+    };
+    CompletableFuture<Optional<LlmOutput>> abandoned = new CompletableFuture<>();
+
+    LlmClientRouter.Completion c = hedgingRouter(call).callAsync("dev", "Question: q", SCHEMA,
+        (provider, model, late) -> abandoned.complete(Optional.ofNullable(late))).get(2, TimeUnit.SECONDS);
+    assertEquals("mock", c.provider());
+    assertFalse(abandoned.isDone());
+
+    LlmOutput late = new LlmOutput("{}", 1200, 300);
+    call.complete(late);
+
+    assertEquals(Optional.of(late), abandoned.get(2, TimeUnit.SECONDS));
+    assertEquals(1200.0, meters.counter("llm.tokens", "provider", "openai", "model", "gpt-test", "type", "input").count());
+  }
+
+  @Test
+  void breakerOpens_afterConsecutiveFailures_andSkipsTheProvider() throws Exception {
+    status = 500;
+    LlmClientRouter router = router(props(2000, 0));
+
+    assertTrue(router.callAsync("dev", "Question: q", SCHEMA).get().fallback());
+    assertTrue(router.callAsync("dev", "Question: q", SCHEMA).get().fallback());
+    assertEquals(CircuitBreaker.State.OPEN, router.breakerState("openai"));
+
+    status = 200;
+    assertTrue(router.callAsync("dev", "Question: q", SCHEMA).get().fallback());
+    assertEquals(2, requests.get(), "open circuit must not reach the provider");
+    assertEquals(2.0, meters.counter("llm.fallbacks", "provider", "openai", "reason", "error").count());
+    assertEquals(1.0, meters.counter("llm.fallbacks", "provider", "openai", "reason", "circuit_open").count());
+  }
+
+  // ── streaming ──────────────────────────────────────────────────────────
+
+  /** An OpenAI client that streams {@code deltas}, then fails if {@code failure} is set. */
+  private OpenAiLlmClient streamingPrimary(List<String> deltas, RuntimeException failure) {
+    OpenAiLlmClient primary = mock(OpenAiLlmClient.class);
+    when(primary.provider()).thenReturn("openai");
+    when(primary.model()).thenReturn("gpt-test");
+    when(primary.isAvailable()).thenReturn(true);
+    when(primary.streamStructuredJson(anyString(), anyString(), anyMap(), any())).thenAnswer(inv -> {
+      Consumer<String> onDelta = inv.getArgument(3);
+      deltas.forEach(onDelta);
+      if (failure != null) throw failure;
+      return LlmOutput.of(String.join("", deltas));
+    });
+    return primary;
+  }
+
+  private LlmClientRouter streamingRouter(OpenAiLlmClient primary) {
+    AiProps props = props(2000, 0);
+    return new LlmClientRouter(props, new MockLlmClient(om), primary, Clock.systemUTC(), new LlmMetrics(meters, props));
+  }
+
+  @Test
+  void stream_passesPrimaryDeltasThrough() {
+    List<String> seen = new ArrayList<>();
+    LlmClientRouter.Completion c = streamingRouter(streamingPrimary(List.of("{\"answer", "Markdown\":\"hi\"}"), null))
+        .streamWithFallback("dev", "Question: q", SCHEMA, seen::add);
+
+    assertEquals(List.of("{\"answer", "Markdown\":\"hi\"}"), seen);
+    assertEquals("{\"answerMarkdown\":\"hi\"}", c.json());
+    assertFalse(c.fallback());
+  }
+
+  @Test
+  void stream_failureBeforeAnyDelta_streamsTheMockInstead() {
+    List<String> seen = new ArrayList<>();
+    LlmClientRouter.Completion c = streamingRouter(streamingPrimary(List.of(), new IllegalStateException("boom")))
+        .streamWithFallback("dev", "Question: q", SCHEMA, seen::add);
+
+    assertTrue(c.fallback());
+    assertEquals("mock", c.provider());
+    assertEquals(c.json(), String.join("", seen));
+    assertEquals(1.0, meters.counter("llm.fallbacks", "provider", "openai", "reason", "error").count());
+  }
+
+  @Test
+  void stream_failureMidStream_endsWithTheMockAnswerWithoutStreamingIt() {
+    List<String> seen = new ArrayList<>();
+    LlmClientRouter.Completion c = streamingRouter(
+            streamingPrimary(List.of("{\"answerMarkdown\":\"Your ref"), new IllegalStateException("reset")))
+        .streamWithFallback("dev", "Question: q", SCHEMA, seen::add);
+
+    assertTrue(c.fallback());
+    assertEquals("mock", c.provider());
+    assertTrue(c.json().contains("mock AI"));
+    assertEquals(List.of("{\"answerMarkdown\":\"Your ref"), seen, "no second answer appended to the stream");
+    assertEquals(1.0, meters.counter("llm.fallbacks", "provider", "openai", "reason", "stream_interrupted").count());
+  }
+
+  @Test
+  void mockClient_streamsItsAnswerInSmallChunks() {
+    MockLlmClient mock = new MockLlmClient(om);
+    List<String> seen = new ArrayList<>();
+
+    LlmOutput out = mock.streamStructuredJson("dev", "Question: where is it?", SCHEMA, seen::add);
+
+    assertTrue(seen.size() > 1);
+    assertTrue(seen.stream().allMatch(d -> d.length() <= 16));
+    assertEquals(out.json(), String.join("", seen));
+    assertEquals(mock.generateStructuredJson("dev", "Question: where is it?", SCHEMA).json(), out.json());
+  }
+}
@@ -7,8 +7,9 @@ import com.intuit.taxrefund.shared.config.DemoProps;
 import com.intuit.taxrefund.refund.controller.dto.RefundStatusResponse;
 import com.intuit.taxrefund.refund.integration.irs.MockIrsAdapter;
 import com.intuit.taxrefund.refund.service.RefundService;
+import com.intuit.taxrefund.shared.ratelimit.LeasedRateLimiter;
+import com.intuit.taxrefund.shared.ratelimit.RateLimitPolicies;
 import com.intuit.taxrefund.shared.ratelimit.RateLimitProps;
-import com.intuit.taxrefund.shared.ratelimit.RedisRateLimiter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,7 +47,8 @@ class RefundControllerTest {
 
   // satisfy RateLimitFilter constructor deps in WebMvc slice
   @MockBean RateLimitProps rateLimitProps;
-  @MockBean RedisRateLimiter redisRateLimiter;
+  @MockBean LeasedRateLimiter rateLimiter;
+  @MockBean RateLimitPolicies rateLimitPolicies;
 
   @BeforeEach
   void disableRateLimiting() {
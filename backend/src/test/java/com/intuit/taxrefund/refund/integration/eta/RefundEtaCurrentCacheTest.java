@@ -0,0 +1,61 @@
+package com.intuit.taxrefund.refund.integration.eta;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RefundEtaCurrentCacheTest {
+
+  private static final Instant T0 = Instant.parse("2026-02-01T00:00:00Z");
+
+  @Test
+  void find_cachesMissingPrediction_andDoesNotHitRepoAgainWithinTtl() {
+    RefundEtaCurrentRepository repo = mock(RefundEtaCurrentRepository.class);
+    Clock clock = mock(Clock.class);
+    when(clock.instant()).thenReturn(T0, T0.plusSeconds(30));
+    when(repo.findById(any())).thenReturn(Optional.empty());
+
+    RefundEtaCurrentCache cache = new RefundEtaCurrentCache(repo, clock);
+
+    assertNull(cache.findEstimatedAvailableAt(1L, 2025, "PROCESSING"));
+    assertNull(cache.findEstimatedAvailableAt(1L, 2025, "PROCESSING"));
+
+    verify(repo, times(1)).findById(new RefundEtaCurrentId(1L, 2025, "PROCESSING"));
+  }
+
+  @Test
+  void put_isVisibleImmediately_withoutRepoLookup() {
+    RefundEtaCurrentRepository repo = mock(RefundEtaCurrentRepository.class);
+    Clock clock = mock(Clock.class);
+    when(clock.instant()).thenReturn(T0);
+
+    RefundEtaCurrentCache cache = new RefundEtaCurrentCache(repo, clock);
+    Instant eta = T0.plusSeconds(7 * 86400L);
+
+    cache.put(1L, 2025, "PROCESSING", eta);
+
+    assertEquals(eta, cache.findEstimatedAvailableAt(1L, 2025, "PROCESSING"));
+    verifyNoInteractions(repo);
+  }
+
+  @Test
+  void find_reloadsFromRepo_afterTtlExpires() {
+    RefundEtaCurrentRepository repo = mock(RefundEtaCurrentRepository.class);
+    Clock clock = mock(Clock.class);
+    when(clock.instant()).thenReturn(T0, T0.plusSeconds(61));
+    when(repo.findById(any())).thenReturn(Optional.empty());
+
+    RefundEtaCurrentCache cache = new RefundEtaCurrentCache(repo, clock);
+
+    cache.findEstimatedAvailableAt(1L, 2025, "SENT");
+    cache.findEstimatedAvailableAt(1L, 2025, "SENT");
+
+    verify(repo, times(2)).findById(new RefundEtaCurrentId(1L, 2025, "SENT"));
+  }
+}
@@ -0,0 +1,61 @@
+package com.intuit.taxrefund.shared.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedMapsTest {
+
+  @Test
+  void belowTheCap_nothingIsEvicted() {
+    ConcurrentHashMap<String, Long> map = new ConcurrentHashMap<>();
+    map.put("a", 1L);
+
+    assertEquals(0, BoundedMaps.makeRoom(map, 2, v -> true, Long::longValue));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  void expiredEntries_goFirst_andLiveOnesStay() {
+    ConcurrentHashMap<String, Long> map = new ConcurrentHashMap<>();
+    for (long i = 0; i < 20; i++) map.put("k" + i, i);
+
+    assertEquals(5, BoundedMaps.makeRoom(map, 20, v -> v < 5, Long::longValue));
+    assertEquals(15, map.size());
+    assertTrue(map.containsKey("k5"));
+  }
+
+  @Test
+  void fullOfLiveEntries_evictsOnlyTheOldestTenth() {
+    ConcurrentHashMap<String, Long> map = new ConcurrentHashMap<>();
+    for (long i = 0; i < 100; i++) map.put("k" + i, 1_000 - i);
+
+    assertEquals(10, BoundedMaps.makeRoom(map, 100, v -> false, Long::longValue));
+
+    assertEquals(90, map.size());
+    for (long i = 90; i < 100; i++) assertFalse(map.containsKey("k" + i), "k" + i);
+    for (long i = 0; i < 90; i++) assertTrue(map.containsKey("k" + i), "k" + i);
+  }
+
+  @Test
+  void smallCap_stillEvictsOne() {
+    ConcurrentHashMap<String, Long> map = new ConcurrentHashMap<>();
+    map.put("old", 1L);
+    map.put("new", 2L);
+
+    assertEquals(1, BoundedMaps.makeRoom(map, 2, v -> false, Long::longValue));
+    assertEquals(Set.of("new"), map.keySet());
+  }
+
+  @Test
+  void disabledCap_isANoop() {
+    ConcurrentHashMap<String, Long> map = new ConcurrentHashMap<>();
+    map.put("a", 1L);
+
+    assertEquals(0, BoundedMaps.makeRoom(map, 0, v -> true, Long::longValue));
+    assertEquals(1, map.size());
+  }
+}
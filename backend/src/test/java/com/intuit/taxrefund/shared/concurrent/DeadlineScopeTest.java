@@ -0,0 +1,69 @@
+package com.intuit.taxrefund.shared.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineScopeTest {
+
+  @Test
+  void forkedTasks_overlap() {
+    long start = System.nanoTime();
+    try (DeadlineScope scope = DeadlineScope.within(Duration.ofSeconds(5))) {
+      Future<String> a = scope.fork(() -> { Thread.sleep(300); return "a"; });
+      Future<String> b = scope.fork(() -> { Thread.sleep(300); return "b"; });
+
+      assertEquals("ab", scope.join(a, "a") + scope.join(b, "b"));
+    }
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertTrue(elapsedMs < 550, "elapsed=" + elapsedMs);
+  }
+
+  @Test
+  void deadline_isSharedAcrossJoins_andStragglersFinishUninterrupted() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean();
+
+    DeadlineExceededException ex;
+    try (DeadlineScope scope = DeadlineScope.within(Duration.ofMillis(200))) {
+      Future<String> fast = scope.fork(() -> { Thread.sleep(150); return "fast"; });
+      Future<String> slow = scope.fork(() -> {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          interrupted.set(true);
+        }
+        finished.countDown();
+        return "slow";
+      });
+
+      assertEquals("fast", scope.join(fast, "fast"));
+      ex = assertThrows(DeadlineExceededException.class, () -> scope.join(slow, "slow"));
+    }
+    assertEquals("slow", ex.step());
+
+    // the caller has moved on; the straggler (e.g. a refund fetch holding a pooled connection)
+    // is left to finish rather than interrupted mid-I/O
+    assertEquals(1, finished.getCount());
+    release.countDown();
+    assertTrue(finished.await(1, TimeUnit.SECONDS));
+    assertFalse(interrupted.get());
+  }
+
+  @Test
+  void subtaskFailure_isRethrownUnwrapped() {
+    try (DeadlineScope scope = DeadlineScope.within(Duration.ofSeconds(1))) {
+      Future<String> failing = scope.fork(() -> { throw new IllegalArgumentException("boom"); });
+
+      IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> scope.join(failing, "x"));
+      assertEquals("boom", ex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.intuit.taxrefund.shared.concurrent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.RestClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts Tomcat with the application's own application.yml (spring.threads.virtual.enabled)
+ * and checks where request handling and applicationTaskExecutor work actually run.
+ */
+class VirtualThreadConfigTest {
+
+  @Configuration(proxyBeanMethods = false)
+  @ImportAutoConfiguration({
+      ServletWebServerFactoryAutoConfiguration.class,
+      EmbeddedWebServerFactoryCustomizerAutoConfiguration.class,
+      DispatcherServletAutoConfiguration.class,
+      WebMvcAutoConfiguration.class,
+      TaskExecutionAutoConfiguration.class
+  })
+  static class WebApp {
+    @Bean
+    ThreadProbe threadProbe() {
+      return new ThreadProbe();
+    }
+  }
+
+  @RestController
+  static class ThreadProbe {
+    @GetMapping("/thread")
+    String thread() {
+      return Thread.currentThread().isVirtual() ? "virtual" : "platform";
+    }
+  }
+
+  @Test
+  void defaultConfig_runsRequestsAndTaskExecutorOnVirtualThreads() throws Exception {
+    try (ConfigurableApplicationContext ctx = start()) {
+      assertEquals("virtual", get(ctx));
+      AsyncTaskExecutor executor = ctx.getBean("applicationTaskExecutor", AsyncTaskExecutor.class);
+      assertTrue(executor.submit(() -> Thread.currentThread().isVirtual()).get());
+    }
+  }
+
+  @Test
+  void disabled_fallsBackToPlatformThreads() {
+    try (ConfigurableApplicationContext ctx = start("--spring.threads.virtual.enabled=false")) {
+      assertEquals("platform", get(ctx));
+    }
+  }
+
+  private static ConfigurableApplicationContext start(String... args) {
+    String[] all = new String[args.length + 2];
+    all[0] = "--server.port=0";
+    all[1] = "--server.forward-headers-strategy=none"; // not under test; the yml value does not bind
+    System.arraycopy(args, 0, all, 2, args.length);
+    return new SpringApplicationBuilder(WebApp.class)
+        .web(WebApplicationType.SERVLET)
+        .run(all);
+  }
+
+  private static String get(ConfigurableApplicationContext ctx) {
+    int port = ((ServletWebServerApplicationContext) ctx).getWebServer().getPort();
+    return RestClient.create().get().uri("http://127.0.0.1:" + port + "/thread").retrieve().body(String.class);
+  }
+}
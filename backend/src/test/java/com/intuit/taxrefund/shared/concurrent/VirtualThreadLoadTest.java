@@ -0,0 +1,137 @@
+package com.intuit.taxrefund.shared.concurrent;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test of the request-handling mode: embedded Tomcat serving an endpoint that makes a
+ * blocking RestClient call to a slow upstream stub (500 ms, like a slow IRS/ML/LLM call),
+ * once with a bounded platform thread pool and once with virtual threads as configured by
+ * spring.threads.virtual.enabled. The platform pool is kept small so the test stays short;
+ * the effect is the same with Tomcat's default 200 threads and more concurrent requests.
+ *
+ * Opt-in, since throughput depends on the machine: run with
+ * {@code ./mvnw test -Dtest=VirtualThreadLoadTest -DloadTests=true}. It only checks that every
+ * request succeeds and logs req/s for both modes. {@link VirtualThreadConfigTest} covers the
+ * configuration itself in the default suite.
+ */
+@EnabledIfSystemProperty(named = "loadTests", matches = "true")
+class VirtualThreadLoadTest {
+
+  private static final Logger log = LogManager.getLogger(VirtualThreadLoadTest.class);
+  private static final int UPSTREAM_DELAY_MS = 500;
+  private static final int PLATFORM_THREADS = 10;
+  private static final int REQUESTS = 100;
+  private static final int WARMUP_REQUESTS = 20;
+
+  private WebServer upstream;
+
+  @BeforeAll
+  static void logResults() {
+    // no Spring context here, so log4j2 runs on its default ERROR-level configuration
+    Configurator.setLevel(log.getName(), Level.INFO);
+  }
+
+  @BeforeEach
+  void startSlowUpstream() {
+    upstream = tomcat(true, "/eta", () -> {
+      try {
+        Thread.sleep(UPSTREAM_DELAY_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "{\"etaDays\":7}";
+    });
+  }
+
+  @AfterEach
+  void stopUpstream() {
+    upstream.stop();
+  }
+
+  @Test
+  void slowUpstreamCalls_platformPoolVersusVirtualThreads() throws Exception {
+    double platform = requestsPerSecond(false);
+    double virtual = requestsPerSecond(true);
+
+    // platform threads top out at PLATFORM_THREADS / delay = 20 req/s; virtual threads are not capped by a pool
+    log.info("virtual_thread_load upstreamDelayMs={} requests={} platformThreads={} platformReqPerSec={} virtualReqPerSec={}",
+        UPSTREAM_DELAY_MS, REQUESTS, PLATFORM_THREADS, Math.round(platform), Math.round(virtual));
+  }
+
+  private double requestsPerSecond(boolean virtualThreads) throws Exception {
+    String upstreamUrl = "http://127.0.0.1:" + upstream.getPort() + "/eta";
+    RestClient rest = RestClient.create();
+    WebServer server = tomcat(virtualThreads, "/api/eta", () -> rest.get().uri(upstreamUrl).retrieve().body(String.class));
+
+    try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+      HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clients).build();
+      HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + "/api/eta")).build();
+
+      burst(http, request, WARMUP_REQUESTS);
+      long start = System.nanoTime();
+      burst(http, request, REQUESTS);
+      return REQUESTS / ((System.nanoTime() - start) / 1e9);
+    } finally {
+      server.stop();
+    }
+  }
+
+  private static WebServer tomcat(boolean virtualThreads, String path, Supplier<String> handler) {
+    TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+    if (virtualThreads) {
+      // what Spring Boot's TomcatVirtualThreadsWebServerFactoryCustomizer does
+      factory.addProtocolHandlerCustomizers(p -> p.setExecutor(new VirtualThreadExecutor("tomcat-handler-")));
+    } else {
+      factory.addConnectorCustomizers(c -> ((AbstractProtocol<?>) c.getProtocolHandler()).setMaxThreads(PLATFORM_THREADS));
+    }
+    WebServer server = factory.getWebServer(ctx -> ctx.addServlet("handler", new HttpServlet() {
+      @Override
+      protected void doGet(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        res.setContentType("application/json");
+        res.getWriter().write(handler.get());
+      }
+    }).addMapping(path));
+    server.start();
+    return server;
+  }
+
+  private static void burst(HttpClient http, HttpRequest request, int n) throws Exception {
+    List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      responses.add(http.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+    }
+    for (CompletableFuture<HttpResponse<String>> r : responses) {
+      assertEquals(200, r.get().statusCode());
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package com.intuit.taxrefund.shared.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisConfigTest {
+
+  @Test
+  void rateLimiterConnection_getsTheShortTimeout_andKeepsTheSharedTarget() {
+    RedisStandaloneConfiguration target = new RedisStandaloneConfiguration("redis.internal", 6380);
+    target.setDatabase(2);
+    LettuceConnectionFactory shared = new LettuceConnectionFactory(target,
+        LettuceClientConfiguration.builder().commandTimeout(Duration.ofSeconds(60)).useSsl().build());
+
+    LettuceConnectionFactory own = RedisConfig.shortTimeoutCopy(shared, Duration.ofMillis(500));
+
+    assertEquals(Duration.ofMillis(500), own.getClientConfiguration().getCommandTimeout());
+    assertEquals(Duration.ofMillis(500),
+        own.getClientConfiguration().getClientOptions().orElseThrow().getSocketOptions().getConnectTimeout());
+    assertTrue(own.getClientConfiguration().isUseSsl());
+    assertEquals("redis.internal", own.getHostName());
+    assertEquals(6380, own.getPort());
+    assertEquals(2, own.getDatabase());
+
+    assertEquals(Duration.ofSeconds(60), shared.getClientConfiguration().getCommandTimeout(), "shared one untouched");
+  }
+}
@@ -0,0 +1,81 @@
+package com.intuit.taxrefund.shared.outbox.worker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.ml.MlEtaClient;
+import com.intuit.taxrefund.refund.integration.eta.RefundEtaCurrentCache;
+import com.intuit.taxrefund.refund.integration.eta.RefundEtaCurrentRepository;
+import com.intuit.taxrefund.refund.integration.eta.RefundEtaPrediction;
+import com.intuit.taxrefund.refund.integration.eta.RefundEtaPredictionRepository;
+import com.intuit.taxrefund.refund.service.RefundService;
+import com.intuit.taxrefund.shared.outbox.model.OutboxEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxEventHandlerTest {
+
+  private static final String PAYLOAD =
+      "{\"userId\":1,\"taxYear\":2025,\"status\":\"PROCESSING\",\"filingState\":\"CA\"}";
+
+  private RefundEtaPredictionRepository etaRepo;
+  private RefundEtaCurrentRepository etaCurrentRepo;
+  private RefundEtaCurrentCache etaCache;
+  private RefundService refundService;
+  private MlEtaClient ml;
+  private OutboxEventHandler handler;
+
+  @BeforeEach
+  void setUp() {
+    etaRepo = mock(RefundEtaPredictionRepository.class);
+    etaCurrentRepo = mock(RefundEtaCurrentRepository.class);
+    etaCache = mock(RefundEtaCurrentCache.class);
+    refundService = mock(RefundService.class);
+    ml = mock(MlEtaClient.class);
+    handler = new OutboxEventHandler(etaRepo, etaCurrentRepo, etaCache, refundService, ml, new ObjectMapper());
+
+    when(ml.predict(anyLong(), anyInt(), anyString(), anyString(), any()))
+        .thenReturn(new MlEtaClient.PredictResponse(7, "eta-model", "v2", "{}"));
+  }
+
+  @Test
+  void upsert_isStampedWithThePredictionsCreatedAt_andWritesThroughWhenApplied() throws Exception {
+    when(etaCurrentRepo.upsert(anyLong(), anyInt(), anyString(), anyInt(), any(), anyString(), anyString(), any()))
+        .thenReturn(1);
+
+    handler.handle(OutboxEvent.newEvent("REFUND_STATUS_UPDATED", "1:2025", PAYLOAD));
+
+    ArgumentCaptor<RefundEtaPrediction> saved = ArgumentCaptor.forClass(RefundEtaPrediction.class);
+    verify(etaRepo).save(saved.capture());
+    Instant createdAt = saved.getValue().getCreatedAt();
+    Instant eta = saved.getValue().getEstimatedAvailableAt();
+
+    verify(etaCurrentRepo).upsert(1L, 2025, "PROCESSING", 7, eta, "eta-model", "v2", createdAt);
+    verify(etaCache).put(1L, 2025, "PROCESSING", eta);
+    verify(refundService).applyEtaToCachedLatest(1L, 2025, "PROCESSING", eta);
+  }
+
+  @Test
+  void stalePrediction_handledAfterANewerOne_leavesTheCachesAlone() throws Exception {
+    // the read model already holds a newer prediction, so the guarded upsert touches no row
+    when(etaCurrentRepo.upsert(anyLong(), anyInt(), anyString(), anyInt(), any(), anyString(), anyString(), any()))
+        .thenReturn(0);
+
+    handler.handle(OutboxEvent.newEvent("REFUND_STATUS_UPDATED", "1:2025", PAYLOAD));
+
+    verify(etaRepo).save(any(RefundEtaPrediction.class));
+    verifyNoInteractions(etaCache, refundService);
+  }
+
+  @Test
+  void otherEventTypes_areIgnored() throws Exception {
+    handler.handle(OutboxEvent.newEvent("SOMETHING_ELSE", "1:2025", PAYLOAD));
+
+    verifyNoInteractions(etaRepo, etaCurrentRepo, etaCache, refundService, ml);
+  }
+}
@@ -0,0 +1,234 @@
+package com.intuit.taxrefund.shared.ratelimit;
+
+import com.intuit.taxrefund.shared.concurrent.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LeasedRateLimiterTest {
+
+  private static final String KEY = "rl:u:1:POST:/api/assistant/chat";
+
+  /** One global bucket without refill, standing in for Redis; counts round-trips. */
+  private static final class GlobalBucket {
+    final AtomicLong tokens;
+    final AtomicInteger calls = new AtomicInteger();
+
+    GlobalBucket(long capacity) {
+      tokens = new AtomicLong(capacity);
+    }
+
+    RedisRateLimiter redis() {
+      RedisRateLimiter redis = mock(RedisRateLimiter.class);
+      when(redis.lease(anyString(), anyInt(), anyInt(), anyInt())).thenAnswer(inv -> {
+        calls.incrementAndGet();
+        int max = inv.getArgument(3);
+        synchronized (this) {
+          long granted = Math.min(max, tokens.get());
+          tokens.addAndGet(-granted);
+          return new RedisRateLimiter.Grant(granted, tokens.get(), granted == 0 ? 1000 : 0);
+        }
+      });
+      when(redis.tryConsume(anyString(), anyInt(), anyInt(), anyInt())).thenAnswer(inv -> {
+        calls.incrementAndGet();
+        int cost = inv.getArgument(3);
+        synchronized (this) {
+          boolean ok = tokens.get() >= cost;
+          if (ok) tokens.addAndGet(-cost);
+          return new RedisRateLimiter.Result(ok, tokens.get(), 0);
+        }
+      });
+      return redis;
+    }
+  }
+
+  private static RateLimitProps props(boolean leasing) {
+    return props(leasing, 60_000);
+  }
+
+  private static RateLimitProps props(boolean leasing, long ttlMs) {
+    return new RateLimitProps(true, null, new RateLimitProps.Lease(leasing, 0.1, ttlMs, 1000), null);
+  }
+
+  /** Runs {@code threads} callers per node against the shared bucket; returns admitted requests. */
+  private static long hammer(List<LeasedRateLimiter> nodes, RateLimitProps.Policy policy, int threads, int attempts)
+      throws Exception {
+    AtomicLong admitted = new AtomicLong();
+    CountDownLatch go = new CountDownLatch(1);
+    try (ExecutorService pool = Executors.newFixedThreadPool(nodes.size() * threads)) {
+      List<Future<?>> runs = new ArrayList<>();
+      for (LeasedRateLimiter node : nodes) {
+        for (int t = 0; t < threads; t++) {
+          runs.add(pool.submit(() -> {
+            go.await();
+            for (int i = 0; i < attempts; i++) {
+              if (node.tryConsume(KEY, policy, 1).allowed()) admitted.incrementAndGet();
+            }
+            return null;
+          }));
+        }
+      }
+      go.countDown();
+      for (Future<?> r : runs) r.get();
+    }
+    return admitted.get();
+  }
+
+  @Test
+  void concurrentNodes_neverExceedGlobalCapacity_andCallRedisPerBatchNotPerRequest() throws Exception {
+    RateLimitProps.Policy policy = new RateLimitProps.Policy(1000, 0);
+    GlobalBucket global = new GlobalBucket(1000);
+    RedisRateLimiter redis = global.redis();
+    List<LeasedRateLimiter> nodes = new ArrayList<>();
+    for (int n = 0; n < 4; n++) nodes.add(new LeasedRateLimiter(redis, props(true), new SimpleMeterRegistry(), Clock.systemUTC()));
+
+    long admitted = hammer(nodes, policy, 8, 2000);
+    nodes.forEach(LeasedRateLimiter::shutdown);
+
+    int batch = 100;
+    assertTrue(admitted <= 1000, "admitted " + admitted);
+    // tokens can only be lost in leases still held by a node (or a prefetch landing at the end)
+    assertTrue(admitted >= 1000 - nodes.size() * 2L * batch, "admitted " + admitted);
+    // 64k requests; Redis sees the batches, each node's ramp-up from 1 to 100 (8 leases) and one empty lease
+    assertTrue(global.calls.get() <= 1000 / batch + nodes.size() * 11, "redis calls " + global.calls.get());
+
+    // same load with leasing off: every request is a Redis call
+    GlobalBucket direct = new GlobalBucket(1000);
+    RedisRateLimiter directRedis = direct.redis();
+    List<LeasedRateLimiter> plain = new ArrayList<>();
+    for (int n = 0; n < 4; n++) plain.add(new LeasedRateLimiter(directRedis, props(false), new SimpleMeterRegistry(),
+        Clock.systemUTC()));
+    assertEquals(1000, hammer(plain, policy, 8, 250));
+    assertEquals(4 * 8 * 250, direct.calls.get());
+  }
+
+  @Test
+  void perUserKey_spentAtTheConfiguredRate_isNeverDenied() {
+    AtomicLong now = new AtomicLong(1_000_000);
+    Clock clock = mock(Clock.class);
+    when(clock.millis()).thenAnswer(inv -> now.get());
+    // Redis stand-in with refill: 30 tokens, 30 per minute
+    AtomicLong units = new AtomicLong(30 * 60_000L);
+    AtomicLong refilledAt = new AtomicLong(now.get());
+    RedisRateLimiter redis = mock(RedisRateLimiter.class);
+    when(redis.lease(anyString(), anyInt(), anyInt(), anyInt())).thenAnswer(inv -> {
+      int max = inv.getArgument(3);
+      units.set(Math.min(30 * 60_000L, units.get() + (now.get() - refilledAt.getAndSet(now.get())) * 30));
+      long granted = Math.min(max, units.get() / 60_000);
+      units.addAndGet(-granted * 60_000);
+      return new RedisRateLimiter.Grant(granted, units.get() / 60_000, 0);
+    });
+    LeasedRateLimiter limiter = new LeasedRateLimiter(redis, props(true, 1000), new SimpleMeterRegistry(), clock);
+    RateLimitProps.Policy policy = new RateLimitProps.Policy(30, 30);
+
+    // one request every 2s is exactly the policy's rate; with 3-token batches dropped after 1s
+    // two thirds of every lease would be lost and the user denied within a minute
+    for (int i = 0; i < 300; i++) {
+      assertTrue(limiter.tryConsume(KEY, policy, 1).allowed(), "request " + i);
+      now.addAndGet(2_000);
+    }
+    verify(redis, times(300)).lease(anyString(), anyInt(), anyInt(), eq(1));
+    limiter.shutdown();
+  }
+
+  @Test
+  void exhaustedBucket_isDeniedLocally_untilTokensRefill() throws Exception {
+    GlobalBucket global = new GlobalBucket(2);
+    AtomicLong now = new AtomicLong(1_000_000);
+    Clock clock = mock(Clock.class);
+    when(clock.millis()).thenAnswer(inv -> now.get());
+    ExecutorService prefetcher = Executors.newSingleThreadExecutor();
+    LeasedRateLimiter limiter = new LeasedRateLimiter(global.redis(),
+        new RateLimitProps(true, null, new RateLimitProps.Lease(true, 0.5, 10_000, 10), null),
+        new SimpleMeterRegistry(), clock, prefetcher);
+    RateLimitProps.Policy policy = new RateLimitProps.Policy(4, 60); // one token per second
+
+    assertTrue(limiter.tryConsume(KEY, policy, 1).allowed());
+    assertTrue(limiter.tryConsume(KEY, policy, 1).allowed());
+    assertFalse(limiter.tryConsume(KEY, policy, 1).allowed());
+    prefetcher.submit(() -> { }).get(); // any prefetch queued before has finished
+    int calls = global.calls.get();
+
+    for (int i = 0; i < 10; i++) assertFalse(limiter.tryConsume(KEY, policy, 1).allowed());
+    assertEquals(calls, global.calls.get(), "denials while exhausted must not reach Redis");
+
+    global.tokens.set(1);
+    now.addAndGet(1000);
+    assertTrue(limiter.tryConsume(KEY, policy, 1).allowed());
+    limiter.shutdown();
+  }
+
+  @Test
+  void redisOutage_opensBreaker_decidesLocally_andRecovers() {
+    AtomicLong now = new AtomicLong(1_000_000);
+    Clock clock = mock(Clock.class);
+    when(clock.millis()).thenAnswer(inv -> now.get());
+    AtomicInteger calls = new AtomicInteger();
+    AtomicBoolean down = new AtomicBoolean(true);
+    RedisRateLimiter redis = mock(RedisRateLimiter.class);
+    when(redis.tryConsume(anyString(), anyInt(), anyInt(), anyInt())).thenAnswer(inv -> {
+      calls.incrementAndGet();
+      if (down.get()) throw new RedisConnectionFailureException("connection refused");
+      return new RedisRateLimiter.Result(true, 9, 0);
+    });
+    SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    LeasedRateLimiter limiter = new LeasedRateLimiter(redis, new RateLimitProps(true, null,
+        new RateLimitProps.Lease(false, 0.1, 1000, 10),
+        new RateLimitProps.Degraded(RateLimitProps.FailMode.LOCAL, 2, 5_000, 0.5, 10)), meters, clock);
+    RateLimitProps.Policy policy = new RateLimitProps.Policy(10, 0);
+
+    // two failures open the breaker; afterwards Redis is not called at all
+    int allowed = 0;
+    for (int i = 0; i < 10; i++) {
+      if (limiter.tryConsume(KEY, policy, 1).allowed()) allowed++;
+    }
+    assertEquals(2, calls.get());
+    assertEquals(CircuitBreaker.State.OPEN, limiter.redisState());
+    assertEquals(5, allowed, "local bucket holds localShare of the capacity");
+    assertEquals(1.0, meters.get("ratelimit.degraded").gauge().value());
+    assertEquals(5.0, meters.get("ratelimit.degraded.decisions").tags("mode", "local", "outcome", "denied")
+        .counter().count());
+
+    // after openMs one trial call finds Redis back and closes the breaker
+    down.set(false);
+    now.addAndGet(5_000);
+    assertTrue(limiter.tryConsume(KEY, policy, 1).allowed());
+    assertEquals(3, calls.get());
+    assertEquals(CircuitBreaker.State.CLOSED, limiter.redisState());
+    assertEquals(0.0, meters.get("ratelimit.degraded").gauge().value());
+    assertEquals(5.0, meters.get("ratelimit.degraded.time").functionCounter().count());
+    limiter.shutdown();
+  }
+
+  @Test
+  void failClosed_deniesWhileRedisIsDown() {
+    RedisRateLimiter redis = mock(RedisRateLimiter.class);
+    when(redis.lease(anyString(), anyInt(), anyInt(), anyInt()))
+        .thenThrow(new RedisConnectionFailureException("connection refused"));
+    LeasedRateLimiter limiter = new LeasedRateLimiter(redis, new RateLimitProps(true, null,
+        new RateLimitProps.Lease(true, 0.1, 1000, 10),
+        new RateLimitProps.Degraded(RateLimitProps.FailMode.CLOSED, 1, 5_000, 1.0, 10)),
+        new SimpleMeterRegistry(), Clock.systemUTC());
+
+    RedisRateLimiter.Result r = limiter.tryConsume(KEY, new RateLimitProps.Policy(10, 10), 1);
+
+    assertFalse(r.allowed());
+    assertEquals(5_000, r.retryAfterMillis());
+    limiter.shutdown();
+  }
+}
@@ -0,0 +1,29 @@
+package com.intuit.taxrefund.shared.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LocalRateLimiterTest {
+
+  private static final RateLimitProps.Policy POLICY = new RateLimitProps.Policy(2, 1);
+
+  @Test
+  void burstOfNewKeys_atTheCap_keepsTheExhaustedBucketsDenying() {
+    Clock clock = mock(Clock.class);
+    when(clock.millis()).thenReturn(1_000L);
+    LocalRateLimiter limiter = new LocalRateLimiter(clock, 10);
+
+    assertTrue(limiter.tryConsume("abuser", POLICY, 2).allowed());
+    assertFalse(limiter.tryConsume("abuser", POLICY, 1).allowed());
+
+    // each new key spends one token, so no bucket is full again and none can simply be dropped
+    for (int i = 0; i < 30; i++) limiter.tryConsume("k" + i, POLICY, 1);
+
+    assertTrue(limiter.size() <= 10, "size=" + limiter.size());
+    assertFalse(limiter.tryConsume("abuser", POLICY, 1).allowed());
+  }
+}
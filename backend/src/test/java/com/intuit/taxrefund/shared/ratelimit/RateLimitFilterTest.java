@@ -0,0 +1,79 @@
+package com.intuit.taxrefund.shared.ratelimit;
+
+import com.intuit.taxrefund.auth.jwt.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RateLimitFilterTest {
+
+  private static final RateLimitProps.Policy BUCKET = new RateLimitProps.Policy(30, 30);
+
+  private final LeasedRateLimiter limiter = mock(LeasedRateLimiter.class);
+  private final RateLimitProps props = new RateLimitProps(true, List.of(
+      new RateLimitProps.Rule("refund-latest", "GET", "/api/refund/latest",
+          RateLimitProps.PrincipalType.USER_OR_IP, 30, 30, 1, null)
+  ), null, null);
+  private final RateLimitFilter filter = new RateLimitFilter(limiter, new RateLimitPolicies(props, limiter), props);
+
+  @AfterEach
+  void clearAuth() {
+    SecurityContextHolder.clearContext();
+  }
+
+  private MockHttpServletResponse get(String path, MockFilterChain chain) throws Exception {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+        new JwtService.JwtPrincipal(7L, "u7@example.com", "USER"), null, List.of()));
+    MockHttpServletResponse res = new MockHttpServletResponse();
+    filter.doFilter(new MockHttpServletRequest("GET", path), res, chain);
+    return res;
+  }
+
+  @Test
+  void allowed_reportsLimitRemainingAndSecondsUntilFull() throws Exception {
+    when(limiter.tryConsume("rl:refund-latest:u:7", BUCKET, 1)).thenReturn(new RedisRateLimiter.Result(true, 27, 0));
+    MockFilterChain chain = new MockFilterChain();
+
+    MockHttpServletResponse res = get("/api/refund/latest", chain);
+
+    assertNotNull(chain.getRequest(), "request must reach the controller");
+    assertEquals(200, res.getStatus());
+    assertEquals("30", res.getHeader("RateLimit-Limit"));
+    assertEquals("27", res.getHeader("RateLimit-Remaining"));
+    assertEquals("6", res.getHeader("RateLimit-Reset")); // 3 tokens at 30/min
+    assertNull(res.getHeader("Retry-After"));
+  }
+
+  @Test
+  void denied_is429_withRetryAfter() throws Exception {
+    when(limiter.tryConsume("rl:refund-latest:u:7", BUCKET, 1)).thenReturn(new RedisRateLimiter.Result(false, 0, 1_500));
+    MockFilterChain chain = new MockFilterChain();
+
+    MockHttpServletResponse res = get("/api/refund/latest", chain);
+
+    assertNull(chain.getRequest(), "denied request must not reach the controller");
+    assertEquals(429, res.getStatus());
+    assertEquals("30", res.getHeader("RateLimit-Limit"));
+    assertEquals("0", res.getHeader("RateLimit-Remaining"));
+    assertEquals("2", res.getHeader("RateLimit-Reset"));
+    assertEquals("2", res.getHeader("Retry-After"));
+    assertEquals("{\"error\":\"rate_limited\"}", res.getContentAsString());
+  }
+
+  @Test
+  void unmatchedPath_hasNoHeaders() throws Exception {
+    MockHttpServletResponse res = get("/api/other", new MockFilterChain());
+
+    assertNull(res.getHeader("RateLimit-Limit"));
+    verifyNoInteractions(limiter);
+  }
+}
@@ -0,0 +1,98 @@
+package com.intuit.taxrefund.shared.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RateLimitPoliciesTest {
+
+  private final LeasedRateLimiter limiter = mock(LeasedRateLimiter.class);
+
+  private final RateLimitPolicies policies = new RateLimitPolicies(new RateLimitProps(true, List.of(
+      new RateLimitProps.Rule("refund-latest", "GET", "/api/refund/latest",
+          RateLimitProps.PrincipalType.USER_OR_IP, 30, 30, 1, null),
+      new RateLimitProps.Rule("assistant-chat", "POST", "/api/assistant/chat/**",
+          RateLimitProps.PrincipalType.USER_OR_IP, 10, 10, 1, Map.of("llm", 2)),
+      new RateLimitProps.Rule("login", "*", "/api/auth/login",
+          RateLimitProps.PrincipalType.IP, 5, 5, 0, null)
+  ), null, null), limiter);
+
+  @Test
+  void matchesExactPaths_patterns_andAnyMethod() {
+    assertEquals("refund-latest", policies.match("GET", "/api/refund/latest").name());
+    assertEquals("refund-latest", policies.match("GET", "/api/refund/latest/").name());
+    assertNull(policies.match("POST", "/api/refund/latest"));
+
+    RateLimitPolicies.Compiled chat = policies.match("POST", "/api/assistant/chat");
+    assertEquals("assistant-chat", chat.name());
+    assertSame(chat, policies.match("POST", "/api/assistant/chat/stream"));
+    assertEquals("rl:assistant-chat:u:", chat.userKeyPrefix());
+    assertEquals(new RateLimitProps.Policy(10, 10), chat.bucket());
+
+    RateLimitPolicies.Compiled login = policies.match("PUT", "/api/auth/login");
+    assertEquals(RateLimitProps.PrincipalType.IP, login.principal());
+    assertEquals(1, login.cost(), "cost defaults to 1");
+    assertNull(policies.match("GET", "/api/other"));
+  }
+
+  @Test
+  void precedence_exactThenPatternsForTheMethod_thenForAnyMethod() {
+    RateLimitPolicies p = new RateLimitPolicies(new RateLimitProps(true, List.of(
+        new RateLimitProps.Rule("any-pattern", "*", "/api/**", RateLimitProps.PrincipalType.IP, 1, 1, 1, null),
+        new RateLimitProps.Rule("any-exact", "*", "/api/x", RateLimitProps.PrincipalType.IP, 1, 1, 1, null),
+        new RateLimitProps.Rule("get-pattern", "GET", "/api/*", RateLimitProps.PrincipalType.IP, 1, 1, 1, null),
+        new RateLimitProps.Rule("get-exact", "GET", "/api/x", RateLimitProps.PrincipalType.IP, 1, 1, 1, null)
+    ), null, null), limiter);
+
+    assertEquals("get-exact", p.match("GET", "/api/x").name(), "exact beats an earlier pattern");
+    assertEquals("get-pattern", p.match("GET", "/api/y").name(), "the method's pattern beats an earlier any-method rule");
+    assertEquals("any-exact", p.match("POST", "/api/x").name(), "any-method exact beats an earlier pattern");
+    assertEquals("any-pattern", p.match("POST", "/api/y/z").name());
+  }
+
+  @Test
+  void sameName_withDifferentBuckets_isRejectedAtBind() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new RateLimitProps(true, List.of(
+        new RateLimitProps.Rule("chat", "POST", "/a", RateLimitProps.PrincipalType.USER_OR_IP, 10, 10, 1, null),
+        new RateLimitProps.Rule("chat", "POST", "/b", RateLimitProps.PrincipalType.USER_OR_IP, 20, 10, 1, null)
+    ), null, null));
+    assertTrue(e.getMessage().contains("'chat'"));
+
+    assertDoesNotThrow(() -> new RateLimitProps(true, List.of(
+        new RateLimitProps.Rule("chat", "POST", "/a", RateLimitProps.PrincipalType.USER_OR_IP, 10, 10, 1, null),
+        new RateLimitProps.Rule("chat", "*", "/b", RateLimitProps.PrincipalType.USER_OR_IP, 10, 10, 0, Map.of())
+    ), null, null));
+  }
+
+  @Test
+  void chargeFor_resolvesByRoute_andChargesTheUsersBucket() {
+    RateLimitPolicies.Charge llm = policies.chargeFor("POST", "/api/assistant/chat", "llm");
+    policies.charge(llm, 7L);
+
+    verify(limiter).charge("rl:assistant-chat:u:7", new RateLimitProps.Policy(10, 10), 2);
+    verifyNoMoreInteractions(limiter);
+  }
+
+  @Test
+  void chargeFor_missingRuleOrCharge_failsFast_unlessRateLimitingIsOff() {
+    assertThrows(IllegalStateException.class, () -> policies.chargeFor("POST", "/api/other", "llm"));
+    assertThrows(IllegalStateException.class, () -> policies.chargeFor("GET", "/api/refund/latest", "llm"));
+
+    RateLimitPolicies off = new RateLimitPolicies(new RateLimitProps(false, List.of(), null, null), limiter);
+    off.charge(off.chargeFor("POST", "/api/assistant/chat", "llm"), 7L);
+    verifyNoInteractions(limiter);
+  }
+
+  @Test
+  void charge_failure_isOnlyLogged() {
+    doThrow(new IllegalStateException("redis down")).when(limiter).charge(anyString(), any(), anyInt());
+    RateLimitPolicies.Charge llm = policies.chargeFor("POST", "/api/assistant/chat", "llm");
+
+    assertDoesNotThrow(() -> policies.charge(llm, 7L));
+  }
+}
@@ -0,0 +1,92 @@
+package com.intuit.taxrefund.shared.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RedisRateLimiterTest {
+
+  private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+  private final RedisConnection conn = mock(RedisConnection.class);
+  private final RedisScriptingCommands scripting = mock(RedisScriptingCommands.class);
+  private final RedisRateLimiter limiter = new RedisRateLimiter(redis);
+  private final List<List<String>> evalArgs = new ArrayList<>();
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void wireConnection() {
+    when(conn.scriptingCommands()).thenReturn(scripting);
+    when(redis.execute(any(RedisCallback.class)))
+        .thenAnswer(inv -> ((RedisCallback<Object>) inv.getArgument(0)).doInRedis(conn));
+    when(scripting.scriptLoad(any(byte[].class))).thenReturn("sha1");
+  }
+
+  /** Stubs EVALSHA with {@code replies} in turn, recording keys and args as strings. */
+  private void evalShaReturns(Object... replies) {
+    int[] call = { 0 };
+    when(scripting.evalSha(eq("sha1"), eq(ReturnType.MULTI), eq(1), any(byte[][].class))).thenAnswer(inv -> {
+      Object[] raw = inv.getArguments();
+      evalArgs.add(Arrays.stream(raw, 3, raw.length).map(b -> new String((byte[]) b, StandardCharsets.UTF_8)).toList());
+      Object reply = replies[Math.min(call[0]++, replies.length - 1)];
+      if (reply instanceof RuntimeException e) throw e;
+      return reply;
+    });
+  }
+
+  @Test
+  void preloadsOnce_thenCallsEvalShaWithIntegerArgs_andParsesIntegerReply() {
+    evalShaReturns(List.of(1L, 9L, 0L));
+
+    limiter.init();
+    RedisRateLimiter.Result r = limiter.tryConsume("rl:u:1", 10, 30, 1);
+    limiter.tryConsume("rl:u:1", 10, 30, 1);
+
+    assertTrue(r.allowed());
+    assertEquals(9, r.remainingTokens());
+    verify(scripting, times(1)).scriptLoad(any(byte[].class));
+    assertEquals(List.of(List.of("rl:u:1", "10", "30", "1", "0"), List.of("rl:u:1", "10", "30", "1", "0")), evalArgs);
+  }
+
+  @Test
+  void noScript_reloadsAndRetriesOnce() {
+    evalShaReturns(new RedisSystemException("x", new IllegalStateException("NOSCRIPT No matching script")),
+        List.of(0L, 0L, 2000L));
+
+    limiter.init();
+    RedisRateLimiter.Result r = limiter.tryConsume("rl:u:1", 10, 30, 1);
+
+    assertFalse(r.allowed());
+    assertEquals(2000, r.retryAfterMillis());
+    verify(scripting, times(2)).scriptLoad(any(byte[].class));
+  }
+
+  @Test
+  void lease_returnsGrantedTokens_andPassesPartialFlag() {
+    evalShaReturns(List.of(3L, 0L, 2000L));
+
+    assertEquals(new RedisRateLimiter.Grant(3, 0, 2000), limiter.lease("rl:u:1", 30, 30, 5));
+    assertEquals(List.of("rl:u:1", "30", "30", "5", "1"), evalArgs.get(0));
+  }
+
+  @Test
+  void otherErrors_andMissingReply_propagate() {
+    evalShaReturns(new RedisSystemException("down", new IllegalStateException("connection refused")), null);
+
+    assertThrows(RedisSystemException.class, () -> limiter.tryConsume("rl:u:1", 10, 30, 1));
+    assertThrows(IllegalStateException.class, () -> limiter.tryConsume("rl:u:1", 10, 30, 1));
+  }
+}